@@ -0,0 +1,92 @@
+package com.krolang.compiler.core;
+
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Interpreter;
+import com.krolang.compiler.core.ast.Optimizer;
+import com.krolang.compiler.core.ast.Output;
+import com.krolang.compiler.core.ast.Parser;
+import com.krolang.compiler.core.ast.Resolver;
+import com.krolang.compiler.core.ast.Statement;
+import com.krolang.compiler.core.ast.TypeChecker;
+import com.krolang.compiler.core.closure.ClosureInterpreter;
+import com.krolang.compiler.core.jvm.JvmEngine;
+import com.krolang.compiler.core.lox.Lexer;
+import com.krolang.compiler.core.node.NodeEngine;
+import com.krolang.compiler.core.vm.BytecodeCompiler;
+import com.krolang.compiler.core.vm.VirtualMachine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A Str declared as the concatenation of 10,000 literals of 10 chars, then printed, on every
+ * engine. {@code compileAndRun} goes from the source as {@link Compiler#compile()} does, the
+ * optimizer folds the literals into one constant; {@code run} leaves the checked statements
+ * unoptimised, so the engine concatenates the 10,000 terms itself.
+ *
+ * @author autonu.kro
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcatenationBenchmark {
+
+    private static final int TERMS = 10_000;
+
+    @Param({"TREE", "VM", "JVM", "NODE", "CLOSURE"})
+    private Backend backend;
+
+    private String source;
+    private List<Statement> statements;
+    private Output output;
+
+    @Setup
+    public void setUp() {
+        StringBuilder program = new StringBuilder("Let s: Str = 'abcdefghij'");
+        for (int i = 1; i < TERMS; i++) {
+            program.append(" + 'abcdefghij'");
+        }
+        source = program.append(";\nPrint -> s;\n").toString();
+        statements = new TypeChecker().check(new Resolver().resolve(parse(source)));
+        output = Output.of(new EngineBenchmark.DiscardingChannel());
+    }
+
+    @Benchmark
+    public void compileAndRun() {
+        run(new Optimizer().optimize(new TypeChecker().check(new Resolver().resolve(parse(source)))));
+    }
+
+    @Benchmark
+    public void run() {
+        run(statements);
+    }
+
+    private void run(List<Statement> program) {
+        switch (backend) {
+            case TREE -> new Interpreter(program, new Environment(), output).interpret();
+            case VM -> new VirtualMachine(output).run(new BytecodeCompiler().compile(program));
+            case JVM -> new JvmEngine(output).run(program);
+            case NODE -> new NodeEngine(output).run(program);
+            case CLOSURE -> new ClosureInterpreter(program, new Environment(), output).interpret();
+        }
+        output.flush();
+    }
+
+    private static List<Statement> parse(String source) {
+        return new Parser(new Lexer(null, "bench").scan(source)).parse();
+    }
+}
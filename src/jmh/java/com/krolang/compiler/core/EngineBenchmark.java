@@ -0,0 +1,130 @@
+package com.krolang.compiler.core;
+
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Interpreter;
+import com.krolang.compiler.core.ast.Optimizer;
+import com.krolang.compiler.core.ast.Output;
+import com.krolang.compiler.core.ast.Parser;
+import com.krolang.compiler.core.ast.Resolver;
+import com.krolang.compiler.core.ast.Statement;
+import com.krolang.compiler.core.ast.TypeChecker;
+import com.krolang.compiler.core.closure.ClosureInterpreter;
+import com.krolang.compiler.core.jvm.JvmEngine;
+import com.krolang.compiler.core.lox.Lexer;
+import com.krolang.compiler.core.node.NodeEngine;
+import com.krolang.compiler.core.vm.BytecodeCompiler;
+import com.krolang.compiler.core.vm.Chunk;
+import com.krolang.compiler.core.vm.VirtualMachine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running the runnable {@code examples/} programs scaled up on every engine, from the checked
+ * and optimised statements as {@link Compiler#compile()} does: {@code run} includes what an
+ * engine compiles, {@code precompiledVm} runs a chunk compiled once. Run from the project root.
+ *
+ * @author autonu.kro
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+
+    private static final List<String> EXAMPLES = List.of("examples/var_decl.kro", "examples/bool_expr.kro");
+    private static final int COPIES = 5_000;
+
+    @Benchmark
+    public void run(Engine engine) {
+        switch (engine.backend) {
+            case TREE -> new Interpreter(engine.statements, new Environment(), engine.output).interpret();
+            case VM -> new VirtualMachine(engine.output).run(new BytecodeCompiler().compile(engine.statements));
+            case JVM -> new JvmEngine(engine.output).run(engine.statements);
+            case NODE -> new NodeEngine(engine.output).run(engine.statements);
+            case CLOSURE -> new ClosureInterpreter(engine.statements, new Environment(), engine.output).interpret();
+        }
+        engine.output.flush();
+    }
+
+    @Benchmark
+    public void precompiledVm(Precompiled precompiled) {
+        new VirtualMachine(precompiled.output).run(precompiled.chunk);
+        precompiled.output.flush();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Engine {
+
+        @Param({"TREE", "VM", "JVM", "NODE", "CLOSURE"})
+        private Backend backend;
+
+        private List<Statement> statements;
+        private Output output;
+
+        @Setup
+        public void setUp() throws IOException {
+            statements = program();
+            output = Output.of(new DiscardingChannel());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Precompiled {
+
+        private Chunk chunk;
+        private Output output;
+
+        @Setup
+        public void setUp() throws IOException {
+            chunk = new BytecodeCompiler().compile(program());
+            output = Output.of(new DiscardingChannel());
+        }
+    }
+
+    private static List<Statement> program() throws IOException {
+        StringBuilder program = new StringBuilder();
+        for (String example : EXAMPLES) {
+            program.append(Files.readString(Path.of(example))).append('\n');
+        }
+        String source = program.toString().repeat(COPIES);
+        List<Statement> parsed = new Parser(new Lexer(null, "bench").scan(source)).parse();
+        return new Optimizer().optimize(new TypeChecker().check(new Resolver().resolve(parsed)));
+    }
+
+    static final class DiscardingChannel implements WritableByteChannel {
+
+        @Override
+        public int write(ByteBuffer source) {
+            int count = source.remaining();
+            source.position(source.limit());
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
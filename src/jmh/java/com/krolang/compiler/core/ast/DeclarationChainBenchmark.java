@@ -0,0 +1,54 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.lox.Lexer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A chain of declarations each reading the two declared before it. Variables hold values, so a
+ * run costs the same per declaration whatever the depth: the score grows linearly with it. Were
+ * initializers evaluated again on every read, it would grow exponentially.
+ *
+ * @author autonu.kro
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeclarationChainBenchmark {
+
+    @Param({"1000", "4000", "16000"})
+    private int depth;
+
+    private List<Statement> statements;
+
+    @Setup
+    public void setUp() {
+        StringBuilder source = new StringBuilder("Let v0: Num = 1; Let v1: Num = 2;");
+        for (int i = 2; i < depth; i++) {
+            source.append("Let v").append(i).append(": Num = v").append(i - 1).append(" - v").append(i - 2).append(" + 1;");
+        }
+        statements = new Resolver().resolve(new Parser(new Lexer(null, "bench").scan(source.toString())).parse());
+    }
+
+    @Benchmark
+    public Environment run() {
+        Environment environment = new Environment();
+        new Interpreter(statements, environment, null).interpret();
+        return environment;
+    }
+}
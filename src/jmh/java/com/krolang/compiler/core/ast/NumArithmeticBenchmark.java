@@ -0,0 +1,90 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.lox.Lexer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation per run of Num arithmetic, best read with {@code -prof gc}: the type checked tree
+ * on the primitive path of the {@link Interpreter}, the unchecked tree on the same path with
+ * the type checks, and a walk applying the generic operations to boxed values as the
+ * interpreter used to.
+ *
+ * @author autonu.kro
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumArithmeticBenchmark {
+
+    private static final int STATEMENTS = 100;
+
+    private List<Statement> checked;
+    private List<Statement> unchecked;
+    private Environment environment;
+
+    @Setup
+    public void setUp() {
+        StringBuilder source = new StringBuilder("Let a: Num = 1.5; Let b: Num = 2.25; Let c: Num = 0;");
+        for (int i = 0; i < STATEMENTS; i++) {
+            source.append("c = (a * b + a - b) * (a + b) - a * a + b * b - c;");
+        }
+        List<Statement> resolved = new Resolver().resolve(new Parser(new Lexer(null, "bench").scan(source.toString())).parse());
+        unchecked = resolved;
+        checked = new TypeChecker().check(resolved);
+        environment = new Environment();
+    }
+
+    @Benchmark
+    public Environment checked() {
+        new Interpreter(checked, environment, null).interpret();
+        return environment;
+    }
+
+    @Benchmark
+    public Environment unchecked() {
+        new Interpreter(unchecked, environment, null).interpret();
+        return environment;
+    }
+
+    @Benchmark
+    public Environment boxed() {
+        for (Statement statement : unchecked) {
+            switch (statement) {
+                case Statement.VariableDeclaration declaration -> environment.define(declaration.slot(), boxed(declaration.expression()));
+                case Statement.ExpressionStatement expressionStatement -> boxed(expressionStatement.expression());
+                default -> throw new IllegalArgumentException("Invalid statement: " + statement);
+            }
+        }
+        return environment;
+    }
+
+    private Object boxed(Expression expression) {
+        return switch (expression) {
+            case Expression.Literal literal -> Operations.literalOf(literal.literal());
+            case Expression.Grouping grouping -> boxed(grouping.expression());
+            case Expression.Variable variable -> environment.get(variable.slot(), variable.identifier());
+            case Expression.Assignment assignment -> {
+                Object value = boxed(assignment.expression());
+                environment.define(assignment.slot(), value);
+                yield value;
+            }
+            case Expression.Binary binary -> Operations.binaryOf(binary.operator(), boxed(binary.leftExpr()), boxed(binary.rightExpr()));
+            default -> throw new IllegalArgumentException("Invalid expression: " + expression);
+        };
+    }
+}
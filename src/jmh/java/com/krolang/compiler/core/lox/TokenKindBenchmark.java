@@ -0,0 +1,83 @@
+package com.krolang.compiler.core.lox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classifying lexemes with {@link TokenKind#lookup} against the linear scan {@code of()} used to
+ * do. Half of the lexemes are keywords or operators, the others are identifiers and literals
+ * matching no symbol.
+ *
+ * @author autonu.kro
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenKindBenchmark {
+
+    private static final String[] LEXEMES = {
+            "Let", "Print", "->", "==", "+", ";", "True", "Nil", "<=", "{",
+            "counter", "x", "total1", "'text'", "42", "3.14", "Printer", "Lets", "name_2", "value"
+    };
+
+    /**
+     * The lexemes in one line, classified by range like the scanner does
+     */
+    private final String line = String.join("", LEXEMES);
+    private final int[] starts = new int[LEXEMES.length];
+
+    public TokenKindBenchmark() {
+        int start = 0;
+        for (int i = 0; i < LEXEMES.length; i++) {
+            starts[i] = start;
+            start += LEXEMES[i].length();
+        }
+    }
+
+    @Benchmark
+    public void linearOf(Blackhole blackhole) {
+        for (String lexeme : LEXEMES) {
+            blackhole.consume(linearOf(lexeme));
+        }
+    }
+
+    @Benchmark
+    public void of(Blackhole blackhole) {
+        for (String lexeme : LEXEMES) {
+            blackhole.consume(TokenKind.of(lexeme));
+        }
+    }
+
+    @Benchmark
+    public void lookup(Blackhole blackhole) {
+        for (int i = 0; i < LEXEMES.length; i++) {
+            blackhole.consume(TokenKind.lookup(line, starts[i], starts[i] + LEXEMES[i].length()));
+        }
+    }
+
+    /**
+     * {@code TokenKind.of(String)} before the lookup table
+     */
+    private static Optional<TokenKind> linearOf(String symbol) {
+        for (TokenKind kind : TokenKind.values()) {
+            if (kind.symbol().equals(symbol)) {
+                return Optional.of(kind);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -1,19 +1,24 @@
 package com.krolang.compiler;
 
+import com.krolang.compiler.core.Backend;
 import com.krolang.compiler.core.Compiler;
+import com.krolang.compiler.core.ProgramCache;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 import java.io.File;
 import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Locale;
 import java.util.Scanner;
 import java.util.concurrent.Callable;
 
 /**
  * @author autonu.kro
  */
-@Command(name = "kro", mixinStandardHelpOptions = true)
+@Command(name = "kro", mixinStandardHelpOptions = true, subcommands = Main.Build.class)
 public class Main implements Callable<Integer> {
 
     private static final PrintStream OUT = System.out;
@@ -21,6 +26,15 @@ public class Main implements Callable<Integer> {
     @Parameters(index = "0", arity = "0..1")
     private File file;
 
+    @Option(names = "--stream", description = "Overlap lexing, parsing and execution of the file")
+    private boolean stream;
+
+    @Option(names = "--engine", defaultValue = "tree", paramLabel = "tree|vm|jvm|node|closure|arena", description = "Engine running the file: the tree interpreter, the bytecode VM, JVM classes, self specialising nodes, closures or the tree interpreter over a flat arena")
+    private String engine;
+
+    @Option(names = "--no-cache", description = "Always compile the file, without the cache of compiled programs")
+    private boolean noCache;
+
     public static void main(String[] args) {
         new CommandLine(new Main()).execute(args);
     }
@@ -30,7 +44,7 @@ public class Main implements Callable<Integer> {
         if (file == null) {
             Scanner scanner = new Scanner(System.in);
             OUT.println();
-            OUT.println("| Welcome to KroLang -- Version 0.0.1");
+            OUT.println("| Welcome to KroLang -- Version " + Compiler.VERSION);
             OUT.println();
             Compiler compiler = new Compiler();
             while (true) {
@@ -50,11 +64,41 @@ public class Main implements Callable<Integer> {
         }
         String sourceFilePath = file.getAbsolutePath();
         try {
-            Compiler compiler = new Compiler(sourceFilePath);
-            return compiler.compile();
+            Backend backend = Backend.valueOf(engine.toUpperCase(Locale.ROOT));
+            Compiler compiler = new Compiler(sourceFilePath, backend, noCache ? null : ProgramCache.defaultCache());
+            return stream ? compiler.compileStreaming() : compiler.compile();
         } catch (Exception e) {
             OUT.println(e.getMessage());
             return 64;
         }
     }
+
+    /**
+     * {@code kro build file.kro [-o executable]}
+     */
+    @Command(name = "build", mixinStandardHelpOptions = true, description = "Compile a file to a native x86-64 executable")
+    static class Build implements Callable<Integer> {
+
+        @Parameters(index = "0")
+        private File file;
+
+        @Option(names = {"-o", "--output"}, description = "Executable to write, by default the file name without its extension")
+        private File output;
+
+        @Override
+        public Integer call() {
+            String sourceFilePath = file.getAbsolutePath();
+            Path executable = output != null ? output.toPath().toAbsolutePath()
+                    : Path.of(sourceFilePath.replaceFirst("\\.kro$", ""));
+            if (executable.toString().equals(sourceFilePath)) {
+                executable = Path.of(sourceFilePath + ".out");
+            }
+            try {
+                return new Compiler(sourceFilePath).build(executable);
+            } catch (Exception e) {
+                OUT.println(e.getMessage());
+                return 64;
+            }
+        }
+    }
 }
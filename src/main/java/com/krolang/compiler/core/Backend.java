@@ -0,0 +1,36 @@
+package com.krolang.compiler.core;
+
+/**
+ * Execution engines a program can be run with.
+ *
+ * @author autonu.kro
+ */
+public enum Backend {
+    /**
+     * Walk the syntax tree with the {@link com.krolang.compiler.core.ast.Interpreter}
+     */
+    TREE,
+    /**
+     * Compile to bytecode and run it on the {@link com.krolang.compiler.core.vm.VirtualMachine}
+     */
+    VM,
+    /**
+     * Compile to JVM classes run by the {@link com.krolang.compiler.core.jvm.JvmEngine}
+     */
+    JVM,
+    /**
+     * Run a tree of self specialising nodes with the {@link com.krolang.compiler.core.node.NodeEngine}
+     */
+    NODE,
+    /**
+     * Run the tree compiled into closures with the {@link com.krolang.compiler.core.closure.ClosureInterpreter}
+     */
+    CLOSURE,
+    /**
+     * Parse into a flat {@link com.krolang.compiler.core.ast.AstArena} and walk it with the
+     * {@link com.krolang.compiler.core.ast.Interpreter}, for large files: records exist only for
+     * the top level statement being type checked. Streaming runs it like {@link #TREE}, the
+     * statements reach it one at a time.
+     */
+    ARENA
+}
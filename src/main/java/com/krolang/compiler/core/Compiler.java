@@ -1,59 +1,334 @@
 package com.krolang.compiler.core;
 
-import com.krolang.compiler.core.ast.Expression;
+import com.krolang.compiler.core.ast.AstArena;
+import com.krolang.compiler.core.ast.Environment;
 import com.krolang.compiler.core.ast.Interpreter;
+import com.krolang.compiler.core.ast.Optimizer;
+import com.krolang.compiler.core.ast.Output;
 import com.krolang.compiler.core.ast.Parser;
+import com.krolang.compiler.core.ast.Resolver;
 import com.krolang.compiler.core.ast.Statement;
+import com.krolang.compiler.core.ast.TypeChecker;
+import com.krolang.compiler.core.closure.ClosureInterpreter;
+import com.krolang.compiler.core.jvm.JvmEngine;
 import com.krolang.compiler.core.lox.Lexer;
-import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenBuffer;
+import com.krolang.compiler.core.lox.TokenPipe;
+import com.krolang.compiler.core.node.NodeEngine;
+import com.krolang.compiler.core.vm.BytecodeCompiler;
+import com.krolang.compiler.core.vm.VirtualMachine;
+import com.krolang.compiler.core.x64.AssemblyGenerator;
+import com.krolang.compiler.core.x64.Toolchain;
 
 import java.io.IOException;
-import java.io.Serializable;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Stream;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * @author autonu.kro
  */
-public class Compiler implements Serializable {
+public class Compiler {
+
+    public static final String VERSION = "0.0.1";
+
+    private static final int TOKEN_PIPE_CAPACITY = 8192;
+    private static final int STATEMENT_QUEUE_CAPACITY = 256;
+    private static final Statement END_OF_PROGRAM = new Statement.CodeBlock(List.of());
+    /**
+     * Most statements streamed to an engine at once, and how long to wait for them
+     */
+    private static final int SEGMENT_STATEMENTS = 1024;
+    private static final long SEGMENT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
 
     private final Path sourceFilePath;
-    Map<String, Expression> scopeVariables;
+    private final Backend backend;
+    private final ProgramCache cache;
+    private final Output output;
+    private final Resolver resolver;
+    private final TypeChecker typeChecker;
+    private final Environment environment;
 
+    /**
+     * A compiler for the REPL, variables live on from one input to the next.
+     */
     public Compiler() {
         this.sourceFilePath = null;
-        this.scopeVariables = new LinkedHashMap<>();
+        this.backend = Backend.TREE;
+        this.cache = null;
+        this.output = Output.console();
+        this.resolver = new Resolver();
+        this.typeChecker = new TypeChecker();
+        this.environment = new Environment();
     }
 
     public Compiler(String sourceFilePath) {
+        this(sourceFilePath, Backend.TREE);
+    }
+
+    public Compiler(String sourceFilePath, Backend backend) {
+        this(sourceFilePath, backend, null);
+    }
+
+    /**
+     * @param cache of compiled programs, or null to always compile the source
+     */
+    public Compiler(String sourceFilePath, Backend backend, ProgramCache cache) {
+        this(sourceFilePath, backend, cache, Output.standard());
+    }
+
+    /**
+     * @param cache  of compiled programs, or null to always compile the source
+     * @param output receiving what is printed, flushed when a run ends
+     */
+    public Compiler(String sourceFilePath, Backend backend, ProgramCache cache, Output output) {
         this.sourceFilePath = Path.of(sourceFilePath);
+        this.backend = backend;
+        this.cache = cache;
+        this.output = output;
+        this.resolver = null;
+        this.typeChecker = null;
+        this.environment = null;
     }
 
     public int compile() throws IOException {
         if (sourceFilePath == null) {
             throw new IOException("Source file is required");
         }
-        try (Stream<String> lines = Files.lines(sourceFilePath)) {
-            Lexer lexer = new Lexer(lines.toList(), sourceFilePath.toAbsolutePath().toString());
-            List<Token> tokens = lexer.tokenize();
-            Parser parser = new Parser(tokens);
-            List<Statement> statements = parser.parse();
-            Interpreter interpreter = new Interpreter(statements);
-            interpreter.interpret();
-            return 0;
+        if (backend == Backend.ARENA) {
+            return compileArena();
+        }
+        List<Statement> statements = program();
+        try {
+            switch (backend) {
+                case TREE -> new Interpreter(statements, new Environment(), output).interpret();
+                case VM -> new VirtualMachine(output).run(new BytecodeCompiler().compile(statements));
+                case JVM -> new JvmEngine(output).run(statements);
+                case NODE -> new NodeEngine(output).run(statements);
+                case CLOSURE -> new ClosureInterpreter(statements, new Environment(), output).interpret();
+            }
+        } finally {
+            output.flush();
+        }
+        return 0;
+    }
+
+    /**
+     * Compile the source file ahead of time into a native x86-64 executable, nothing is run.
+     */
+    public int build(Path output) throws IOException {
+        if (sourceFilePath == null) {
+            throw new IOException("Source file is required");
         }
+        List<Statement> statements = program();
+        new Toolchain().link(new AssemblyGenerator().generate(statements), output);
+        return 0;
+    }
+
+    /**
+     * Compile and run the source file with lexing, parsing and interpretation overlapped. The
+     * lexer and the parser each run on a virtual thread, connected by a bounded token pipe, and
+     * the calling thread runs the top level statements as soon as they are parsed, in segments of
+     * the ones parsed meanwhile so the VM and the JVM engine compile many at once. Unlike
+     * {@link #compile()}, the statements before a syntax error are executed.
+     */
+    public int compileStreaming() throws IOException {
+        if (sourceFilePath == null) {
+            throw new IOException("Source file is required");
+        }
+        TokenPipe tokens = new TokenPipe(sourceFilePath.toAbsolutePath().toString(), TOKEN_PIPE_CAPACITY);
+        BlockingQueue<Statement> statements = new ArrayBlockingQueue<>(STATEMENT_QUEUE_CAPACITY);
+        AtomicReference<Throwable> parseFailure = new AtomicReference<>();
+        Thread lexerThread = Thread.ofVirtual().name("kro-lexer").start(() -> {
+            try {
+                Lexer.scan(sourceFilePath, tokens);
+            } catch (Throwable e) {
+                tokens.fail(e);
+            }
+        });
+        Thread parserThread = Thread.ofVirtual().name("kro-parser").start(() -> {
+            try {
+                new Parser(tokens).parse(statement -> {
+                    try {
+                        statements.put(statement);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CompilationError("Parsing interrupted");
+                    }
+                });
+            } catch (Throwable e) {
+                parseFailure.set(e);
+            } finally {
+                tokens.cancel();
+                try {
+                    // Waits for room when the interpreter lags behind, the marker must not be lost
+                    statements.put(END_OF_PROGRAM);
+                } catch (InterruptedException e) {
+                    // The interpreter stopped and no longer takes statements
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        try {
+            Resolver streamResolver = new Resolver();
+            TypeChecker streamChecker = new TypeChecker();
+            Optimizer optimizer = new Optimizer();
+            Interpreter interpreter = new Interpreter(List.of(), new Environment(), output);
+            VirtualMachine virtualMachine = new VirtualMachine(output);
+            JvmEngine jvmEngine = new JvmEngine(output);
+            NodeEngine nodeEngine = new NodeEngine(output);
+            ClosureInterpreter closureInterpreter = new ClosureInterpreter(List.of(), new Environment(), output);
+            // Compiling a segment costs the same for one statement or many, wait a little for more
+            boolean compiled = backend == Backend.VM || backend == Backend.JVM;
+            final List<Statement> segment = new ArrayList<>(SEGMENT_STATEMENTS);
+            final List<Statement> optimized = new ArrayList<>(SEGMENT_STATEMENTS);
+            boolean ended = false;
+            while (!ended) {
+                ended = nextSegment(statements, segment, compiled);
+                RuntimeException checkFailure = null;
+                for (Statement statement : segment) {
+                    try {
+                        optimized.add(optimizer.optimize(streamChecker.check(streamResolver.resolve(statement))));
+                    } catch (RuntimeException e) {
+                        // The statements before it run first, as they would one at a time
+                        checkFailure = e;
+                        break;
+                    }
+                }
+                if (!optimized.isEmpty()) {
+                    switch (backend) {
+                        case TREE, ARENA -> optimized.forEach(interpreter::execute);
+                        case VM -> virtualMachine.run(new BytecodeCompiler().compile(optimized));
+                        case JVM -> jvmEngine.run(optimized);
+                        case NODE -> nodeEngine.run(optimized);
+                        case CLOSURE -> optimized.forEach(closureInterpreter::execute);
+                    }
+                }
+                if (checkFailure != null) {
+                    throw checkFailure;
+                }
+                segment.clear();
+                optimized.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompilationError("Compilation interrupted");
+        } finally {
+            output.flush();
+            parserThread.interrupt();
+            statements.clear();
+            joinQuietly(parserThread);
+            joinQuietly(lexerThread);
+        }
+        Throwable failure = parseFailure.get();
+        if (failure instanceof UncheckedIOException ioFailure) {
+            throw ioFailure.getCause();
+        }
+        if (failure instanceof RuntimeException runtimeFailure) {
+            throw runtimeFailure;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        return 0;
     }
 
     public void compile(String input) {
         Lexer lexer = new Lexer(null, "'<CLI>'");
-        List<Token> tokens = lexer.tokenize(input);
+        TokenBuffer tokens = lexer.scan(input);
         Parser parser = new Parser(tokens);
-        List<Statement> statements = parser.parse();
-        Interpreter interpreter = new Interpreter(statements);
-        interpreter.interpret();
+        List<Statement> statements = new Optimizer().optimize(typeChecker.check(resolver.resolve(parser.parse())));
+        Interpreter interpreter = new Interpreter(statements, environment, output);
+        try {
+            interpreter.interpret();
+        } catch (RuntimeException e) {
+            // The statements after the failure did not run, the checked types may not hold
+            typeChecker.forget();
+            throw e;
+        }
+    }
+
+    /**
+     * Gives the resolved and optimised statements of the source file, from the cache when the
+     * file did not change since it was cached.
+     */
+    private List<Statement> program() throws IOException {
+        if (cache == null) {
+            return compileProgram();
+        }
+        String key = cache.key(sourceFilePath);
+        Optional<List<Statement>> cached = cache.load(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        List<Statement> statements = compileProgram();
+        cache.store(key, statements);
+        return statements;
+    }
+
+    private List<Statement> compileProgram() throws IOException {
+        TokenBuffer tokens = Lexer.scan(sourceFilePath);
+        List<Statement> statements = Parser.parse(tokens, ForkJoinPool.commonPool());
+        return new Optimizer().optimize(new TypeChecker().check(new Resolver().resolve(statements)));
+    }
+
+    /**
+     * Run the source file from its arena, without the cache: it holds records. The type checker
+     * sees one top level statement at a time, as a record dropped once checked, so a syntax or
+     * type error is still reported before anything runs.
+     */
+    private int compileArena() throws IOException {
+        AstArena arena = new Resolver().resolve(AstArena.parse(Lexer.scan(sourceFilePath)));
+        TypeChecker checker = new TypeChecker();
+        for (int i = 0; i < arena.statementCount(); i++) {
+            checker.check(arena.toStatement(arena.statement(i)));
+        }
+        try {
+            new Interpreter(arena, new Environment(), output).interpret();
+        } finally {
+            output.flush();
+        }
+        return 0;
+    }
+
+    /**
+     * Take the next statements into {@code segment}, at least one and at most
+     * {@link #SEGMENT_STATEMENTS}. Past the first it takes the ones already parsed, and when
+     * {@code wait} the ones parsed within {@link #SEGMENT_NANOS} of it.
+     *
+     * @return whether the program ended, the end marker is not added
+     */
+    private static boolean nextSegment(BlockingQueue<Statement> statements, List<Statement> segment, boolean wait) throws InterruptedException {
+        segment.add(statements.take());
+        long deadline = System.nanoTime() + SEGMENT_NANOS;
+        statements.drainTo(segment, SEGMENT_STATEMENTS - segment.size());
+        while (wait && segment.size() < SEGMENT_STATEMENTS && segment.getLast() != END_OF_PROGRAM) {
+            Statement statement = statements.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (statement == null) {
+                break;
+            }
+            segment.add(statement);
+            statements.drainTo(segment, SEGMENT_STATEMENTS - segment.size());
+        }
+        if (segment.getLast() == END_OF_PROGRAM) {
+            segment.removeLast();
+            return true;
+        }
+        return false;
+    }
+
+    private static void joinQuietly(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
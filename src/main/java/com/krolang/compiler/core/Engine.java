@@ -0,0 +1,40 @@
+package com.krolang.compiler.core;
+
+import com.krolang.compiler.core.ast.Output;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Entry point for embedding KroLang. An engine holds no program state, so a single instance can
+ * be shared by any number of platform or virtual threads. Every {@link Session} it opens has its
+ * own variables, sessions never see each other.
+ *
+ * @author autonu.kro
+ */
+public final class Engine {
+
+    private final AtomicLong sessions = new AtomicLong();
+
+    /**
+     * Open a session printing to {@link System#out}, its variables live on from one evaluation to
+     * the next.
+     */
+    public Session openSession() {
+        return openSession(Output.standard());
+    }
+
+    /**
+     * Open a session printing to {@code output}, for example {@link Output#of(Appendable)} to
+     * capture what the programs print.
+     */
+    public Session openSession(Output output) {
+        return new Session("'<session-" + sessions.incrementAndGet() + ">'", output);
+    }
+
+    /**
+     * Evaluate a program in a session of its own.
+     */
+    public void eval(String source) {
+        openSession().eval(source);
+    }
+}
@@ -0,0 +1,184 @@
+package com.krolang.compiler.core;
+
+import com.krolang.compiler.core.ast.AstCodec;
+import com.krolang.compiler.core.ast.Statement;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+
+/**
+ * On disk cache of compiled programs, so running an unchanged file skips the lexer, the parser,
+ * the resolver and the optimizer. An entry is its key, then the CRC-32C of the rest and the
+ * resolved and optimised statements encoded by the {@link AstCodec}. The key is a hash of the compiler version, the
+ * source path and the source bytes, so any change to either gives a new entry.
+ * <p>
+ * Entries are read straight from a memory mapped file. Reading an entry marks it as used, and
+ * when the cache outgrows its size bound the least recently used entries are deleted. Entries are
+ * written to a temporary file first and moved in place, so concurrent runs never see half an
+ * entry; an entry that can not be read or fails its checksum is deleted and treated as missing.
+ *
+ * @author autonu.kro
+ */
+public final class ProgramCache {
+
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    private static final String EXTENSION = ".kroc";
+    /**
+     * Length of a key, a hex SHA-256, which also starts the entry
+     */
+    private static final int KEY_LENGTH = 64;
+    /**
+     * Bytes of the source file mapped at a time while hashing it
+     */
+    private static final int WINDOW_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final long maxBytes;
+
+    public ProgramCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The cache of the user, in {@code $XDG_CACHE_HOME/kro} or else {@code ~/.cache/kro}
+     */
+    public static ProgramCache defaultCache() {
+        String cacheHome = System.getenv("XDG_CACHE_HOME");
+        Path base = cacheHome != null && !cacheHome.isBlank()
+                ? Path.of(cacheHome) : Path.of(System.getProperty("user.home"), ".cache");
+        return new ProgramCache(base.resolve("kro"), DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Gives the key of a source file, to look it up and to store it. The file is hashed a mapped
+     * window at a time, it is never held in memory as a whole.
+     */
+    public String key(Path sourceFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        String sourcePath = sourceFile.toAbsolutePath().toString();
+        digest.update((Compiler.VERSION + '\0' + AstCodec.VERSION + '\0' + sourcePath + '\0').getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(sourceFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position = position + WINDOW_SIZE) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, WINDOW_SIZE)));
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public Optional<List<Statement>> load(String key) {
+        Path entry = directory.resolve(key + EXTENSION);
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] storedKey = new byte[KEY_LENGTH];
+            buffer.get(storedKey);
+            if (!key.equals(new String(storedKey, StandardCharsets.US_ASCII))) {
+                throw new IllegalArgumentException("Cache entry of another program");
+            }
+            int checksum = buffer.getInt();
+            if (checksum != checksum(buffer.slice())) {
+                throw new IllegalArgumentException("Corrupt cache entry");
+            }
+            List<Statement> statements = AstCodec.decode(buffer);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(statements);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(entry);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Store a program, then evict entries until the cache fits its size bound. A program that can
+     * not be stored is simply not cached.
+     */
+    public void store(String key, List<Statement> statements) {
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, key, ".tmp");
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                byte[] encoded = AstCodec.encode(statements);
+                out.write(key.getBytes(StandardCharsets.US_ASCII));
+                out.write(ByteBuffer.allocate(Integer.BYTES).putInt(checksum(ByteBuffer.wrap(encoded))).array());
+                out.write(encoded);
+            }
+            Files.move(temporary, directory.resolve(key + EXTENSION), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evict();
+        } catch (IOException | RuntimeException e) {
+            if (temporary != null) {
+                deleteQuietly(temporary);
+            }
+        }
+    }
+
+    private void evict() throws IOException {
+        record Entry(Path path, long size, FileTime lastUsed) {
+        }
+        List<Entry> entries = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path path : paths) {
+                try {
+                    Entry entry = new Entry(path, Files.size(path), Files.getLastModifiedTime(path));
+                    entries.add(entry);
+                    total = total + entry.size();
+                } catch (NoSuchFileException e) {
+                    // Evicted by another run meanwhile
+                }
+            }
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        entries.sort(Comparator.comparing(Entry::lastUsed));
+        for (Entry entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            deleteQuietly(entry.path());
+            total = total - entry.size();
+        }
+    }
+
+    private static int checksum(ByteBuffer encoded) {
+        CRC32C crc = new CRC32C();
+        crc.update(encoded);
+        return (int) crc.getValue();
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Left for the next eviction
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.krolang.compiler.core;
+
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Interpreter;
+import com.krolang.compiler.core.ast.Optimizer;
+import com.krolang.compiler.core.ast.Output;
+import com.krolang.compiler.core.ast.Parser;
+import com.krolang.compiler.core.ast.Resolver;
+import com.krolang.compiler.core.ast.Statement;
+import com.krolang.compiler.core.ast.TypeChecker;
+import com.krolang.compiler.core.lox.Lexer;
+import com.krolang.compiler.core.lox.TokenBuffer;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Isolated evaluation state opened by an {@link Engine}. Sessions share nothing, so separate
+ * sessions run fully in parallel. Evaluations of one session are serialised, a session may still
+ * be handed between threads.
+ *
+ * @author autonu.kro
+ */
+public final class Session {
+
+    private final String name;
+    private final Output output;
+    private final Resolver resolver = new Resolver();
+    private final TypeChecker typeChecker = new TypeChecker();
+    private final Environment environment = new Environment();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    Session(String name, Output output) {
+        this.name = name;
+        this.output = output;
+    }
+
+    /**
+     * Evaluate a program, which may span several lines and contain comments. Variables defined by
+     * earlier evaluations of this session are visible. What the program prints is flushed to the
+     * output of the session before this returns.
+     */
+    public void eval(String source) {
+        Lexer lexer = new Lexer(source.lines().toList(), name);
+        TokenBuffer tokens = lexer.scan();
+        lock.lock();
+        try {
+            List<Statement> statements = new Optimizer().optimize(typeChecker.check(resolver.resolve(new Parser(tokens).parse())));
+            try {
+                new Interpreter(statements, environment, output).interpret();
+            } catch (RuntimeException e) {
+                // The statements after the failure did not run, the checked types may not hold
+                typeChecker.forget();
+                throw e;
+            }
+        } finally {
+            try {
+                output.flush();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+}
@@ -0,0 +1,264 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.SyntaxError;
+import com.krolang.compiler.core.lox.TokenBuffer;
+import com.krolang.compiler.core.lox.TokenKind;
+
+import java.util.Arrays;
+
+/**
+ * Parser filling an {@link AstArena}, following the grammar of the {@link Parser} step by step so
+ * both give the same tree and fail on the same token. Expressions are parsed by the same
+ * precedence climbing, with the operands and pending operators on {@code int} stacks.
+ *
+ * @author autonu.kro
+ */
+final class ArenaParser {
+
+    private static final int NONE = 0;
+    private static final int BINARY = 1;
+    private static final int PREFIX = 2;
+    private static final int GROUPING = 3;
+    private static final int ASSIGNMENT = 4;
+
+    private final TokenBuffer tokens;
+    private final TokenBuffer.Cursor cursor;
+    private final AstArena arena;
+
+    private int[] operands = new int[16];
+    private int operandCount;
+    /**
+     * Pending operators: their kind, token and binding power, or for a grouping and an
+     * assignment the first node of the expression they wait for
+     */
+    private int[] pendingKinds = new int[16];
+    private int[] pendingTokens = new int[16];
+    private int[] pendingValues = new int[16];
+    private int pendingCount;
+    /**
+     * Statements of the code blocks being parsed
+     */
+    private int[] children = new int[16];
+    private int childCount;
+
+    ArenaParser(TokenBuffer tokens) {
+        this.tokens = tokens;
+        this.cursor = tokens.cursor();
+        this.arena = new AstArena(tokens);
+    }
+
+    AstArena parse() {
+        while (!cursor.isAtEnd()) {
+            arena.addStatement(declaration());
+        }
+        return arena;
+    }
+
+    private int declaration() {
+        if (!match(TokenKind.LET)) {
+            return statement();
+        }
+        return variableDeclaration();
+    }
+
+    private int variableDeclaration() {
+        if (!match(TokenKind.IDENTIFIER)) {
+            throw new SyntaxError(cursor.peek(), TokenKind.IDENTIFIER.symbol());
+        }
+        int identifier = previous();
+        if (!match(TokenKind.COL)) {
+            throw new SyntaxError(cursor.peek(), TokenKind.COL.symbol());
+        }
+        if (!match(TokenKind.NUM) && !match(TokenKind.STR) && !match(TokenKind.BOOL)) {
+            throw new SyntaxError(cursor.peek(), "<type>");
+        }
+        Type type = Type.of(tokens.kind(previous()));
+        int expression;
+        if (match(TokenKind.ASSIGN)) {
+            expression = expression();
+        } else {
+            expression = arena.add(AstArena.NodeKind.NIL, identifier, -1, -1);
+        }
+        if (!match(TokenKind.SEMI)) {
+            throw new SyntaxError(cursor.peek(), TokenKind.SEMI.symbol());
+        }
+        if (tokens.content(identifier) == null) {
+            throw new SyntaxError(cursor.peek(), TokenKind.IDENTIFIER.symbol());
+        }
+        return arena.add(AstArena.NodeKind.VARIABLE_DECLARATION, type, identifier, expression, Expression.UNRESOLVED);
+    }
+
+    private int statement() {
+        if (match(TokenKind.PRINT)) {
+            if (!match(TokenKind.RIGHT_ARROW)) {
+                throw new SyntaxError(cursor.peek(), TokenKind.RIGHT_ARROW.symbol());
+            }
+            return terminated(AstArena.NodeKind.PRINT_STATEMENT);
+        }
+        if (match(TokenKind.OPEN_CURLY)) {
+            return codeBlock();
+        }
+        return terminated(AstArena.NodeKind.EXPRESSION_STATEMENT);
+    }
+
+    private int codeBlock() {
+        int from = childCount;
+        while (!check(TokenKind.CLOSE_CURLY) && !cursor.isAtEnd()) {
+            int statement = declaration();
+            if (childCount == children.length) {
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+            children[childCount++] = statement;
+        }
+        if (!match(TokenKind.CLOSE_CURLY)) {
+            throw new SyntaxError(cursor.peek(), TokenKind.CLOSE_PARENTHESIS.symbol());
+        }
+        int block = arena.addBlock(children, from, childCount - from);
+        childCount = from;
+        return block;
+    }
+
+    private int terminated(AstArena.NodeKind kind) {
+        int expression = expression();
+        if (!match(TokenKind.SEMI)) {
+            throw new SyntaxError(cursor.peek(), TokenKind.SEMI.symbol());
+        }
+        return arena.add(kind, -1, expression, -1);
+    }
+
+    /**
+     * Precedence climbing as in {@link Parser}. The variable an assignment writes is dropped from
+     * the arena, its token names the variable.
+     */
+    private int expression() {
+        int start = arena.size();
+        int pendingBase = pendingCount;
+        while (true) {
+            while (true) {
+                if (check(TokenKind.NOT) || check(TokenKind.MINUS)) {
+                    cursor.advance();
+                    push(PREFIX, previous(), 0);
+                } else if (check(TokenKind.OPEN_PARENTHESIS)) {
+                    cursor.advance();
+                    push(GROUPING, previous(), arena.size());
+                } else {
+                    break;
+                }
+            }
+            pushOperand(primary());
+            while (true) {
+                while (top(pendingBase) == PREFIX) {
+                    pendingCount--;
+                    pushOperand(arena.add(AstArena.NodeKind.UNARY, pendingTokens[pendingCount], popOperand(), -1));
+                }
+                int bindingPower = cursor.isAtEnd() ? 0 : Parser.bindingPowerOf(cursor.kind());
+                if (bindingPower > 0) {
+                    while (top(pendingBase) == BINARY && pendingValues[pendingCount - 1] >= bindingPower) {
+                        reduceBinary();
+                    }
+                    cursor.advance();
+                    push(BINARY, previous(), bindingPower);
+                    break;
+                }
+                while (top(pendingBase) == BINARY) {
+                    reduceBinary();
+                }
+                if (check(TokenKind.ASSIGN)) {
+                    if (arena.kind(operands[operandCount - 1]) != AstArena.NodeKind.VARIABLE || !cursor.previousHasContent()) {
+                        throw new SyntaxError(cursor.peek(), TokenKind.IDENTIFIER.symbol());
+                    }
+                    int identifier = previous();
+                    cursor.advance();
+                    popOperand();
+                    int discarded = top(pendingBase) == NONE ? start : pendingValues[pendingCount - 1];
+                    arena.truncate(discarded);
+                    push(ASSIGNMENT, identifier, discarded);
+                    break;
+                }
+                while (top(pendingBase) == ASSIGNMENT) {
+                    pendingCount--;
+                    pushOperand(arena.add(AstArena.NodeKind.ASSIGNMENT, pendingTokens[pendingCount], popOperand(), Expression.UNRESOLVED));
+                }
+                if (top(pendingBase) == NONE) {
+                    return popOperand();
+                }
+                if (!match(TokenKind.CLOSE_PARENTHESIS)) {
+                    throw new SyntaxError(cursor.peek(), TokenKind.CLOSE_PARENTHESIS.symbol());
+                }
+                pendingCount--;
+                pushOperand(arena.add(AstArena.NodeKind.GROUPING, pendingTokens[pendingCount], popOperand(), -1));
+            }
+        }
+    }
+
+    private int primary() {
+        if (!cursor.isAtEnd()) {
+            switch (cursor.kind()) {
+                case NUM_LIT, STR_LIT, TRUE, FALSE, NIL -> {
+                    cursor.advance();
+                    return arena.add(AstArena.NodeKind.LITERAL, previous(), -1, -1);
+                }
+                case IDENTIFIER -> {
+                    cursor.advance();
+                    return arena.add(AstArena.NodeKind.VARIABLE, previous(), Expression.UNRESOLVED, -1);
+                }
+                default -> {
+                }
+            }
+        }
+        throw new SyntaxError(cursor.peek(), TokenKind.OPEN_PARENTHESIS.symbol());
+    }
+
+    private void reduceBinary() {
+        int right = popOperand();
+        int left = popOperand();
+        pendingCount--;
+        pushOperand(arena.add(AstArena.NodeKind.BINARY, pendingTokens[pendingCount], left, right));
+    }
+
+    private int top(int pendingBase) {
+        return pendingCount == pendingBase ? NONE : pendingKinds[pendingCount - 1];
+    }
+
+    private void push(int kind, int token, int value) {
+        if (pendingCount == pendingKinds.length) {
+            pendingKinds = Arrays.copyOf(pendingKinds, pendingCount * 2);
+            pendingTokens = Arrays.copyOf(pendingTokens, pendingCount * 2);
+            pendingValues = Arrays.copyOf(pendingValues, pendingCount * 2);
+        }
+        pendingKinds[pendingCount] = kind;
+        pendingTokens[pendingCount] = token;
+        pendingValues[pendingCount] = value;
+        pendingCount++;
+    }
+
+    private void pushOperand(int node) {
+        if (operandCount == operands.length) {
+            operands = Arrays.copyOf(operands, operandCount * 2);
+        }
+        operands[operandCount++] = node;
+    }
+
+    private int popOperand() {
+        return operands[--operandCount];
+    }
+
+    /**
+     * Gives the index of the most recently consumed token
+     */
+    private int previous() {
+        return cursor.position() - 1;
+    }
+
+    private boolean check(TokenKind tokenKind) {
+        return !cursor.isAtEnd() && cursor.kind() == tokenKind;
+    }
+
+    private boolean match(TokenKind tokenKind) {
+        if (check(tokenKind)) {
+            cursor.advance();
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,329 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenBuffer;
+import com.krolang.compiler.core.lox.TokenKind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Compact syntax tree stored in flat {@code int} arrays, the counterpart of the
+ * {@link Statement} and {@link Expression} records for large programs. A node is an index: its
+ * kind, token and two operands sit next to each other in one array, its tokens are indices into
+ * the {@link TokenBuffer} it was parsed from, and the statements of a code block are a range of
+ * a second array. A program of any size is a handful of objects.
+ * <p>
+ * Nodes are stored in the order they are completed, children before their parent and left before
+ * right, so a pass caring only about some kinds of node can scan the array from start to end,
+ * and the nodes of an expression are a range in postfix order, walked without recursion.
+ * The accessors below read the nodes of the kinds they name, their result is undefined for
+ * other kinds.
+ *
+ * @author autonu.kro
+ */
+public final class AstArena {
+
+    private static final NodeKind[] KINDS = NodeKind.values();
+    private static final Type[] TYPES = Type.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final int HEADER = 0;
+    private static final int TOKEN = 1;
+    private static final int FIRST = 2;
+    private static final int SECOND = 3;
+    private static final int STRIDE = 4;
+
+    private final TokenBuffer tokens;
+    /**
+     * {@link #STRIDE} ints per node: the kind and type packed in a header, the token, and two
+     * operands whose meaning depends on the kind
+     */
+    private int[] nodes = new int[INITIAL_CAPACITY * STRIDE];
+    private int size;
+    /**
+     * Statements of the code blocks, every block owns a range
+     */
+    private int[] blocks = new int[INITIAL_CAPACITY];
+    private int blocksSize;
+    private int[] statements = new int[INITIAL_CAPACITY];
+    private int statementCount;
+
+    AstArena(TokenBuffer tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Parse a program into an arena. The statements and syntax errors are the ones of
+     * {@link Parser#parse()}.
+     */
+    public static AstArena parse(TokenBuffer tokens) {
+        return new ArenaParser(tokens).parse();
+    }
+
+    public enum NodeKind {
+        /**
+         * {@link #expression}
+         */
+        EXPRESSION_STATEMENT,
+        /**
+         * {@link #expression}
+         */
+        PRINT_STATEMENT,
+        /**
+         * {@link #token} the identifier, {@link #type}, {@link #expression}, {@link #slot}
+         */
+        VARIABLE_DECLARATION,
+        /**
+         * {@link #childCount}, {@link #child}
+         */
+        CODE_BLOCK,
+        /**
+         * {@link #token} the literal
+         */
+        LITERAL,
+        /**
+         * Value of a declaration without initializer, {@link #token} its identifier
+         */
+        NIL,
+        /**
+         * {@link #token} the operator, {@link #expression} the operand
+         */
+        UNARY,
+        /**
+         * {@link #token} the operator, {@link #left}, {@link #right}, {@link #type} the operands
+         */
+        BINARY,
+        /**
+         * {@link #expression}, -1 if empty
+         */
+        GROUPING,
+        /**
+         * {@link #token} the identifier, {@link #slot}
+         */
+        VARIABLE,
+        /**
+         * {@link #token} the identifier, {@link #expression}, {@link #slot}
+         */
+        ASSIGNMENT
+    }
+
+    public TokenBuffer tokens() {
+        return tokens;
+    }
+
+    /**
+     * Number of nodes, every index below it is a node
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of top level statements
+     */
+    public int statementCount() {
+        return statementCount;
+    }
+
+    /**
+     * Gives the node of a top level statement
+     */
+    public int statement(int index) {
+        return statements[index];
+    }
+
+    public NodeKind kind(int node) {
+        return KINDS[nodes[node * STRIDE + HEADER] & 0xFF];
+    }
+
+    public Type type(int node) {
+        return TYPES[nodes[node * STRIDE + HEADER] >>> 8];
+    }
+
+    /**
+     * Gives the index of the node's token in {@link #tokens()}
+     */
+    public int token(int node) {
+        return nodes[node * STRIDE + TOKEN];
+    }
+
+    /**
+     * Gives the kind of the node's token, the operator of a unary or binary node
+     */
+    public TokenKind operator(int node) {
+        return tokens.kind(token(node));
+    }
+
+    /**
+     * Gives the content of the node's token, the name of an identifier
+     */
+    public String content(int node) {
+        return tokens.content(token(node));
+    }
+
+    /**
+     * Materialise the node's token
+     */
+    public Token tokenOf(int node) {
+        return tokens.token(token(node));
+    }
+
+    public int expression(int node) {
+        return nodes[node * STRIDE + FIRST];
+    }
+
+    public int left(int node) {
+        return nodes[node * STRIDE + FIRST];
+    }
+
+    public int right(int node) {
+        return nodes[node * STRIDE + SECOND];
+    }
+
+    /**
+     * Gives the slot of a variable, assignment or declaration, {@link Expression#UNRESOLVED}
+     * until a {@link Resolver} resolved the arena
+     */
+    public int slot(int node) {
+        return nodes[node * STRIDE + (kind(node) == NodeKind.VARIABLE ? FIRST : SECOND)];
+    }
+
+    /**
+     * Gives the first node of the expression {@code node}, its nodes are the ones from it to
+     * {@code node}
+     */
+    public int first(int node) {
+        int first = node;
+        while (true) {
+            switch (kind(first)) {
+                case UNARY, BINARY, ASSIGNMENT -> first = expression(first);
+                case GROUPING -> {
+                    if (expression(first) < 0) {
+                        return first;
+                    }
+                    first = expression(first);
+                }
+                default -> {
+                    return first;
+                }
+            }
+        }
+    }
+
+    public int childCount(int block) {
+        return nodes[block * STRIDE + SECOND];
+    }
+
+    public int child(int block, int index) {
+        return blocks[nodes[block * STRIDE + FIRST] + index];
+    }
+
+    /**
+     * Materialise the statements as records, for the passes working on them.
+     */
+    public List<Statement> toStatements() {
+        final List<Statement> result = new ArrayList<>(statementCount);
+        for (int i = 0; i < statementCount; i++) {
+            result.add(toStatement(statements[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Materialise one statement node as a record, children included
+     */
+    public Statement toStatement(int node) {
+        return switch (kind(node)) {
+            case EXPRESSION_STATEMENT -> new Statement.ExpressionStatement(toExpression(expression(node)));
+            case PRINT_STATEMENT -> new Statement.PrintStatement(toExpression(expression(node)));
+            case VARIABLE_DECLARATION -> new Statement.VariableDeclaration(tokenOf(node), type(node), toExpression(expression(node)), slot(node));
+            case CODE_BLOCK -> {
+                final List<Statement> children = new ArrayList<>(childCount(node));
+                for (int i = 0; i < childCount(node); i++) {
+                    children.add(toStatement(child(node, i)));
+                }
+                yield new Statement.CodeBlock(children);
+            }
+            default -> throw new IllegalArgumentException("Invalid statement node: " + kind(node));
+        };
+    }
+
+    /**
+     * Build the records of an expression from its nodes in the order they are stored, on a stack
+     * of the operands built so far
+     */
+    private Expression toExpression(int node) {
+        Expression[] operands = new Expression[INITIAL_CAPACITY];
+        int count = 0;
+        for (int current = first(node); current <= node; current++) {
+            if (count == operands.length) {
+                operands = Arrays.copyOf(operands, count * 2);
+            }
+            Expression expression = switch (kind(current)) {
+                case LITERAL -> new Expression.Literal(tokenOf(current));
+                case NIL -> new Expression.Literal(new Token(TokenKind.NIL, Optional.empty(), tokens.sourcePath(), tokens.line(token(current))));
+                case UNARY -> new Expression.Unary(tokenOf(current), operands[--count]);
+                case BINARY -> {
+                    Expression right = operands[--count];
+                    yield new Expression.Binary(operands[--count], tokenOf(current), right, type(current));
+                }
+                case GROUPING -> new Expression.Grouping(expression(current) < 0 ? null : operands[--count]);
+                case VARIABLE -> new Expression.Variable(tokenOf(current), slot(current));
+                case ASSIGNMENT -> new Expression.Assignment(tokenOf(current), operands[--count], slot(current));
+                default -> throw new IllegalArgumentException("Invalid expression node: " + kind(current));
+            };
+            operands[count++] = expression;
+        }
+        return operands[0];
+    }
+
+    int add(NodeKind kind, int token, int first, int second) {
+        return add(kind, Type.ANY, token, first, second);
+    }
+
+    int add(NodeKind kind, Type type, int token, int first, int second) {
+        if ((size + 1) * STRIDE > nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+        }
+        int base = size * STRIDE;
+        nodes[base + HEADER] = kind.ordinal() | type.ordinal() << 8;
+        nodes[base + TOKEN] = token;
+        nodes[base + FIRST] = first;
+        nodes[base + SECOND] = second;
+        return size++;
+    }
+
+    /**
+     * Drop the nodes from {@code node} on, the ones of an expression the parser discarded
+     */
+    void truncate(int node) {
+        size = node;
+    }
+
+    /**
+     * Add a code block of {@code count} statements from {@code statements[from]}
+     */
+    int addBlock(int[] children, int from, int count) {
+        if (blocksSize + count > blocks.length) {
+            blocks = Arrays.copyOf(blocks, Math.max(blocks.length * 2, blocksSize + count));
+        }
+        System.arraycopy(children, from, blocks, blocksSize, count);
+        int block = add(NodeKind.CODE_BLOCK, -1, blocksSize, count);
+        blocksSize += count;
+        return block;
+    }
+
+    void addStatement(int node) {
+        if (statementCount == statements.length) {
+            statements = Arrays.copyOf(statements, statementCount * 2);
+        }
+        statements[statementCount++] = node;
+    }
+
+    void resolve(int node, int slot) {
+        nodes[node * STRIDE + (kind(node) == NodeKind.VARIABLE ? FIRST : SECOND)] = slot;
+    }
+}
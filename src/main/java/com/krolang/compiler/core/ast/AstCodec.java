@@ -0,0 +1,463 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenKind;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Binary encoding of {@link Statement} trees, to store parsed programs or ship them between
+ * processes. It is versioned, and decoding is a single pass over a {@link ByteBuffer}, which may
+ * be a memory mapped file, without reflection.
+ * <p>
+ * An encoded program is a header, a string table and the statements in prefix order. The nodes of
+ * an expression are in postfix order, operands first, so expressions of any depth are written and
+ * read with a stack instead of recursion. Every string (identifiers, literal contents, string
+ * values and source paths) is stored once in the table and referred to by index, so it is also
+ * decoded once. Numbers are variable length:
+ * <pre>
+ * program    = magic:i32 version:u8 strings:varint utf8* statements:varint statement*
+ * utf8       = length:varint byte*
+ * statement  = tag:u8 fields...
+ * expression = node* end:u8
+ * node       = tag:u8 fields...
+ * token      = kind:u8 line:varint content:varint (0 for none, else index + 1) source:varint
+ * type       = ordinal:u8
+ * </pre>
+ *
+ * @author autonu.kro
+ */
+public final class AstCodec {
+
+    public static final int VERSION = 3;
+
+    private static final int MAGIC = 0x4b415354;
+    private static final TokenKind[] KINDS = TokenKind.values();
+    private static final Type[] TYPES = Type.values();
+
+    private static final byte EXPRESSION_STATEMENT = 1;
+    private static final byte PRINT_STATEMENT = 2;
+    private static final byte VARIABLE_DECLARATION = 3;
+    private static final byte CODE_BLOCK = 4;
+
+    private static final byte NULL = 0;
+    private static final byte LITERAL = 1;
+    private static final byte UNARY = 2;
+    private static final byte BINARY = 3;
+    private static final byte GROUPING = 4;
+    private static final byte VARIABLE = 5;
+    private static final byte ASSIGNMENT = 6;
+    private static final byte VALUE = 7;
+    private static final byte END = 8;
+
+    private static final byte NIL_VALUE = 0;
+    private static final byte NUMBER_VALUE = 1;
+    private static final byte STRING_VALUE = 2;
+    private static final byte TRUE_VALUE = 3;
+    private static final byte FALSE_VALUE = 4;
+
+    private AstCodec() {
+    }
+
+    public static byte[] encode(List<Statement> statements) {
+        return new Encoder().program(statements);
+    }
+
+    /**
+     * Decode a program from the position of {@code buffer} up to its limit.
+     *
+     * @throws IllegalArgumentException if the bytes are not a program of this version
+     */
+    public static List<Statement> decode(ByteBuffer buffer) {
+        try {
+            return new Decoder(buffer.slice()).program();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated or malformed program encoding", e);
+        }
+    }
+
+    private static final class Encoder {
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final Bytes nodes = new Bytes();
+        private final Writing expressions = new Writing();
+
+        byte[] program(List<Statement> statements) {
+            statements(statements);
+            Bytes header = new Bytes();
+            header.int32(MAGIC);
+            header.u8(VERSION);
+            header.varint(strings.size());
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                header.varint(bytes.length);
+                header.write(bytes, 0, bytes.length);
+            }
+            nodes.appendTo(header);
+            return header.toByteArray();
+        }
+
+        private void statements(List<Statement> statements) {
+            nodes.varint(statements.size());
+            for (Statement statement : statements) {
+                statement(statement);
+            }
+        }
+
+        private void statement(Statement statement) {
+            switch (statement) {
+                case Statement.ExpressionStatement expressionStatement -> {
+                    nodes.u8(EXPRESSION_STATEMENT);
+                    expression(expressionStatement.expression());
+                }
+                case Statement.PrintStatement printStatement -> {
+                    nodes.u8(PRINT_STATEMENT);
+                    expression(printStatement.expression());
+                }
+                case Statement.VariableDeclaration declaration -> {
+                    nodes.u8(VARIABLE_DECLARATION);
+                    token(declaration.identifier());
+                    nodes.u8(declaration.type().ordinal());
+                    expression(declaration.expression());
+                    slot(declaration.slot());
+                }
+                case Statement.CodeBlock codeBlock -> {
+                    nodes.u8(CODE_BLOCK);
+                    statements(codeBlock.statements());
+                }
+                default -> throw new IllegalArgumentException("Invalid statement: " + statement);
+            }
+        }
+
+        private void expression(Expression expression) {
+            if (expression == null) {
+                nodes.u8(NULL);
+            } else {
+                expressions.fold(expression);
+            }
+            nodes.u8(END);
+        }
+
+        private void value(Object value) {
+            switch (value) {
+                case null -> nodes.u8(NIL_VALUE);
+                case Double number -> {
+                    nodes.u8(NUMBER_VALUE);
+                    nodes.int64(Double.doubleToRawLongBits(number));
+                }
+                case String string -> {
+                    nodes.u8(STRING_VALUE);
+                    nodes.varint(string(string));
+                }
+                case Boolean bool -> nodes.u8(bool ? TRUE_VALUE : FALSE_VALUE);
+                default -> throw new IllegalArgumentException("Invalid value: " + value);
+            }
+        }
+
+        private void token(Token token) {
+            nodes.u8(token.tokenKind().ordinal());
+            nodes.varint(Math.toIntExact(token.line()));
+            nodes.varint(token.content().map(content -> string(content) + 1).orElse(0));
+            nodes.varint(token.source() == null ? 0 : string(token.source()) + 1);
+        }
+
+        /**
+         * Slots start at {@link Expression#UNRESOLVED}, shifted so they encode as unsigned
+         */
+        private void slot(int slot) {
+            nodes.varint(slot + 1);
+        }
+
+        private int string(String string) {
+            Integer index = indexes.get(string);
+            if (index == null) {
+                index = strings.size();
+                strings.add(string);
+                indexes.put(string, index);
+            }
+            return index;
+        }
+
+        /**
+         * Writes the operands of a node, then its tag and fields
+         */
+        private final class Writing extends ExpressionFold<Void> {
+
+            @Override
+            protected Void literal(Expression.Literal literal) {
+                nodes.u8(LITERAL);
+                token(literal.literal());
+                return null;
+            }
+
+            @Override
+            protected Void variable(Expression.Variable variable) {
+                nodes.u8(VARIABLE);
+                token(variable.identifier());
+                slot(variable.slot());
+                return null;
+            }
+
+            @Override
+            protected Void value(Expression.Value value) {
+                nodes.u8(VALUE);
+                Encoder.this.value(value.value());
+                token(value.token());
+                return null;
+            }
+
+            @Override
+            protected Void unary(Expression.Unary unary, Void right) {
+                nodes.u8(UNARY);
+                token(unary.operator());
+                return null;
+            }
+
+            @Override
+            protected Void binary(Expression.Binary binary, Void left, Void right) {
+                nodes.u8(BINARY);
+                token(binary.operator());
+                nodes.u8(binary.operands().ordinal());
+                return null;
+            }
+
+            @Override
+            protected Void grouping(Expression.Grouping grouping, Void inner) {
+                if (grouping.expression() == null) {
+                    nodes.u8(NULL);
+                }
+                nodes.u8(GROUPING);
+                return null;
+            }
+
+            @Override
+            protected Void assignment(Expression.Assignment assignment, Void value) {
+                nodes.u8(ASSIGNMENT);
+                token(assignment.identifier());
+                slot(assignment.slot());
+                return null;
+            }
+        }
+    }
+
+    private static final class Decoder {
+
+        private final ByteBuffer in;
+        private String[] strings;
+
+        Decoder(ByteBuffer in) {
+            this.in = in;
+        }
+
+        List<Statement> program() {
+            if (in.remaining() < 5 || in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not an encoded program");
+            }
+            int version = in.get() & 0xff;
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported program encoding version: " + version);
+            }
+            strings = new String[count()];
+            for (int i = 0; i < strings.length; i++) {
+                int length = count();
+                strings[i] = new String(bytes(length), StandardCharsets.UTF_8);
+            }
+            List<Statement> statements = statements();
+            if (in.hasRemaining()) {
+                throw new IllegalArgumentException("Trailing bytes after the encoded program");
+            }
+            return statements;
+        }
+
+        private List<Statement> statements() {
+            int size = count();
+            List<Statement> statements = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                statements.add(statement());
+            }
+            return statements;
+        }
+
+        private Statement statement() {
+            byte tag = in.get();
+            return switch (tag) {
+                case EXPRESSION_STATEMENT -> new Statement.ExpressionStatement(expression());
+                case PRINT_STATEMENT -> new Statement.PrintStatement(expression());
+                case VARIABLE_DECLARATION -> {
+                    Token identifier = token();
+                    Type type = type();
+                    Expression expression = expression();
+                    yield new Statement.VariableDeclaration(identifier, type, expression, slot());
+                }
+                case CODE_BLOCK -> new Statement.CodeBlock(statements());
+                default -> throw new IllegalArgumentException("Invalid statement tag: " + tag);
+            };
+        }
+
+        /**
+         * Read the nodes of an expression up to its end tag, every node takes its operands from
+         * the stack of the ones read before it
+         */
+        private Expression expression() {
+            Expression[] operands = new Expression[16];
+            int count = 0;
+            while (true) {
+                byte tag = in.get();
+                if (tag == END) {
+                    if (count != 1) {
+                        throw new IllegalArgumentException("Malformed expression of " + count + " operands");
+                    }
+                    return operands[0];
+                }
+                if (count == operands.length) {
+                    operands = Arrays.copyOf(operands, count * 2);
+                }
+                Expression expression = switch (tag) {
+                    case NULL -> null;
+                    case LITERAL -> new Expression.Literal(token());
+                    case UNARY -> new Expression.Unary(token(), operands[operand(count--)]);
+                    case BINARY -> {
+                        Expression right = operands[operand(count--)];
+                        Expression left = operands[operand(count--)];
+                        yield new Expression.Binary(left, token(), right, type());
+                    }
+                    case GROUPING -> new Expression.Grouping(operands[operand(count--)]);
+                    case VARIABLE -> new Expression.Variable(token(), slot());
+                    case ASSIGNMENT -> new Expression.Assignment(token(), operands[operand(count--)], slot());
+                    case VALUE -> {
+                        Object value = value();
+                        yield new Expression.Value(value, token());
+                    }
+                    default -> throw new IllegalArgumentException("Invalid expression tag: " + tag);
+                };
+                operands[count++] = expression;
+            }
+        }
+
+        /**
+         * Gives the index of the operand on top of a stack of {@code count}
+         */
+        private static int operand(int count) {
+            if (count == 0) {
+                throw new IllegalArgumentException("Missing operand in expression");
+            }
+            return count - 1;
+        }
+
+        private Object value() {
+            byte tag = in.get();
+            return switch (tag) {
+                case NIL_VALUE -> null;
+                case NUMBER_VALUE -> Double.longBitsToDouble(in.getLong());
+                case STRING_VALUE -> strings[count()];
+                case TRUE_VALUE -> Boolean.TRUE;
+                case FALSE_VALUE -> Boolean.FALSE;
+                default -> throw new IllegalArgumentException("Invalid value tag: " + tag);
+            };
+        }
+
+        private Token token() {
+            TokenKind tokenKind = KINDS[in.get() & 0xff];
+            long line = count();
+            int content = count();
+            int source = count();
+            return new Token(tokenKind, content == 0 ? Optional.empty() : Optional.of(strings[content - 1]),
+                    source == 0 ? null : strings[source - 1], line);
+        }
+
+        private int slot() {
+            return count() - 1;
+        }
+
+        private Type type() {
+            return TYPES[in.get() & 0xff];
+        }
+
+        /**
+         * Read an unsigned varint, 7 bits per byte with the high bit set on all but the last
+         */
+        private int count() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = in.get();
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    if (value < 0) {
+                        break;
+                    }
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Invalid varint");
+        }
+
+        private byte[] bytes(int length) {
+            if (length > in.remaining()) {
+                throw new IllegalArgumentException("Invalid string length: " + length);
+            }
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            return bytes;
+        }
+    }
+
+    /**
+     * Growable byte array with the writes of the encoding
+     */
+    private static final class Bytes extends ByteArrayOutputStream {
+
+        Bytes() {
+            super(1 << 12);
+        }
+
+        void u8(int value) {
+            write(value);
+        }
+
+        void int32(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buf[count++] = (byte) (value >>> shift);
+            }
+        }
+
+        void int64(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[count++] = (byte) (value >>> shift);
+            }
+        }
+
+        void varint(int value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("Negative varint: " + value);
+            }
+            ensure(5);
+            while (value >= 0x80) {
+                buf[count++] = (byte) (value | 0x80);
+                value >>>= 7;
+            }
+            buf[count++] = (byte) value;
+        }
+
+        void appendTo(Bytes other) {
+            other.write(buf, 0, count);
+        }
+
+        private void ensure(int length) {
+            if (count + length > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + length));
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.CompilationError;
+import com.krolang.compiler.core.lox.Token;
+
+import java.util.Arrays;
+
+/**
+ * Values of the variables of one execution, indexed by the slots the {@link Resolver} assigned.
+ * <p>
+ * A slot holds the value its declaration or latest assignment evaluated to, never an expression.
+ * Reading a variable is a plain array access: nothing is evaluated again, and assigning a
+ * variable does not change the variables that were initialised from it.
+ *
+ * @author autonu.kro
+ */
+public class Environment {
+
+    private Object[] slots = new Object[16];
+
+    public Environment() {
+        Arrays.fill(slots, Undefined.INSTANCE);
+    }
+
+    public Object get(int slot, Token identifier) {
+        if (slot < 0) {
+            throw new IllegalStateException("Variable is not resolved: " + identifier);
+        }
+        Object value = slot < slots.length ? slots[slot] : Undefined.INSTANCE;
+        if (value != Undefined.INSTANCE) {
+            return value;
+        }
+        throw notDefined(identifier);
+    }
+
+    public void define(int slot, Object value) {
+        if (slot < 0) {
+            throw new IllegalStateException("Variable is not resolved");
+        }
+        if (slot >= slots.length) {
+            int length = slots.length;
+            slots = Arrays.copyOf(slots, Math.max(length * 2, slot + 1));
+            Arrays.fill(slots, length, slots.length, Undefined.INSTANCE);
+        }
+        slots[slot] = value;
+    }
+
+    /**
+     * Error for reading a variable that was never assigned
+     */
+    public static CompilationError notDefined(Token identifier) {
+        String err = """
+                | File %s, line:%d
+                | Compilation Error: name '%s' is not defined
+                """;
+        return new CompilationError(String.format(err, identifier.source(), identifier.line(), identifier.content().orElse("")));
+    }
+
+    /**
+     * Marks a slot whose variable was never assigned, which is not the same as Nil
+     */
+    private enum Undefined {
+        INSTANCE
+    }
+}
@@ -7,6 +7,11 @@ import com.krolang.compiler.core.lox.Token;
  */
 public interface Expression {
 
+    /**
+     * Slot of a variable that has not been through the {@link Resolver} yet
+     */
+    int UNRESOLVED = -1;
+
     Object accept(Visitor visitor);
 
     interface Visitor {
@@ -21,6 +26,8 @@ public interface Expression {
         Object visit(Variable variable);
 
         Object visit(Assignment assignment);
+
+        Object visit(Value value);
     }
 
     record Literal(Token literal) implements Expression {
@@ -39,7 +46,15 @@ public interface Expression {
         }
     }
 
-    record Binary(Expression leftExpr, Token operator, Expression rightExpr) implements Expression {
+    /**
+     * @param operands type of both operands when the {@link TypeChecker} proved they have the same
+     *                 one and are not Nil, else {@link Type#ANY}
+     */
+    record Binary(Expression leftExpr, Token operator, Expression rightExpr, Type operands) implements Expression {
+
+        public Binary(Expression leftExpr, Token operator, Expression rightExpr) {
+            this(leftExpr, operator, rightExpr, Type.ANY);
+        }
 
         @Override
         public Object accept(Visitor visitor) {
@@ -55,7 +70,23 @@ public interface Expression {
         }
     }
 
-    record Variable(Token identifier) implements Expression {
+    record Variable(Token identifier, int slot) implements Expression {
+
+        public Variable(Token identifier) {
+            this(identifier, UNRESOLVED);
+        }
+
+        @Override
+        public Object accept(Visitor visitor) {
+            return visitor.visit(this);
+        }
+    }
+
+    record Assignment(Token identifier, Expression expression, int slot) implements Expression {
+
+        public Assignment(Token identifier, Expression expression) {
+            this(identifier, expression, UNRESOLVED);
+        }
 
         @Override
         public Object accept(Visitor visitor) {
@@ -63,7 +94,12 @@ public interface Expression {
         }
     }
 
-    record Assignment(Token identifier, Expression expression) implements Expression {
+    /**
+     * A value known before execution: a decoded literal or a folded constant expression.
+     *
+     * @param token the literal, or the operator of the folded expression
+     */
+    record Value(Object value, Token token) implements Expression {
 
         @Override
         public Object accept(Visitor visitor) {
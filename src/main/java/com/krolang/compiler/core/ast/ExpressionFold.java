@@ -0,0 +1,192 @@
+package com.krolang.compiler.core.ast;
+
+import java.util.Arrays;
+
+/**
+ * Walk of an expression in post-order with an explicit stack, so expressions of any depth are
+ * walked without recursion: the {@link Parser} builds a chain of a million terms on its own
+ * operand stack, the passes after it must not recurse into it either. The operands of a node are
+ * folded left to right, in the order the engines evaluate them, then the node is folded with
+ * their results.
+ *
+ * @param <R> result of folding a node, it may be null
+ * @author autonu.kro
+ */
+public abstract class ExpressionFold<R> {
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    protected abstract R literal(Expression.Literal literal);
+
+    protected abstract R variable(Expression.Variable variable);
+
+    protected abstract R value(Expression.Value value);
+
+    protected abstract R unary(Expression.Unary unary, R right);
+
+    protected abstract R binary(Expression.Binary binary, R left, R right);
+
+    /**
+     * @param inner null for a grouping without expression
+     */
+    protected abstract R grouping(Expression.Grouping grouping, R inner);
+
+    protected abstract R assignment(Expression.Assignment assignment, R value);
+
+    /**
+     * Called once the left operand of a binary expression is folded, before the right one is
+     */
+    protected void left(Expression.Binary binary, R left) {
+    }
+
+    /**
+     * Stacks of the walk, kept from one fold to the next. Null while a fold runs, so a fold
+     * started from a hook gets its own.
+     */
+    private Expression[] pending = new Expression[INITIAL_CAPACITY];
+    // Operands of every pending node pushed so far
+    private byte[] pushed = new byte[INITIAL_CAPACITY];
+    private Object[] results = new Object[INITIAL_CAPACITY];
+
+    public R fold(Expression expression) {
+        // Most expressions of a program are a single leaf
+        if (expression instanceof Expression.Literal literal) {
+            return literal(literal);
+        }
+        if (expression instanceof Expression.Variable variable) {
+            return variable(variable);
+        }
+        if (expression instanceof Expression.Value value) {
+            return value(value);
+        }
+        if (expression == null) {
+            throw new IllegalArgumentException("No expression found");
+        }
+        Expression[] pending = this.pending;
+        byte[] pushed = this.pushed;
+        Object[] results = this.results;
+        if (pending == null) {
+            pending = new Expression[INITIAL_CAPACITY];
+            pushed = new byte[INITIAL_CAPACITY];
+            results = new Object[INITIAL_CAPACITY];
+        }
+        this.pending = null;
+        this.pushed = null;
+        this.results = null;
+        try {
+            R result = walk(expression, pending, pushed, results);
+            this.pending = pending;
+            this.pushed = pushed;
+            this.results = results;
+            return result;
+        } finally {
+            Arrays.fill(pending, null);
+            Arrays.fill(results, null);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private R walk(Expression expression, Expression[] pending, byte[] pushed, Object[] results) {
+        int pendingCount = 0;
+        int resultCount = 0;
+        pending[pendingCount] = expression;
+        pushed[pendingCount++] = 0;
+        while (pendingCount > 0) {
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+                pushed = Arrays.copyOf(pushed, pending.length);
+            }
+            if (resultCount == results.length) {
+                results = Arrays.copyOf(results, results.length * 2);
+            }
+            int top = pendingCount - 1;
+            Expression node = pending[top];
+            int stage = pushed[top];
+            Expression operand = null;
+            if (node instanceof Expression.Binary binary) {
+                if (stage == 0) {
+                    operand = operand(binary.leftExpr());
+                } else if (stage == 1) {
+                    left(binary, (R) results[resultCount - 1]);
+                    operand = operand(binary.rightExpr());
+                }
+            } else if (stage == 0) {
+                operand = switch (node) {
+                    case Expression.Unary unary -> operand(unary.rightExpr());
+                    case Expression.Grouping grouping -> grouping.expression();
+                    case Expression.Assignment assignment -> operand(assignment.expression());
+                    default -> null;
+                };
+            }
+            if (operand != null) {
+                pushed[top]++;
+                pending[pendingCount] = operand;
+                pushed[pendingCount++] = 0;
+                continue;
+            }
+            pending[--pendingCount] = null;
+            R result = switch (node) {
+                case Expression.Binary binary -> {
+                    R right = (R) results[--resultCount];
+                    yield binary(binary, (R) results[--resultCount], right);
+                }
+                case Expression.Literal literal -> literal(literal);
+                case Expression.Variable variable -> variable(variable);
+                case Expression.Value value -> value(value);
+                case Expression.Unary unary -> unary(unary, (R) results[--resultCount]);
+                case Expression.Grouping grouping ->
+                        grouping(grouping, grouping.expression() == null ? null : (R) results[--resultCount]);
+                case Expression.Assignment assignment -> assignment(assignment, (R) results[--resultCount]);
+                default -> throw new IllegalArgumentException("Invalid expression: " + node);
+            };
+            results[resultCount++] = result;
+        }
+        return (R) results[0];
+    }
+
+    /**
+     * Number of nodes of an expression, counting stops at {@code limit}
+     */
+    public static int size(Expression expression, int limit) {
+        Expression[] pending = new Expression[INITIAL_CAPACITY];
+        int pendingCount = 0;
+        int size = 0;
+        if (expression != null) {
+            pending[pendingCount++] = expression;
+        }
+        while (pendingCount > 0 && size < limit) {
+            if (pendingCount + 2 > pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+            Expression node = pending[--pendingCount];
+            size++;
+            switch (node) {
+                case Expression.Unary unary -> pendingCount = push(pending, pendingCount, unary.rightExpr());
+                case Expression.Binary binary -> {
+                    pendingCount = push(pending, pendingCount, binary.rightExpr());
+                    pendingCount = push(pending, pendingCount, binary.leftExpr());
+                }
+                case Expression.Grouping grouping -> pendingCount = push(pending, pendingCount, grouping.expression());
+                case Expression.Assignment assignment -> pendingCount = push(pending, pendingCount, assignment.expression());
+                case null, default -> {
+                }
+            }
+        }
+        return size;
+    }
+
+    private static int push(Expression[] pending, int pendingCount, Expression expression) {
+        if (expression == null) {
+            return pendingCount;
+        }
+        pending[pendingCount] = expression;
+        return pendingCount + 1;
+    }
+
+    private static Expression operand(Expression expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("No expression found");
+        }
+        return expression;
+    }
+}
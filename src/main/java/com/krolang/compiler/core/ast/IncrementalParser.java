@@ -0,0 +1,448 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.SyntaxError;
+import com.krolang.compiler.core.lox.LineScanner;
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenBuffer;
+import com.krolang.compiler.core.lox.TokenKind;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * Parser for a source text edited in place, as by an editor re-checking on every keystroke. The
+ * scanner state at every line start and the lines every top level statement spans are kept, so
+ * an edit re-lexes and re-parses only the statements it touches, plus the following ones until
+ * the scanner is back in step after a change to a block comment. Every other statement is reused,
+ * the ones below an edit adding or removing lines are copied with their line numbers moved when
+ * they are next asked for.
+ * <p>
+ * The statements after every edit equal a full parse of the edited text. After a syntax error the
+ * next edit parses the whole text again.
+ *
+ * @author autonu.kro
+ */
+public final class IncrementalParser {
+
+    private final String sourcePath;
+    private final List<Entry> entries = new ArrayList<>();
+    private final StringBuilder text = new StringBuilder();
+    private int[] lineStarts = {0};
+    /**
+     * Scanner state at the start of every line and after the last one, see {@link #state}
+     */
+    private long[] states = {state(1, false), state(1, false)};
+    private boolean broken = true;
+
+    public IncrementalParser(String sourcePath) {
+        this.sourcePath = sourcePath;
+    }
+
+    /**
+     * Parse a new text from scratch.
+     *
+     * @return the top level statements, a view that follows later edits
+     */
+    public List<Statement> parse(String source) {
+        text.setLength(0);
+        text.append(source);
+        lineStarts = lineStarts(source);
+        return reparse();
+    }
+
+    /**
+     * Apply an edit to the text and parse what it changed.
+     *
+     * @param offset   of the first character replaced
+     * @param removed  number of characters replaced
+     * @param inserted text replacing them
+     * @return the top level statements, unchanged ones are the instances of the previous parse
+     */
+    public List<Statement> edit(int offset, int removed, String inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > text.length()) {
+            throw new IllegalArgumentException("Edit out of range: " + offset + ", " + removed + " of " + text.length());
+        }
+        int firstLine = lineOf(offset);
+        int lastLine = lineOf(offset + removed);
+        int oldLineCount = lineStarts.length;
+        text.replace(offset, offset + removed, inserted);
+        lineStarts = splice(lineStarts, firstLine, lastLine, offset, inserted, inserted.length() - removed);
+        if (broken) {
+            return reparse();
+        }
+        int lineDelta = lineStarts.length - oldLineCount;
+
+        // Damaged statements in old lines, a statement sharing a line with one of them is damaged too
+        int first = firstEndingAtOrAfter(firstLine);
+        int startLine = first < entries.size() ? Math.min(firstLine, entries.get(first).firstLine) : firstLine;
+        while (first > 0 && entries.get(first - 1).lastLine >= startLine) {
+            first--;
+            startLine = Math.min(startLine, entries.get(first).firstLine);
+        }
+        Region region = scan(startLine, first, lastLine + 1, lineDelta);
+        List<Entry> parsed;
+        try {
+            parsed = region.parse();
+        } catch (SyntaxError e) {
+            if (region.end == entries.size() || !region.failedAtEnd()) {
+                broken = true;
+                throw e;
+            }
+            // The statement runs on past the damaged ones, take the rest of the text
+            region = scan(startLine, first, oldLineCount, lineDelta);
+            try {
+                parsed = region.parse();
+            } catch (SyntaxError error) {
+                broken = true;
+                throw error;
+            }
+        }
+        commit(region, parsed, first, lineDelta);
+        return statements();
+    }
+
+    /**
+     * Gives the top level statements of the last successful parse
+     */
+    public List<Statement> statements() {
+        return new StatementList();
+    }
+
+    public String text() {
+        return text.toString();
+    }
+
+    private List<Statement> reparse() {
+        broken = true;
+        entries.clear();
+        states = new long[lineStarts.length + 1];
+        states[0] = state(1, false);
+        Region region = scan(0, 0, lineStarts.length, 0);
+        commit(region, region.parse(), 0, 0);
+        return statements();
+    }
+
+    /**
+     * Re-lex new lines from {@code startLine} on, at least up to the new counterpart of the old line
+     * {@code endLine}, and on until a statement boundary where the scanner state matches the old one.
+     *
+     * @param first index of the first damaged statement
+     */
+    private Region scan(int startLine, int first, int endLine, int lineDelta) {
+        TokenBuffer tokens = new TokenBuffer(sourcePath);
+        long startState = states[startLine];
+        LineScanner scanner = new LineScanner(tokens, startState >>> 1, (startState & 1) != 0);
+        Region region = new Region(tokens, startLine);
+        int end = first;
+        int line = startLine;
+        while (true) {
+            while (end < entries.size() && entries.get(end).firstLine < endLine) {
+                endLine = Math.max(endLine, entries.get(end).lastLine + 1);
+                end++;
+            }
+            if (end == entries.size()) {
+                endLine = states.length - 1;
+            }
+            for (; line < endLine + lineDelta; line++) {
+                region.line(scanner);
+                scanner.line(line(line));
+            }
+            if (end == entries.size() || scanner.blockComment() == ((states[endLine] & 1) != 0)) {
+                break;
+            }
+            endLine = entries.get(end).lastLine + 1;
+        }
+        tokens.append(TokenKind.EOF, "", 0, 0, scanner.lineNo());
+        region.end = end;
+        region.oldEndLine = endLine;
+        region.endState = state(scanner.lineNo(), scanner.blockComment());
+        return region;
+    }
+
+    /**
+     * Replace the damaged statements and line states by the ones of the parsed region.
+     */
+    private void commit(Region region, List<Entry> parsed, int first, int lineDelta) {
+        int newEndLine = region.oldEndLine + lineDelta;
+        long lineNoDelta = (region.endState >>> 1) - (states[region.oldEndLine] >>> 1);
+        long[] newStates = new long[lineStarts.length + 1];
+        System.arraycopy(states, 0, newStates, 0, region.startLine);
+        System.arraycopy(region.states, 0, newStates, region.startLine, region.lines);
+        for (int line = newEndLine; line < newStates.length; line++) {
+            newStates[line] = states[line - lineDelta] + (lineNoDelta << 1);
+        }
+        newStates[newEndLine] = region.endState;
+        states = newStates;
+
+        List<Entry> damaged = entries.subList(first, region.end);
+        damaged.clear();
+        damaged.addAll(parsed);
+        for (int i = first + parsed.size(); i < entries.size() && (lineDelta != 0 || lineNoDelta != 0); i++) {
+            Entry entry = entries.get(i);
+            entry.firstLine += lineDelta;
+            entry.lastLine += lineDelta;
+            entry.moved += lineNoDelta;
+        }
+        broken = false;
+    }
+
+    /**
+     * Gives the index of the first statement whose last line is not before {@code line}
+     */
+    private int firstEndingAtOrAfter(int line) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entries.get(middle).lastLine < line) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int lineOf(int offset) {
+        int line = Arrays.binarySearch(lineStarts, offset);
+        return line >= 0 ? line : -line - 2;
+    }
+
+    /**
+     * Gives a line without its terminator
+     */
+    private CharSequence line(int line) {
+        int start = lineStarts[line];
+        int end = line + 1 < lineStarts.length ? lineStarts[line + 1] - 1 : text.length();
+        if (end > start && text.charAt(end - 1) == '\r') {
+            end--;
+        }
+        return text.subSequence(start, end);
+    }
+
+    private static int[] lineStarts(String text) {
+        int[] starts = new int[16];
+        int count = 1;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = i + 1;
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Gives the line starts after replacing the text from within {@code firstLine} to within
+     * {@code lastLine} by {@code inserted}, found at {@code offset}.
+     */
+    private static int[] splice(int[] starts, int firstLine, int lastLine, int offset, String inserted, int shift) {
+        int[] insertedStarts = lineStarts(inserted);
+        int newLines = insertedStarts.length - 1;
+        int[] spliced = new int[starts.length - (lastLine - firstLine) + newLines];
+        System.arraycopy(starts, 0, spliced, 0, firstLine + 1);
+        for (int i = 1; i <= newLines; i++) {
+            spliced[firstLine + i] = offset + insertedStarts[i];
+        }
+        for (int line = lastLine + 1; line < starts.length; line++) {
+            spliced[line - lastLine + firstLine + newLines] = starts[line] + shift;
+        }
+        return spliced;
+    }
+
+    private static long state(long lineNo, boolean blockComment) {
+        return lineNo << 1 | (blockComment ? 1 : 0);
+    }
+
+    private static Statement moved(Statement statement, long lines) {
+        return switch (statement) {
+            case Statement.ExpressionStatement expressionStatement ->
+                    new Statement.ExpressionStatement(movedExpression(expressionStatement.expression(), lines));
+            case Statement.PrintStatement printStatement ->
+                    new Statement.PrintStatement(movedExpression(printStatement.expression(), lines));
+            case Statement.VariableDeclaration declaration ->
+                    new Statement.VariableDeclaration(movedToken(declaration.identifier(), lines), declaration.type(), movedExpression(declaration.expression(), lines), declaration.slot());
+            case Statement.CodeBlock codeBlock ->
+                    new Statement.CodeBlock(codeBlock.statements().stream().map(inner -> moved(inner, lines)).toList());
+            default -> throw new IllegalArgumentException("Invalid statement: " + statement);
+        };
+    }
+
+    private static Expression movedExpression(Expression expression, long lines) {
+        return expression == null ? null : new Moving(lines).fold(expression);
+    }
+
+    private static Token movedToken(Token token, long lines) {
+        return new Token(token.tokenKind(), token.content(), token.source(), token.line() + lines);
+    }
+
+    /**
+     * Copy of an expression whose tokens are {@code lines} further
+     */
+    private static final class Moving extends ExpressionFold<Expression> {
+
+        private final long lines;
+
+        private Moving(long lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        protected Expression literal(Expression.Literal literal) {
+            return new Expression.Literal(movedToken(literal.literal(), lines));
+        }
+
+        @Override
+        protected Expression variable(Expression.Variable variable) {
+            return new Expression.Variable(movedToken(variable.identifier(), lines), variable.slot());
+        }
+
+        @Override
+        protected Expression value(Expression.Value value) {
+            return new Expression.Value(value.value(), movedToken(value.token(), lines));
+        }
+
+        @Override
+        protected Expression unary(Expression.Unary unary, Expression right) {
+            return new Expression.Unary(movedToken(unary.operator(), lines), right);
+        }
+
+        @Override
+        protected Expression binary(Expression.Binary binary, Expression left, Expression right) {
+            return new Expression.Binary(left, movedToken(binary.operator(), lines), right, binary.operands());
+        }
+
+        @Override
+        protected Expression grouping(Expression.Grouping grouping, Expression inner) {
+            return new Expression.Grouping(inner);
+        }
+
+        @Override
+        protected Expression assignment(Expression.Assignment assignment, Expression value) {
+            return new Expression.Assignment(movedToken(assignment.identifier(), lines), value, assignment.slot());
+        }
+    }
+
+    /**
+     * A top level statement and the first and last line holding its tokens
+     */
+    private static final class Entry {
+
+        private Statement statement;
+        private int firstLine;
+        private int lastLine;
+        /**
+         * Lines the statement moved by since it was parsed
+         */
+        private long moved;
+
+        private Entry(Statement statement, int firstLine, int lastLine) {
+            this.statement = statement;
+            this.firstLine = firstLine;
+            this.lastLine = lastLine;
+        }
+
+        private Statement statement() {
+            if (moved != 0) {
+                statement = IncrementalParser.moved(statement, moved);
+                moved = 0;
+            }
+            return statement;
+        }
+    }
+
+    /**
+     * Lines re-lexed after an edit, it collects the statements parsed from their tokens.
+     */
+    private static final class Region implements Consumer<Statement> {
+
+        private final TokenBuffer tokens;
+        private final int startLine;
+        private final List<Entry> parsed = new ArrayList<>();
+        private long[] states = new long[16];
+        private int[] firstTokens = new int[16];
+        private int lines;
+        /**
+         * Index of the first statement after the region and its first old line, if any
+         */
+        private int end;
+        private int oldEndLine;
+        private long endState;
+        private TokenBuffer.Cursor cursor;
+        private int statementStart;
+
+        private Region(TokenBuffer tokens, int startLine) {
+            this.tokens = tokens;
+            this.startLine = startLine;
+        }
+
+        /**
+         * Record the scanner state before the next line
+         */
+        private void line(LineScanner scanner) {
+            if (lines == states.length) {
+                states = Arrays.copyOf(states, lines * 2);
+                firstTokens = Arrays.copyOf(firstTokens, lines * 2);
+            }
+            states[lines] = state(scanner.lineNo(), scanner.blockComment());
+            firstTokens[lines] = tokens.size();
+            lines++;
+        }
+
+        private List<Entry> parse() {
+            parsed.clear();
+            statementStart = 0;
+            cursor = tokens.cursor();
+            new Parser(cursor).parse(this);
+            return parsed;
+        }
+
+        /**
+         * Check if the last parse ran out of tokens, rather than hitting a wrong one
+         */
+        private boolean failedAtEnd() {
+            return cursor.isAtEnd();
+        }
+
+        @Override
+        public void accept(Statement statement) {
+            int next = cursor.position();
+            parsed.add(new Entry(statement, lineOf(statementStart), lineOf(next - 1)));
+            statementStart = next;
+        }
+
+        /**
+         * Gives the line of a token, the last line starting at or before it
+         */
+        private int lineOf(int token) {
+            int low = 0;
+            int high = lines - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (firstTokens[middle] <= token) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return startLine + low;
+        }
+    }
+
+    private final class StatementList extends AbstractList<Statement> implements RandomAccess {
+
+        @Override
+        public Statement get(int index) {
+            return entries.get(index).statement();
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+    }
+}
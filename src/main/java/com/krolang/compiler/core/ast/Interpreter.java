@@ -3,6 +3,7 @@ package com.krolang.compiler.core.ast;
 import com.krolang.compiler.core.lox.Token;
 import com.krolang.compiler.core.lox.TokenKind;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -10,62 +11,141 @@ import java.util.List;
  */
 public class Interpreter implements Expression.Visitor, Statement.Visitor {
 
-    private final List<Statement> statements;
+    /**
+     * Marks that the last {@link #evaluateNumber} produced a Num
+     */
+    private static final Object IS_NUMBER = new Object();
 
+    private final List<Statement> statements;
+    /**
+     * Program run from an arena instead of {@link #statements}, null for statements
+     */
+    private final AstArena program;
+    private final Environment environment;
+    private final Output output;
+    /**
+     * Value of the last {@link #evaluateNumber} if it was not a Num
+     */
+    private Object nonNumber = IS_NUMBER;
+    /**
+     * Evaluates the parts of an expression nested deeper than the interpreter recurses
+     */
+    private final StackEvaluator deep;
+    /**
+     * Depth of the expression being evaluated
+     */
+    private int depth;
+
+    /**
+     * @param statements resolved by a {@link Resolver}
+     */
     public Interpreter(List<Statement> statements) {
+        this(statements, new Environment());
+    }
+
+    /**
+     * @param statements  resolved by a {@link Resolver}
+     * @param environment holding the variables, it outlives this interpreter in the REPL
+     */
+    public Interpreter(List<Statement> statements, Environment environment) {
+        this(statements, environment, Output.console());
+    }
+
+    /**
+     * @param statements  resolved by a {@link Resolver}
+     * @param environment holding the variables, it outlives this interpreter in the REPL
+     * @param output      receiving what is printed, flushed by the caller
+     */
+    public Interpreter(List<Statement> statements, Environment environment, Output output) {
         this.statements = List.copyOf(statements);
+        this.program = null;
+        this.environment = environment;
+        this.output = output;
+        this.deep = StackEvaluator.of(environment);
+    }
+
+    /**
+     * @param program     resolved by a {@link Resolver}
+     * @param environment holding the variables
+     * @param output      receiving what is printed, flushed by the caller
+     */
+    public Interpreter(AstArena program, Environment environment, Output output) {
+        this.statements = List.of();
+        this.program = program;
+        this.environment = environment;
+        this.output = output;
+        this.deep = StackEvaluator.of(environment);
     }
 
     public void interpret() {
+        if (program != null) {
+            for (int i = 0; i < program.statementCount(); i++) {
+                execute(program.statement(i));
+            }
+            return;
+        }
         for (Statement statement : statements) {
             statement.accept(this);
         }
     }
 
+    /**
+     * Execute a single top level statement, for programs whose statements arrive one by one.
+     */
+    public void execute(Statement statement) {
+        statement.accept(this);
+    }
+
     @Override
     public Object visit(Expression.Literal literal) {
-        Token token = literal.literal();
-        return switch (token.tokenKind()) {
-            case NUM_LIT -> tokenToNumber(token);
-            case STR_LIT -> tokenToString(token);
-            case TRUE, FALSE -> tokenToBoolean(token);
-            case IDENTIFIER -> tokenToValue(token);
-            case NIL -> tokenToNil(token);
-            default -> throw new IllegalArgumentException("Invalid literal: " + token);
-        };
+        return Operations.literalOf(literal.literal());
     }
 
     @Override
     public Object visit(Expression.Unary unary) {
-        Object right = evaluate(unary.rightExpr());
         Token operator = unary.operator();
+        if (operator.tokenKind() == TokenKind.MINUS) {
+            return boxed(evaluateNumber(unary));
+        }
+        Object right = evaluate(unary.rightExpr());
         return switch (operator.tokenKind()) {
-            case NOT -> makeNot(right);
-            case MINUS -> makeNegate(right);
+            case NOT -> Operations.makeNot(right);
+            case MINUS -> Operations.makeNegate(right);
             default -> throw new IllegalArgumentException("Invalid operator: " + operator);
         };
     }
 
     @Override
     public Object visit(Expression.Binary binary) {
-        Object left = evaluate(binary.leftExpr());
-        Object right = evaluate(binary.rightExpr());
         Token operator = binary.operator();
-        return switch (operator.tokenKind()) {
-            case PLUS -> additionOf(left, right);
-            case MINUS -> subtractionOf(left, right);
-            case MULTIPLICATION -> multiplicationOf(left, right);
-            case DIVISION -> divisionOf(left, right);
-            case AND -> logicalAndOf(left, right);
-            case OR -> logicalOrOf(left, right);
-            case EQ -> equalOf(left, right);
-            case NOT_EQ -> !equalOf(left, right);
-            case GT -> greaterOf(left, right);
-            case LT -> lesserOf(left, right);
-            case GT_EQ -> greaterOrEqualOf(left, right);
-            case LT_EQ -> lesserOrEqualOf(left, right);
-            default -> throw new IllegalArgumentException("Invalid operator: " + operator);
-        };
+        switch (operator.tokenKind()) {
+            case PLUS, MINUS, MULTIPLICATION, DIVISION -> {
+                if (binary.operands() == Type.STR) {
+                    if (operator.tokenKind() == TokenKind.PLUS) {
+                        return Rope.concat((CharSequence) evaluate(binary.leftExpr()), (CharSequence) evaluate(binary.rightExpr()));
+                    }
+                    // Only + applies to Str, the generic operation reports the others
+                    return Operations.binaryOf(operator, evaluate(binary.leftExpr()), evaluate(binary.rightExpr()));
+                }
+                return boxed(evaluateNumber(binary));
+            }
+            case EQ, NOT_EQ, GT, LT, GT_EQ, LT_EQ -> {
+                if (binary.operands() == Type.NUM) {
+                    return Operations.comparisonOf(operator.tokenKind(), evaluateNumber(binary.leftExpr()), evaluateNumber(binary.rightExpr()));
+                }
+                double left = evaluateNumber(binary.leftExpr());
+                Object leftValue = takeNonNumber();
+                double right = evaluateNumber(binary.rightExpr());
+                Object rightValue = takeNonNumber();
+                if (leftValue == IS_NUMBER && rightValue == IS_NUMBER) {
+                    return Operations.comparisonOf(operator.tokenKind(), left, right);
+                }
+                return Operations.binaryOf(operator, leftValue == IS_NUMBER ? left : leftValue, rightValue == IS_NUMBER ? right : rightValue);
+            }
+            default -> {
+                return Operations.binaryOf(operator, evaluate(binary.leftExpr()), evaluate(binary.rightExpr()));
+            }
+        }
     }
 
     @Override
@@ -82,24 +162,22 @@ public class Interpreter implements Expression.Visitor, Statement.Visitor {
         if (identifier == null) {
             throw new IllegalArgumentException("Invalid identifier");
         }
-        if (identifier.content().isEmpty()) {
-            throw new IllegalArgumentException("Expected identifier content");
-        }
-        return Context.findVariable(identifier.content().get(), identifier.source(), identifier.line());
+        return environment.get(variable.slot(), identifier);
     }
 
     @Override
     public Object visit(Expression.Assignment assignment) {
         Expression expression = assignment.expression();
         Object evaluated = evaluate(expression);
-        Token identifier = assignment.identifier();
-        if (identifier.content().isEmpty()) {
-            throw new IllegalArgumentException("Expected identifier");
-        }
-        Context.defineVariable(identifier.content().get(), evaluated);
+        environment.define(assignment.slot(), evaluated);
         return evaluated;
     }
 
+    @Override
+    public Object visit(Expression.Value value) {
+        return value.value();
+    }
+
     @Override
     public void visit(Statement.ExpressionStatement expressionStatement) {
         Expression expression = expressionStatement.expression();
@@ -115,24 +193,12 @@ public class Interpreter implements Expression.Visitor, Statement.Visitor {
         if (expression == null) {
             throw new IllegalArgumentException("No valid expression to print");
         }
-        Object object = evaluate(expression);
-        switch (object) {
-            case null -> System.out.println(TokenKind.NIL.symbol());
-            case String str -> System.out.println(str);
-            case Double d -> {
-                double num = d;
-                if (num == (int) num) {
-                    System.out.println(d.intValue());
-                } else if (num == (long) num) {
-                    System.out.println(d.longValue());
-                } else if (num == (float) num) {
-                    System.out.println(d.floatValue());
-                } else {
-                    System.out.println(d.doubleValue());
-                }
-            }
-            case Boolean bool -> System.out.println(bool ? TokenKind.TRUE.symbol() : TokenKind.FALSE.symbol());
-            default -> System.out.println(object);
+        double number = evaluateNumber(expression);
+        Object value = takeNonNumber();
+        if (value == IS_NUMBER) {
+            Operations.print(number, output);
+        } else {
+            Operations.print(value, output);
         }
     }
 
@@ -142,16 +208,7 @@ public class Interpreter implements Expression.Visitor, Statement.Visitor {
         if (token.content().isEmpty()) {
             throw new IllegalArgumentException("variable identifier expected");
         }
-        Object value = evaluate(variableDeclaration.expression());
-        final String variableName = token.content().get();
-        switch (value) {
-            case null -> Context.defineVariable(variableName, TokenKind.NIL.symbol());
-            case String str -> Context.defineVariable(variableName, str);
-            case Double d -> Context.defineVariable(variableName, d);
-            case Boolean bool ->
-                    Context.defineVariable(variableName, bool ? TokenKind.TRUE.symbol() : TokenKind.FALSE.symbol());
-            default -> Context.defineVariable(variableName, value);
-        }
+        environment.define(variableDeclaration.slot(), evaluate(variableDeclaration.expression()));
     }
 
     @Override
@@ -162,282 +219,138 @@ public class Interpreter implements Expression.Visitor, Statement.Visitor {
     }
 
     private Object evaluate(Expression expression) {
-        return expression.accept(this);
-    }
-
-    private Double tokenToNumber(Token token) {
-        if (token.content().isEmpty()) {
-            return null;
-        }
-        return Double.parseDouble(token.content().get());
-    }
-
-    private String tokenToString(Token token) {
-        if (token.content().isEmpty()) {
-            return null;
-        }
-        return token.content().get().replaceAll("(^'|'$|\\\\)", "");
-    }
-
-    private Boolean tokenToBoolean(Token token) {
-        return switch (token.tokenKind()) {
-            case TRUE -> Boolean.TRUE;
-            case FALSE -> Boolean.FALSE;
-            default -> throw new IllegalArgumentException("Invalid token: " + token);
-        };
-    }
-
-    private Object tokenToValue(Token token) {
-        if (token.content().isEmpty()) {
-            throw new IllegalArgumentException("Expected <id> content value");
+        if (depth == StackEvaluator.RECURSION_LIMIT) {
+            return deep.fold(expression);
         }
-        Expression expression = Context.findExpression(token.content().get());
-        return evaluate(expression);
-    }
-
-    private Object tokenToNil(Token token) {
-        if (token.tokenKind() != TokenKind.NIL) {
-            throw new IllegalArgumentException("Invalid token: " + token);
+        depth++;
+        try {
+            return expression.accept(this);
+        } finally {
+            depth--;
         }
-        return null;
     }
 
-    private Boolean makeNot(Object object) {
-        if (object == null) {
-            return true;
-        }
-        if (object instanceof Boolean bool) {
-            return !bool;
+    /**
+     * Evaluate an expression expected to give a Num as a primitive, so nested arithmetic does not
+     * box every intermediate result. When the value turns out not to be a Num it is left in
+     * {@link #nonNumber} for the caller, which then falls back to the generic operations. Operands
+     * the {@link TypeChecker} proved to be Nums are not checked.
+     */
+    private double evaluateNumber(Expression expression) {
+        if (depth == StackEvaluator.RECURSION_LIMIT) {
+            return fromObject(deep.fold(expression));
+        }
+        depth++;
+        try {
+            return evaluateNumberNode(expression);
+        } finally {
+            depth--;
         }
-        throw new IllegalArgumentException("Invalid object: " + object);
     }
 
-    private Double makeNegate(Object object) {
-
-        if (object == null) {
-            return null;
-        }
-        if (object instanceof Double number) {
-            return -number;
-        }
-        throw new IllegalArgumentException("Invalid object: " + object);
-    }
-
-    private Object additionOf(Object left, Object right) {
-        if (left == null) {
-            throw new IllegalArgumentException("Operation '+' on Nil can not be done");
-        }
-        if (right == null) {
-            throw new IllegalArgumentException("Operation '+' on Nil can not be done");
-        }
-        if (left instanceof Double leftNum) {
-            if (right instanceof Double rightNum) {
-                return Double.sum(leftNum, rightNum);
-            } else {
-                throw new IllegalArgumentException("Operation '+' can not be done on different types");
-            }
-        }
-        if (left instanceof String letStr) {
-            if (right instanceof String rightStr) {
-                return letStr + rightStr;
-            } else {
-                throw new IllegalArgumentException("Operation '+' can not be done on different types");
-            }
-        }
-        throw new IllegalArgumentException("Operation '+' can not be done on: " + left + " and " + right);
-    }
-
-    private Double subtractionOf(Object left, Object right) {
-        if (left == null) {
-            throw new IllegalArgumentException("Operation '-' on Nil can not be done");
-        }
-        if (right == null) {
-            throw new IllegalArgumentException("Operation '-' on Nil can not be done");
-        }
-        if (left instanceof Double leftNum) {
-            if (right instanceof Double rightNum) {
-                return Double.sum(leftNum, -rightNum);
-            } else {
-                throw new IllegalArgumentException("Operation '-' can not be done on different types");
-            }
-        }
-        throw new IllegalArgumentException("Operation '-' can not be done on: " + left + " and " + right);
-    }
-
-    private Double multiplicationOf(Object left, Object right) {
-        if (left == null) {
-            throw new IllegalArgumentException("Operation '*' on Nil can not be done");
-        }
-        if (right == null) {
-            throw new IllegalArgumentException("Operation '*' on Nil can not be done");
-        }
-        if (left instanceof Double leftNum) {
-            if (right instanceof Double rightNum) {
-                return leftNum * rightNum;
-            } else {
-                throw new IllegalArgumentException("Operation '*' can not be done on different types");
-            }
-        }
-        throw new IllegalArgumentException("Operation '*' can not be done on: " + left + " and " + right);
-    }
-
-    private Double divisionOf(Object left, Object right) {
-        if (left == null) {
-            throw new IllegalArgumentException("Operation '/' on Nil can not be done");
-        }
-        if (right == null) {
-            throw new IllegalArgumentException("Operation '/' on Nil can not be done");
-        }
-        if (left instanceof Double leftNum) {
-            if (right instanceof Double rightNum) {
-                if (rightNum.compareTo(Double.parseDouble("0.0")) == 0) {
-                    return Double.NaN;
+    private double evaluateNumberNode(Expression expression) {
+        return switch (expression) {
+            case Expression.Literal literal when literal.literal().tokenKind() == TokenKind.NUM_LIT
+                    && literal.literal().content().isPresent() -> Double.parseDouble(literal.literal().content().get());
+            case Expression.Value value when value.value() instanceof Double number -> number;
+            case Expression.Grouping grouping when grouping.expression() != null -> evaluateNumber(grouping.expression());
+            case Expression.Unary unary when unary.operator().tokenKind() == TokenKind.MINUS -> {
+                double right = evaluateNumber(unary.rightExpr());
+                if (nonNumber == IS_NUMBER) {
+                    yield -right;
                 }
-                return leftNum / rightNum;
-            } else {
-                throw new IllegalArgumentException("Operation '/' can not be done on different types");
+                yield fromObject(Operations.makeNegate(takeNonNumber()));
             }
-        }
-        throw new IllegalArgumentException("Operation '/' can not be done on: " + left + " and " + right);
-    }
-
-    private Boolean logicalAndOf(Object left, Object right) {
-        if (left == null) {
-            throw new IllegalArgumentException("Operation '&&' on Nil can not be done");
-        }
-        if (right == null) {
-            throw new IllegalArgumentException("Operation '&&' on Nil can not be done");
-        }
-        if (left instanceof Boolean leftBool) {
-            if (right instanceof Boolean rightBool) {
-                return leftBool && rightBool;
-            } else {
-                throw new IllegalArgumentException("Operation '&&' can not be done on different types");
-            }
-        }
-        throw new IllegalArgumentException("Operation '&&' can not be done on: " + left + " and " + right);
-    }
-
-    private Boolean logicalOrOf(Object left, Object right) {
-        if (left == null) {
-            throw new IllegalArgumentException("Operation '||' on Nil can not be done");
-        }
-        if (right == null) {
-            throw new IllegalArgumentException("Operation '||' on Nil can not be done");
-        }
-        if (left instanceof Boolean leftBool) {
-            if (right instanceof Boolean rightBool) {
-                return leftBool || rightBool;
-            } else {
-                throw new IllegalArgumentException("Operation '||' can not be done on different types");
+            case Expression.Binary binary when binary.operands() == Type.NUM && Operations.isArithmetic(binary.operator().tokenKind()) ->
+                    Operations.arithmeticOf(binary.operator().tokenKind(), evaluateNumber(binary.leftExpr()), evaluateNumber(binary.rightExpr()));
+            case Expression.Binary binary when Operations.isArithmetic(binary.operator().tokenKind()) -> {
+                double left = evaluateNumber(binary.leftExpr());
+                Object leftValue = takeNonNumber();
+                double right = evaluateNumber(binary.rightExpr());
+                Object rightValue = takeNonNumber();
+                if (leftValue == IS_NUMBER && rightValue == IS_NUMBER) {
+                    yield Operations.arithmeticOf(binary.operator().tokenKind(), left, right);
+                }
+                yield fromObject(Operations.binaryOf(binary.operator(), leftValue == IS_NUMBER ? left : leftValue, rightValue == IS_NUMBER ? right : rightValue));
             }
-        }
-        throw new IllegalArgumentException("Operation '||' can not be done on: " + left + " and " + right);
+            default -> fromObject(evaluate(expression));
+        };
     }
 
-    private Boolean equalOf(Object left, Object right) {
-        if (left == null) {
-            throw new IllegalArgumentException("Operation '==' on Nil can not be done");
-        }
-        if (right == null) {
-            throw new IllegalArgumentException("Operation '==' on Nil can not be done");
+    private double fromObject(Object value) {
+        if (value instanceof Double number) {
+            return number;
         }
-        return left.equals(right);
+        nonNumber = value;
+        return Double.NaN;
     }
 
-    private Boolean greaterOf(Object left, Object right) {
-        if (left == null) {
-            throw new IllegalArgumentException("Operation '>' on Nil can not be done");
-        }
-        if (right == null) {
-            throw new IllegalArgumentException("Operation '>' on Nil can not be done");
-        }
-        if (left instanceof Double leftNum) {
-            if (right instanceof Double rightNum) {
-                return Double.compare(leftNum, rightNum) > 0;
-            } else {
-                throw new IllegalArgumentException("Operation '>' can not be done on different types");
-            }
-        }
-        if (left instanceof String letStr) {
-            if (right instanceof String rightStr) {
-                return letStr.compareTo(rightStr) > 0;
-            } else {
-                throw new IllegalArgumentException("Operation '>' can not be done on different types");
-            }
-        }
-        throw new IllegalArgumentException("Operation '>' can not be done on: " + left + " and " + right);
+    private Object takeNonNumber() {
+        Object value = nonNumber;
+        nonNumber = IS_NUMBER;
+        return value;
     }
 
-    private Boolean lesserOf(Object left, Object right) {
-        if (left == null) {
-            throw new IllegalArgumentException("Operation '<' on Nil can not be done");
-        }
-        if (right == null) {
-            throw new IllegalArgumentException("Operation '<' on Nil can not be done");
-        }
-        if (left instanceof Double leftNum) {
-            if (right instanceof Double rightNum) {
-                return Double.compare(leftNum, rightNum) < 0;
-            } else {
-                throw new IllegalArgumentException("Operation '>' can not be done on different types");
-            }
-        }
-        if (left instanceof String letStr) {
-            if (right instanceof String rightStr) {
-                return letStr.compareTo(rightStr) < 0;
-            } else {
-                throw new IllegalArgumentException("Operation '<' can not be done on different types");
-            }
-        }
-        throw new IllegalArgumentException("Operation '<' can not be done on: " + left + " and " + right);
+    /**
+     * Box the result of {@link #evaluateNumber}, or hand out its non Num value
+     */
+    private Object boxed(double number) {
+        Object value = takeNonNumber();
+        return value == IS_NUMBER ? (Object) number : value;
     }
 
-    private Boolean greaterOrEqualOf(Object left, Object right) {
-        if (left == null) {
-            throw new IllegalArgumentException("Operation '>=' on Nil can not be done");
-        }
-        if (right == null) {
-            throw new IllegalArgumentException("Operation '>=' on Nil can not be done");
-        }
-        if (left instanceof Double leftNum) {
-            if (right instanceof Double rightNum) {
-                return Double.compare(leftNum, rightNum) >= 0;
-            } else {
-                throw new IllegalArgumentException("Operation '>=' can not be done on different types");
-            }
-        }
-        if (left instanceof String letStr) {
-            if (right instanceof String rightStr) {
-                return letStr.compareTo(rightStr) >= 0;
-            } else {
-                throw new IllegalArgumentException("Operation '>=' can not be done on different types");
+    /**
+     * Execute a statement node of {@link #program}
+     */
+    private void execute(int node) {
+        switch (program.kind(node)) {
+            case EXPRESSION_STATEMENT -> evaluate(program.expression(node));
+            case PRINT_STATEMENT -> Operations.print(evaluate(program.expression(node)), output);
+            case VARIABLE_DECLARATION -> environment.define(program.slot(node), evaluate(program.expression(node)));
+            case CODE_BLOCK -> {
+                for (int i = 0; i < program.childCount(node); i++) {
+                    execute(program.child(node, i));
+                }
             }
+            default -> throw new IllegalArgumentException("Invalid statement node: " + program.kind(node));
         }
-        throw new IllegalArgumentException("Operation '>=' can not be done on: " + left + " and " + right);
     }
 
-    private Boolean lesserOrEqualOf(Object left, Object right) {
-        if (left == null) {
-            throw new IllegalArgumentException("Operation '<=' on Nil can not be done");
-        }
-        if (right == null) {
-            throw new IllegalArgumentException("Operation '<=' on Nil can not be done");
-        }
-        if (left instanceof Double leftNum) {
-            if (right instanceof Double rightNum) {
-                return Double.compare(leftNum, rightNum) <= 0;
-            } else {
-                throw new IllegalArgumentException("Operation '<=' can not be done on different types");
-            }
-        }
-        if (left instanceof String letStr) {
-            if (right instanceof String rightStr) {
-                return letStr.compareTo(rightStr) <= 0;
-            } else {
-                throw new IllegalArgumentException("Operation '<=' can not be done on different types");
+    /**
+     * Evaluate an expression node of {@link #program} with the generic operations, its operand
+     * types were not checked. Its nodes are scanned in the order they are stored, on a stack of
+     * the operand values.
+     */
+    private Object evaluate(int node) {
+        Object[] values = new Object[16];
+        int count = 0;
+        for (int current = program.first(node); current <= node; current++) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
             }
+            Object value = switch (program.kind(current)) {
+                case LITERAL -> Operations.literalOf(program.operator(current), program.content(current));
+                case NIL -> null;
+                case UNARY -> switch (program.operator(current)) {
+                    case NOT -> Operations.makeNot(values[--count]);
+                    case MINUS -> Operations.makeNegate(values[--count]);
+                    default -> throw new IllegalArgumentException("Invalid operator: " + program.tokenOf(current));
+                };
+                case BINARY -> {
+                    Object right = values[--count];
+                    yield Operations.binaryOf(program.operator(current), values[--count], right);
+                }
+                case GROUPING -> program.expression(current) < 0 ? null : values[--count];
+                case VARIABLE -> environment.get(program.slot(current), program.tokenOf(current));
+                case ASSIGNMENT -> {
+                    Object evaluated = values[--count];
+                    environment.define(program.slot(current), evaluated);
+                    yield evaluated;
+                }
+                default -> throw new IllegalArgumentException("Invalid expression node: " + program.kind(current));
+            };
+            values[count++] = value;
         }
-        throw new IllegalArgumentException("Operation '<=' can not be done on: " + left + " and " + right);
+        return values[0];
     }
 }
@@ -0,0 +1,450 @@
+package com.krolang.compiler.core.ast;
+
+import java.math.BigInteger;
+
+import static java.lang.Math.multiplyHigh;
+
+/**
+ * Writes numbers as ASCII straight into a byte array, with the same text as
+ * {@link Long#toString(long)}, {@link Float#toString(float)} and {@link Double#toString(double)}
+ * but without creating any object.
+ * <p>
+ * Floating point values are written as the shortest decimal that rounds back to them, found with
+ * the Schubfach algorithm of R. Giulietti, which the JDK uses as well: the decimal is computed
+ * with 128 bit fixed point multiplications by a table of powers of ten, and its digits are
+ * extracted left to right with integer multiplications only.
+ *
+ * @author autonu.kro
+ */
+final class NumberText {
+
+    /**
+     * Longest text written, {@code -2.2250738585072014E-308}, with room to spare
+     */
+    static final int MAX_LENGTH = 32;
+
+    private static final int DOUBLE_P = 53;
+    private static final int DOUBLE_Q_MIN = -1074;
+    private static final long DOUBLE_C_MIN = 1L << DOUBLE_P - 1;
+    private static final int DOUBLE_BQ_MASK = 0x7ff;
+    private static final long DOUBLE_T_MASK = DOUBLE_C_MIN - 1;
+    private static final int DOUBLE_C_TINY = 3;
+    private static final int DOUBLE_H = 17;
+
+    private static final int FLOAT_P = 24;
+    private static final int FLOAT_Q_MIN = -149;
+    private static final int FLOAT_C_MIN = 1 << FLOAT_P - 1;
+    private static final int FLOAT_BQ_MASK = 0xff;
+    private static final int FLOAT_T_MASK = FLOAT_C_MIN - 1;
+    private static final int FLOAT_C_TINY = 8;
+    private static final int FLOAT_H = 9;
+
+    private static final long MASK_63 = (1L << 63) - 1;
+    private static final long MASK_32 = (1L << 32) - 1;
+    private static final int MASK_28 = (1 << 28) - 1;
+
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    /**
+     * For every k, g = floor(10^-k 2^-r) + 1 with r such that 2^125 <= g < 2^126, split into its
+     * upper bits g1 = g >> 63 and its lower 63 bits g0
+     */
+    private static final long[] G = powersOfTen();
+    private static final long[] POW10 = new long[18];
+
+    private static final byte[] NAN = {'N', 'a', 'N'};
+    private static final byte[] INFINITY = {'I', 'n', 'f', 'i', 'n', 'i', 't', 'y'};
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private NumberText() {
+    }
+
+    /**
+     * @return position after the text
+     */
+    static int write(long value, byte[] out, int pos) {
+        if (value >= 0) {
+            value = -value;
+        } else {
+            out[pos++] = '-';
+        }
+        // Digits of a negative value, so Long.MIN_VALUE needs no special case
+        int end = pos + digitCount(value);
+        int index = end;
+        do {
+            long quotient = value / 10;
+            out[--index] = (byte) ('0' + quotient * 10 - value);
+            value = quotient;
+        } while (value != 0);
+        return end;
+    }
+
+    /**
+     * @return position after the text
+     */
+    static int write(double value, byte[] out, int pos) {
+        long bits = Double.doubleToRawLongBits(value);
+        long t = bits & DOUBLE_T_MASK;
+        int bq = (int) (bits >>> DOUBLE_P - 1) & DOUBLE_BQ_MASK;
+        if (bq == DOUBLE_BQ_MASK) {
+            return special(t != 0, bits < 0, out, pos);
+        }
+        if (bits < 0) {
+            out[pos++] = '-';
+        }
+        if (bq != 0) {
+            int mq = -DOUBLE_Q_MIN + 1 - bq;
+            long c = DOUBLE_C_MIN | t;
+            if (0 < mq && mq < DOUBLE_P) {
+                long f = c >> mq;
+                if (f << mq == c) {
+                    return doubleChars(f, 0, out, pos);
+                }
+            }
+            return doubleDecimal(-mq, c, 0, out, pos);
+        }
+        if (t != 0) {
+            return t < DOUBLE_C_TINY
+                    ? doubleDecimal(DOUBLE_Q_MIN, 10 * t, -1, out, pos)
+                    : doubleDecimal(DOUBLE_Q_MIN, t, 0, out, pos);
+        }
+        return zero(out, pos);
+    }
+
+    /**
+     * @return position after the text
+     */
+    static int write(float value, byte[] out, int pos) {
+        int bits = Float.floatToRawIntBits(value);
+        int t = bits & FLOAT_T_MASK;
+        int bq = (bits >>> FLOAT_P - 1) & FLOAT_BQ_MASK;
+        if (bq == FLOAT_BQ_MASK) {
+            return special(t != 0, bits < 0, out, pos);
+        }
+        if (bits < 0) {
+            out[pos++] = '-';
+        }
+        if (bq != 0) {
+            int mq = -FLOAT_Q_MIN + 1 - bq;
+            int c = FLOAT_C_MIN | t;
+            if (0 < mq && mq < FLOAT_P) {
+                int f = c >> mq;
+                if (f << mq == c) {
+                    return floatChars(f, 0, out, pos);
+                }
+            }
+            return floatDecimal(-mq, c, 0, out, pos);
+        }
+        if (t != 0) {
+            return t < FLOAT_C_TINY
+                    ? floatDecimal(FLOAT_Q_MIN, 10 * t, -1, out, pos)
+                    : floatDecimal(FLOAT_Q_MIN, t, 0, out, pos);
+        }
+        return zero(out, pos);
+    }
+
+    /**
+     * Find the shortest decimal rounding to {@code c 2^q}, see figures 7 and 9 of the Schubfach
+     * paper. Candidates are compared as fixed point values with two fraction bits.
+     */
+    private static int doubleDecimal(int q, long c, int dk, byte[] out, int pos) {
+        int odd = (int) c & 0x1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != DOUBLE_C_MIN || q == DOUBLE_Q_MIN) {
+            cbl = cb - 2;
+            k = floorLog10Pow2(q);
+        } else {
+            // The gap below a power of two is half the one above
+            cbl = cb - 1;
+            k = floorLog10ThreeQuartersPow2(q);
+        }
+        int h = q + floorLog2Pow10(-k) + 2;
+        long g1 = G[(k - K_MIN) << 1];
+        long g0 = G[(k - K_MIN) << 1 | 1];
+
+        long vb = roundToOdd(g1, g0, cb << h);
+        long vbl = roundToOdd(g1, g0, cbl << h);
+        long vbr = roundToOdd(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100) {
+            // One digit less, s' = floor(s / 10)
+            long sp10 = 10 * multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + odd <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + odd <= vbr;
+            if (upin != wpin) {
+                return doubleChars(upin ? sp10 : tp10, k, out, pos);
+            }
+        }
+        long t = s + 1;
+        boolean uin = vbl + odd <= s << 2;
+        boolean win = (t << 2) + odd <= vbr;
+        if (uin != win) {
+            return doubleChars(uin ? s : t, k + dk, out, pos);
+        }
+        // Both round to the value, take the closest one, the even one on a tie
+        long cmp = vb - (s + t << 1);
+        return doubleChars(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, out, pos);
+    }
+
+    private static int floatDecimal(int q, int c, int dk, byte[] out, int pos) {
+        int odd = c & 0x1;
+        long cb = (long) c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != FLOAT_C_MIN || q == FLOAT_Q_MIN) {
+            cbl = cb - 2;
+            k = floorLog10Pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = floorLog10ThreeQuartersPow2(q);
+        }
+        int h = q + floorLog2Pow10(-k) + 33;
+        long g = G[(k - K_MIN) << 1] + 1;
+
+        int vb = roundToOdd(g, cb << h);
+        int vbl = roundToOdd(g, cbl << h);
+        int vbr = roundToOdd(g, cbr << h);
+
+        int s = vb >> 2;
+        if (s >= 100) {
+            int sp10 = 10 * (int) (s * 1_717_986_919L >>> 34);
+            int tp10 = sp10 + 10;
+            boolean upin = vbl + odd <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + odd <= vbr;
+            if (upin != wpin) {
+                return floatChars(upin ? sp10 : tp10, k, out, pos);
+            }
+        }
+        int t = s + 1;
+        boolean uin = vbl + odd <= s << 2;
+        boolean win = (t << 2) + odd <= vbr;
+        if (uin != win) {
+            return floatChars(uin ? s : t, k + dk, out, pos);
+        }
+        int cmp = vb - (s + t << 1);
+        return floatChars(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, out, pos);
+    }
+
+    /**
+     * Gives {@code cp g 2^-127} rounded to odd, g = g1 2^63 + g0
+     */
+    private static long roundToOdd(long g1, long g0, long cp) {
+        long x1 = multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    private static int roundToOdd(long g, long cp) {
+        long x1 = multiplyHigh(g, cp);
+        long vbp = x1 >>> 31;
+        return (int) (vbp | (x1 & MASK_32) + MASK_32 >>> 32);
+    }
+
+    /**
+     * Write {@code f 10^e}, f has at most 17 digits
+     */
+    private static int doubleChars(long f, int e, byte[] out, int pos) {
+        int length = floorLog10Pow2(Long.SIZE - Long.numberOfLeadingZeros(f));
+        if (f >= POW10[length]) {
+            length++;
+        }
+        // Now 10^16 <= f < 10^17 and the value is 0.f 10^e
+        f *= POW10[DOUBLE_H - length];
+        e += length;
+        // floor(f / 10^8) and floor(hm / 10^8) by multiplication
+        long hm = multiplyHigh(f, 193_428_131_138_340_668L) >>> 20;
+        int low = (int) (f - 100_000_000L * hm);
+        int high = (int) (hm * 1_441_151_881L >>> 57);
+        int middle = (int) (hm - 100_000_000 * high);
+        return chars(high, middle, low, true, e, out, pos);
+    }
+
+    /**
+     * Write {@code f 10^e}, f has at most 9 digits
+     */
+    private static int floatChars(int f, int e, byte[] out, int pos) {
+        int length = floorLog10Pow2(Integer.SIZE - Integer.numberOfLeadingZeros(f));
+        if (f >= POW10[length]) {
+            length++;
+        }
+        f *= (int) POW10[FLOAT_H - length];
+        e += length;
+        int high = (int) (f * 1_441_151_881L >>> 57);
+        int low = f - 100_000_000 * high;
+        return chars(high, low, 0, false, e, out, pos);
+    }
+
+    /**
+     * Write {@code 0.d 10^e} where d is the digit {@code high} followed by the 8 digits of
+     * {@code middle} and, if {@code hasLow}, the 8 digits of {@code low}. It is plain text for
+     * 10^-3 <= value < 10^7, computerized scientific notation otherwise.
+     */
+    private static int chars(int high, int middle, int low, boolean hasLow, int e, byte[] out, int pos) {
+        if (0 < e && e <= 7) {
+            out[pos++] = (byte) ('0' + high);
+            int y = fraction(middle);
+            int i = 1;
+            for (; i < e; i++) {
+                int t = 10 * y;
+                out[pos++] = (byte) ('0' + (t >>> 28));
+                y = t & MASK_28;
+            }
+            out[pos++] = '.';
+            for (; i <= 8; i++) {
+                int t = 10 * y;
+                out[pos++] = (byte) ('0' + (t >>> 28));
+                y = t & MASK_28;
+            }
+            return lowDigits(low, hasLow, out, pos);
+        }
+        if (-3 < e && e <= 0) {
+            out[pos++] = '0';
+            out[pos++] = '.';
+            for (; e < 0; e++) {
+                out[pos++] = '0';
+            }
+            out[pos++] = (byte) ('0' + high);
+            pos = eightDigits(middle, out, pos);
+            return lowDigits(low, hasLow, out, pos);
+        }
+        out[pos++] = (byte) ('0' + high);
+        out[pos++] = '.';
+        pos = eightDigits(middle, out, pos);
+        pos = lowDigits(low, hasLow, out, pos);
+        return exponent(e - 1, out, pos);
+    }
+
+    private static int lowDigits(int low, boolean hasLow, byte[] out, int pos) {
+        if (hasLow && low != 0) {
+            pos = eightDigits(low, out, pos);
+        }
+        // Drop trailing zeroes, but keep the one right after the point
+        while (out[pos - 1] == '0') {
+            pos--;
+        }
+        if (out[pos - 1] == '.') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Write the 8 digits of {@code value} left to right, as a fixed point fraction with 28 bits
+     */
+    private static int eightDigits(int value, byte[] out, int pos) {
+        int y = fraction(value);
+        for (int i = 0; i < 8; i++) {
+            int t = 10 * y;
+            out[pos++] = (byte) ('0' + (t >>> 28));
+            y = t & MASK_28;
+        }
+        return pos;
+    }
+
+    /**
+     * Gives floor((value + 1) 2^28 / 10^8) - 1, the 8 digits of value as a fixed point fraction
+     */
+    private static int fraction(int value) {
+        return (int) (multiplyHigh((long) (value + 1) << 28, 193_428_131_138_340_668L) >>> 20) - 1;
+    }
+
+    private static int exponent(int e, byte[] out, int pos) {
+        out[pos++] = 'E';
+        if (e < 0) {
+            out[pos++] = '-';
+            e = -e;
+        }
+        if (e >= 100) {
+            out[pos++] = (byte) ('0' + e / 100);
+            e = e % 100;
+            out[pos++] = (byte) ('0' + e / 10);
+        } else if (e >= 10) {
+            out[pos++] = (byte) ('0' + e / 10);
+        }
+        out[pos++] = (byte) ('0' + e % 10);
+        return pos;
+    }
+
+    private static int special(boolean nan, boolean negative, byte[] out, int pos) {
+        if (nan) {
+            System.arraycopy(NAN, 0, out, pos, NAN.length);
+            return pos + NAN.length;
+        }
+        if (negative) {
+            out[pos++] = '-';
+        }
+        System.arraycopy(INFINITY, 0, out, pos, INFINITY.length);
+        return pos + INFINITY.length;
+    }
+
+    private static int zero(byte[] out, int pos) {
+        out[pos++] = '0';
+        out[pos++] = '.';
+        out[pos++] = '0';
+        return pos;
+    }
+
+    /**
+     * Gives the number of digits of a value that is not positive
+     */
+    private static int digitCount(long negative) {
+        long bound = -10;
+        for (int count = 1; count < 19; count++) {
+            if (negative > bound) {
+                return count;
+            }
+            bound = bound * 10;
+        }
+        return 19;
+    }
+
+    /**
+     * Gives floor(log10(2^e))
+     */
+    private static int floorLog10Pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    /**
+     * Gives floor(log10(3/4 2^e))
+     */
+    private static int floorLog10ThreeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+    }
+
+    /**
+     * Gives floor(log2(10^e))
+     */
+    private static int floorLog2Pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+
+    private static long[] powersOfTen() {
+        long[] table = new long[(K_MAX - K_MIN + 1) * 2];
+        BigInteger mask = BigInteger.ONE.shiftLeft(63).subtract(BigInteger.ONE);
+        for (int k = K_MIN; k <= K_MAX; k++) {
+            int r = floorLog2Pow10(-k) - 125;
+            BigInteger numerator = BigInteger.TEN.pow(Math.max(-k, 0)).shiftLeft(Math.max(-r, 0));
+            BigInteger denominator = BigInteger.TEN.pow(Math.max(k, 0)).shiftLeft(Math.max(r, 0));
+            BigInteger g = numerator.divide(denominator).add(BigInteger.ONE);
+            table[(k - K_MIN) << 1] = g.shiftRight(63).longValueExact();
+            table[(k - K_MIN) << 1 | 1] = g.and(mask).longValueExact();
+        }
+        return table;
+    }
+}
@@ -0,0 +1,359 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenKind;
+
+/**
+ * Semantics of the KroLang values and operators, shared by every execution engine so they all
+ * give the same results and raise the same errors.
+ *
+ * @author autonu.kro
+ */
+public final class Operations {
+
+    private Operations() {
+    }
+
+    public static Object literalOf(Token token) {
+        return switch (token.tokenKind()) {
+            case NUM_LIT, STR_LIT, TRUE, FALSE, NIL -> literalOf(token.tokenKind(), token.content().orElse(null));
+            default -> throw new IllegalArgumentException("Invalid literal: " + token);
+        };
+    }
+
+    /**
+     * Decode a literal from the kind and content of its token, null for a token without content
+     */
+    public static Object literalOf(TokenKind tokenKind, String content) {
+        return switch (tokenKind) {
+            case NUM_LIT -> content == null ? null : Double.valueOf(content);
+            case STR_LIT -> content == null ? null : content.replaceAll("(^'|'$|\\\\)", "");
+            case TRUE -> Boolean.TRUE;
+            case FALSE -> Boolean.FALSE;
+            case NIL -> null;
+            default -> throw new IllegalArgumentException("Invalid literal: " + tokenKind);
+        };
+    }
+
+    public static Object binaryOf(Token operator, Object left, Object right) {
+        return binaryOf(operator.tokenKind(), left, right);
+    }
+
+    public static Object binaryOf(TokenKind operator, Object left, Object right) {
+        return switch (operator) {
+            case PLUS -> additionOf(left, right);
+            case MINUS -> subtractionOf(left, right);
+            case MULTIPLICATION -> multiplicationOf(left, right);
+            case DIVISION -> divisionOf(left, right);
+            case AND -> logicalAndOf(left, right);
+            case OR -> logicalOrOf(left, right);
+            case EQ -> equalOf(left, right);
+            case NOT_EQ -> !equalOf(left, right);
+            case GT -> greaterOf(left, right);
+            case LT -> lesserOf(left, right);
+            case GT_EQ -> greaterOrEqualOf(left, right);
+            case LT_EQ -> lesserOrEqualOf(left, right);
+            default -> throw new IllegalArgumentException("Invalid operator: " + operator);
+        };
+    }
+
+    /**
+     * Print a value the way the Print statement shows it
+     */
+    public static void print(Object object, Output output) {
+        switch (object) {
+            case null -> output.println(TokenKind.NIL.symbol());
+            case String str -> output.println(str);
+            case Rope rope -> output.println(rope.toString());
+            case Double d -> print(d.doubleValue(), output);
+            case Boolean bool -> output.println(bool ? TokenKind.TRUE.symbol() : TokenKind.FALSE.symbol());
+            default -> output.println(String.valueOf(object));
+        }
+    }
+
+    /**
+     * Print a Num the way the Print statement shows it: an integral value without a fraction, any
+     * other value as the shortest text of the float or else the double it equals
+     */
+    public static void print(double num, Output output) {
+        if (num == (int) num || num == (long) num) {
+            output.println((long) num);
+        } else if (num == (float) num) {
+            output.println((float) num);
+        } else {
+            output.println(num);
+        }
+    }
+
+    public static boolean isArithmetic(TokenKind tokenKind) {
+        return tokenKind == TokenKind.PLUS || tokenKind == TokenKind.MINUS
+                || tokenKind == TokenKind.MULTIPLICATION || tokenKind == TokenKind.DIVISION;
+    }
+
+    public static double arithmeticOf(TokenKind tokenKind, double left, double right) {
+        return switch (tokenKind) {
+            case PLUS -> left + right;
+            case MINUS -> left - right;
+            case MULTIPLICATION -> left * right;
+            case DIVISION -> Double.compare(right, 0.0) == 0 ? Double.NaN : left / right;
+            default -> throw new IllegalArgumentException("Invalid operator: " + tokenKind);
+        };
+    }
+
+    /**
+     * Same results as the generic operations on boxed values, equality compares like {@link Double#equals}
+     */
+    public static boolean comparisonOf(TokenKind tokenKind, double left, double right) {
+        return switch (tokenKind) {
+            case EQ -> Double.doubleToLongBits(left) == Double.doubleToLongBits(right);
+            case NOT_EQ -> Double.doubleToLongBits(left) != Double.doubleToLongBits(right);
+            case GT -> Double.compare(left, right) > 0;
+            case LT -> Double.compare(left, right) < 0;
+            case GT_EQ -> Double.compare(left, right) >= 0;
+            case LT_EQ -> Double.compare(left, right) <= 0;
+            default -> throw new IllegalArgumentException("Invalid operator: " + tokenKind);
+        };
+    }
+
+    public static Boolean makeNot(Object object) {
+        if (object == null) {
+            return true;
+        }
+        if (object instanceof Boolean bool) {
+            return !bool;
+        }
+        throw new IllegalArgumentException("Invalid object: " + object);
+    }
+
+    public static Double makeNegate(Object object) {
+
+        if (object == null) {
+            return null;
+        }
+        if (object instanceof Double number) {
+            return -number;
+        }
+        throw new IllegalArgumentException("Invalid object: " + object);
+    }
+
+    public static Object additionOf(Object left, Object right) {
+        if (left == null) {
+            throw new IllegalArgumentException("Operation '+' on Nil can not be done");
+        }
+        if (right == null) {
+            throw new IllegalArgumentException("Operation '+' on Nil can not be done");
+        }
+        if (left instanceof Double leftNum) {
+            if (right instanceof Double rightNum) {
+                return Double.sum(leftNum, rightNum);
+            } else {
+                throw new IllegalArgumentException("Operation '+' can not be done on different types");
+            }
+        }
+        if (left instanceof CharSequence letStr) {
+            if (right instanceof CharSequence rightStr) {
+                return Rope.concat(letStr, rightStr);
+            } else {
+                throw new IllegalArgumentException("Operation '+' can not be done on different types");
+            }
+        }
+        throw new IllegalArgumentException("Operation '+' can not be done on: " + left + " and " + right);
+    }
+
+    public static Double subtractionOf(Object left, Object right) {
+        if (left == null) {
+            throw new IllegalArgumentException("Operation '-' on Nil can not be done");
+        }
+        if (right == null) {
+            throw new IllegalArgumentException("Operation '-' on Nil can not be done");
+        }
+        if (left instanceof Double leftNum) {
+            if (right instanceof Double rightNum) {
+                return Double.sum(leftNum, -rightNum);
+            } else {
+                throw new IllegalArgumentException("Operation '-' can not be done on different types");
+            }
+        }
+        throw new IllegalArgumentException("Operation '-' can not be done on: " + left + " and " + right);
+    }
+
+    public static Double multiplicationOf(Object left, Object right) {
+        if (left == null) {
+            throw new IllegalArgumentException("Operation '*' on Nil can not be done");
+        }
+        if (right == null) {
+            throw new IllegalArgumentException("Operation '*' on Nil can not be done");
+        }
+        if (left instanceof Double leftNum) {
+            if (right instanceof Double rightNum) {
+                return leftNum * rightNum;
+            } else {
+                throw new IllegalArgumentException("Operation '*' can not be done on different types");
+            }
+        }
+        throw new IllegalArgumentException("Operation '*' can not be done on: " + left + " and " + right);
+    }
+
+    public static Double divisionOf(Object left, Object right) {
+        if (left == null) {
+            throw new IllegalArgumentException("Operation '/' on Nil can not be done");
+        }
+        if (right == null) {
+            throw new IllegalArgumentException("Operation '/' on Nil can not be done");
+        }
+        if (left instanceof Double leftNum) {
+            if (right instanceof Double rightNum) {
+                if (Double.compare(rightNum, 0.0) == 0) {
+                    return Double.NaN;
+                }
+                return leftNum / rightNum;
+            } else {
+                throw new IllegalArgumentException("Operation '/' can not be done on different types");
+            }
+        }
+        throw new IllegalArgumentException("Operation '/' can not be done on: " + left + " and " + right);
+    }
+
+    public static Boolean logicalAndOf(Object left, Object right) {
+        if (left == null) {
+            throw new IllegalArgumentException("Operation '&&' on Nil can not be done");
+        }
+        if (right == null) {
+            throw new IllegalArgumentException("Operation '&&' on Nil can not be done");
+        }
+        if (left instanceof Boolean leftBool) {
+            if (right instanceof Boolean rightBool) {
+                return leftBool && rightBool;
+            } else {
+                throw new IllegalArgumentException("Operation '&&' can not be done on different types");
+            }
+        }
+        throw new IllegalArgumentException("Operation '&&' can not be done on: " + left + " and " + right);
+    }
+
+    public static Boolean logicalOrOf(Object left, Object right) {
+        if (left == null) {
+            throw new IllegalArgumentException("Operation '||' on Nil can not be done");
+        }
+        if (right == null) {
+            throw new IllegalArgumentException("Operation '||' on Nil can not be done");
+        }
+        if (left instanceof Boolean leftBool) {
+            if (right instanceof Boolean rightBool) {
+                return leftBool || rightBool;
+            } else {
+                throw new IllegalArgumentException("Operation '||' can not be done on different types");
+            }
+        }
+        throw new IllegalArgumentException("Operation '||' can not be done on: " + left + " and " + right);
+    }
+
+    public static Boolean equalOf(Object left, Object right) {
+        if (left == null) {
+            throw new IllegalArgumentException("Operation '==' on Nil can not be done");
+        }
+        if (right == null) {
+            throw new IllegalArgumentException("Operation '==' on Nil can not be done");
+        }
+        if (left instanceof CharSequence leftStr && right instanceof CharSequence rightStr) {
+            return leftStr.length() == rightStr.length() && leftStr.toString().equals(rightStr.toString());
+        }
+        return left.equals(right);
+    }
+
+    public static Boolean greaterOf(Object left, Object right) {
+        if (left == null) {
+            throw new IllegalArgumentException("Operation '>' on Nil can not be done");
+        }
+        if (right == null) {
+            throw new IllegalArgumentException("Operation '>' on Nil can not be done");
+        }
+        if (left instanceof Double leftNum) {
+            if (right instanceof Double rightNum) {
+                return Double.compare(leftNum, rightNum) > 0;
+            } else {
+                throw new IllegalArgumentException("Operation '>' can not be done on different types");
+            }
+        }
+        if (left instanceof CharSequence letStr) {
+            if (right instanceof CharSequence rightStr) {
+                return letStr.toString().compareTo(rightStr.toString()) > 0;
+            } else {
+                throw new IllegalArgumentException("Operation '>' can not be done on different types");
+            }
+        }
+        throw new IllegalArgumentException("Operation '>' can not be done on: " + left + " and " + right);
+    }
+
+    public static Boolean lesserOf(Object left, Object right) {
+        if (left == null) {
+            throw new IllegalArgumentException("Operation '<' on Nil can not be done");
+        }
+        if (right == null) {
+            throw new IllegalArgumentException("Operation '<' on Nil can not be done");
+        }
+        if (left instanceof Double leftNum) {
+            if (right instanceof Double rightNum) {
+                return Double.compare(leftNum, rightNum) < 0;
+            } else {
+                throw new IllegalArgumentException("Operation '>' can not be done on different types");
+            }
+        }
+        if (left instanceof CharSequence letStr) {
+            if (right instanceof CharSequence rightStr) {
+                return letStr.toString().compareTo(rightStr.toString()) < 0;
+            } else {
+                throw new IllegalArgumentException("Operation '<' can not be done on different types");
+            }
+        }
+        throw new IllegalArgumentException("Operation '<' can not be done on: " + left + " and " + right);
+    }
+
+    public static Boolean greaterOrEqualOf(Object left, Object right) {
+        if (left == null) {
+            throw new IllegalArgumentException("Operation '>=' on Nil can not be done");
+        }
+        if (right == null) {
+            throw new IllegalArgumentException("Operation '>=' on Nil can not be done");
+        }
+        if (left instanceof Double leftNum) {
+            if (right instanceof Double rightNum) {
+                return Double.compare(leftNum, rightNum) >= 0;
+            } else {
+                throw new IllegalArgumentException("Operation '>=' can not be done on different types");
+            }
+        }
+        if (left instanceof CharSequence letStr) {
+            if (right instanceof CharSequence rightStr) {
+                return letStr.toString().compareTo(rightStr.toString()) >= 0;
+            } else {
+                throw new IllegalArgumentException("Operation '>=' can not be done on different types");
+            }
+        }
+        throw new IllegalArgumentException("Operation '>=' can not be done on: " + left + " and " + right);
+    }
+
+    public static Boolean lesserOrEqualOf(Object left, Object right) {
+        if (left == null) {
+            throw new IllegalArgumentException("Operation '<=' on Nil can not be done");
+        }
+        if (right == null) {
+            throw new IllegalArgumentException("Operation '<=' on Nil can not be done");
+        }
+        if (left instanceof Double leftNum) {
+            if (right instanceof Double rightNum) {
+                return Double.compare(leftNum, rightNum) <= 0;
+            } else {
+                throw new IllegalArgumentException("Operation '<=' can not be done on different types");
+            }
+        }
+        if (left instanceof CharSequence letStr) {
+            if (right instanceof CharSequence rightStr) {
+                return letStr.toString().compareTo(rightStr.toString()) <= 0;
+            } else {
+                throw new IllegalArgumentException("Operation '<=' can not be done on different types");
+            }
+        }
+        throw new IllegalArgumentException("Operation '<=' can not be done on: " + left + " and " + right);
+    }
+}
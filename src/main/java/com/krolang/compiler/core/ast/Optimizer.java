@@ -0,0 +1,116 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.lox.Token;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pass between the {@link Resolver} and the {@link Interpreter} returning an optimised copy of
+ * the tree. Literals are decoded once into {@link Expression.Value} nodes and unary, binary and
+ * grouping expressions over values only are folded into a single value.
+ * <p>
+ * An expression whose evaluation fails is left as it is, so the error is still raised when, and
+ * only if, the expression is executed.
+ *
+ * @author autonu.kro
+ */
+public class Optimizer {
+
+    private final Interpreter folder = new Interpreter(List.of());
+    private final Folding expressions = new Folding();
+
+    public List<Statement> optimize(List<Statement> statements) {
+        final List<Statement> optimized = new ArrayList<>(statements.size());
+        for (Statement statement : statements) {
+            optimized.add(optimize(statement));
+        }
+        return optimized;
+    }
+
+    public Statement optimize(Statement statement) {
+        return switch (statement) {
+            case Statement.ExpressionStatement expressionStatement ->
+                    new Statement.ExpressionStatement(optimizeExpression(expressionStatement.expression()));
+            case Statement.PrintStatement printStatement ->
+                    new Statement.PrintStatement(optimizeExpression(printStatement.expression()));
+            case Statement.VariableDeclaration declaration ->
+                    new Statement.VariableDeclaration(declaration.identifier(), declaration.type(), optimizeExpression(declaration.expression()), declaration.slot());
+            case Statement.CodeBlock codeBlock -> new Statement.CodeBlock(optimize(codeBlock.statements()));
+            default -> throw new IllegalArgumentException("Invalid statement: " + statement);
+        };
+    }
+
+    private Expression optimizeExpression(Expression expression) {
+        return expression == null ? null : flat(expressions.fold(expression));
+    }
+
+    /**
+     * Fold an expression over values into a single value, or leave it if evaluating it fails
+     */
+    private Expression constant(Expression expression, Token token) {
+        try {
+            return new Expression.Value(expression.accept(folder), token);
+        } catch (RuntimeException e) {
+            return expression;
+        }
+    }
+
+    /**
+     * Constants reach the code generators, which only know plain Strings. A Str folded from
+     * others stays a {@link Rope} until it is the operand of an expression that is not folded,
+     * so folding a long concatenation copies its text once.
+     */
+    private static Expression flat(Expression expression) {
+        if (expression instanceof Expression.Value value && value.value() instanceof Rope rope) {
+            return new Expression.Value(rope.toString(), value.token());
+        }
+        return expression;
+    }
+
+    private final class Folding extends ExpressionFold<Expression> {
+
+        @Override
+        protected Expression literal(Expression.Literal literal) {
+            return constant(literal, literal.literal());
+        }
+
+        @Override
+        protected Expression variable(Expression.Variable variable) {
+            return variable;
+        }
+
+        @Override
+        protected Expression value(Expression.Value value) {
+            return value;
+        }
+
+        @Override
+        protected Expression unary(Expression.Unary unary, Expression right) {
+            if (right instanceof Expression.Value
+                    && constant(new Expression.Unary(unary.operator(), right), unary.operator()) instanceof Expression.Value folded) {
+                return folded;
+            }
+            return new Expression.Unary(unary.operator(), flat(right));
+        }
+
+        @Override
+        protected Expression binary(Expression.Binary binary, Expression left, Expression right) {
+            if (left instanceof Expression.Value && right instanceof Expression.Value
+                    && constant(new Expression.Binary(left, binary.operator(), right, binary.operands()), binary.operator()) instanceof Expression.Value folded) {
+                return folded;
+            }
+            return new Expression.Binary(flat(left), binary.operator(), flat(right), binary.operands());
+        }
+
+        @Override
+        protected Expression grouping(Expression.Grouping grouping, Expression inner) {
+            return inner instanceof Expression.Value ? inner : new Expression.Grouping(inner);
+        }
+
+        @Override
+        protected Expression assignment(Expression.Assignment assignment, Expression value) {
+            return new Expression.Assignment(assignment.identifier(), flat(value), assignment.slot());
+        }
+    }
+}
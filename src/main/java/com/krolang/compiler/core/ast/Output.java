@@ -0,0 +1,229 @@
+package com.krolang.compiler.core.ast;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Destination of the Print statement. Lines are encoded into a byte buffer, which is handed to a
+ * channel when it fills up and on {@link #flush()}, so a printed line costs no system call and
+ * takes no lock. Numbers are formatted straight into the buffer by {@link NumberText}. The caller
+ * flushes when the program ends.
+ * <p>
+ * An output is used by one thread at a time.
+ *
+ * @author autonu.kro
+ */
+public final class Output implements Flushable {
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+    private static final int CONSOLE_CAPACITY = 8 * 1024;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private final WritableByteChannel channel;
+    private final Flushable target;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer buffer;
+    private final boolean lineFlushed;
+
+    private Output(WritableByteChannel channel, Flushable target, Charset charset, int capacity, boolean lineFlushed) {
+        if (capacity < NumberText.MAX_LENGTH) {
+            throw new IllegalArgumentException("Output capacity too small: " + capacity);
+        }
+        this.channel = channel;
+        this.target = target;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffer = ByteBuffer.allocate(capacity);
+        this.lineFlushed = lineFlushed;
+    }
+
+    /**
+     * Buffered output to {@link System#out}, for running a file.
+     */
+    public static Output standard() {
+        return of(System.out, System.out.charset(), DEFAULT_CAPACITY, false);
+    }
+
+    /**
+     * Output to {@link System#out} flushed after every line, for interactive use.
+     */
+    public static Output console() {
+        return of(System.out, System.out.charset(), CONSOLE_CAPACITY, true);
+    }
+
+    /**
+     * Buffered UTF-8 output to a channel.
+     */
+    public static Output of(WritableByteChannel channel) {
+        return of(channel, DEFAULT_CAPACITY);
+    }
+
+    public static Output of(WritableByteChannel channel, int capacity) {
+        return new Output(channel, null, StandardCharsets.UTF_8, capacity, false);
+    }
+
+    /**
+     * Buffered output appending to {@code appendable}, flushed too when it is {@link Flushable}.
+     */
+    public static Output of(Appendable appendable) {
+        Flushable target = appendable instanceof Flushable flushable ? flushable : null;
+        return new Output(new AppendableChannel(appendable), target, StandardCharsets.UTF_8, DEFAULT_CAPACITY, false);
+    }
+
+    private static Output of(OutputStream stream, Charset charset, int capacity, boolean lineFlushed) {
+        return new Output(Channels.newChannel(stream), stream, charset, capacity, lineFlushed);
+    }
+
+    /**
+     * Write a line of text followed by the line separator.
+     */
+    public void println(CharSequence text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                encode(text, i, length);
+                break;
+            }
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) c);
+        }
+        endLine();
+    }
+
+    /**
+     * Write a number as {@link Long#toString(long)} does, followed by the line separator.
+     */
+    public void println(long value) {
+        int pos = reserveNumber();
+        buffer.position(NumberText.write(value, buffer.array(), pos) - buffer.arrayOffset());
+        endLine();
+    }
+
+    /**
+     * Write a number as {@link Float#toString(float)} does, followed by the line separator.
+     */
+    public void println(float value) {
+        int pos = reserveNumber();
+        buffer.position(NumberText.write(value, buffer.array(), pos) - buffer.arrayOffset());
+        endLine();
+    }
+
+    /**
+     * Write a number as {@link Double#toString(double)} does, followed by the line separator.
+     */
+    public void println(double value) {
+        int pos = reserveNumber();
+        buffer.position(NumberText.write(value, buffer.array(), pos) - buffer.arrayOffset());
+        endLine();
+    }
+
+    /**
+     * Hand the buffered bytes to the channel.
+     *
+     * @throws UncheckedIOException if the channel fails
+     */
+    @Override
+    public void flush() {
+        drain();
+        if (target != null) {
+            try {
+                target.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Make room for a number, its digits are written straight into the buffer array
+     *
+     * @return index in the array the number starts at
+     */
+    private int reserveNumber() {
+        if (buffer.remaining() < NumberText.MAX_LENGTH) {
+            drain();
+        }
+        return buffer.arrayOffset() + buffer.position();
+    }
+
+    private void endLine() {
+        if (buffer.remaining() < LINE_SEPARATOR.length) {
+            drain();
+        }
+        buffer.put(LINE_SEPARATOR);
+        if (lineFlushed) {
+            flush();
+        }
+    }
+
+    /**
+     * Encode {@code text[start, end)} through the charset, draining the buffer whenever it is full.
+     * The encoder never splits a character, so every drained buffer holds whole characters.
+     */
+    private void encode(CharSequence text, int start, int end) {
+        CharBuffer chars = CharBuffer.wrap(text, start, end);
+        encoder.reset();
+        while (encoder.encode(chars, buffer, true).isOverflow()) {
+            drain();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Channel decoding the bytes it is handed and appending the text. Every write holds whole
+     * characters, see {@link #encode}.
+     */
+    private static final class AppendableChannel implements WritableByteChannel {
+
+        private final Appendable appendable;
+
+        private AppendableChannel(Appendable appendable) {
+            this.appendable = appendable;
+        }
+
+        @Override
+        public int write(ByteBuffer bytes) throws IOException {
+            int count = bytes.remaining();
+            appendable.append(StandardCharsets.UTF_8.decode(bytes));
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
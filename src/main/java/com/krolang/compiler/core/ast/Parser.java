@@ -2,29 +2,127 @@ package com.krolang.compiler.core.ast;
 
 import com.krolang.compiler.core.SyntaxError;
 import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenBuffer;
+import com.krolang.compiler.core.lox.TokenCursor;
 import com.krolang.compiler.core.lox.TokenKind;
 
-import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 
 /**
  * @author autonu.kro
  */
-public class Parser implements Serializable {
+public class Parser {
 
-    private final List<Token> tokens;
-    private int current = 0;
+    /**
+     * Least number of tokens parsed as one chunk by {@link #parse(TokenBuffer, ForkJoinPool)}
+     */
+    private static final int CHUNK_TOKENS = 16 * 1024;
+
+    /**
+     * Binding power of every binary operator by {@link TokenKind#ordinal()}, a higher one binds
+     * tighter, 0 for a token that is no binary operator
+     */
+    private static final int[] BINDING_POWERS = new int[TokenKind.values().length];
+
+    static {
+        bind(1, TokenKind.EQ, TokenKind.NOT_EQ);
+        bind(2, TokenKind.LT, TokenKind.LT_EQ, TokenKind.GT, TokenKind.GT_EQ);
+        bind(3, TokenKind.PLUS, TokenKind.MINUS);
+        bind(4, TokenKind.MULTIPLICATION, TokenKind.DIVISION);
+    }
+
+    private final TokenCursor cursor;
+
+    private static void bind(int bindingPower, TokenKind... operators) {
+        for (TokenKind operator : operators) {
+            BINDING_POWERS[operator.ordinal()] = bindingPower;
+        }
+    }
 
     public Parser(List<Token> tokens) {
-        this.tokens = tokens;
+        this(TokenBuffer.copyOf(tokens));
+    }
+
+    public Parser(TokenBuffer tokens) {
+        this(tokens.cursor());
+    }
+
+    public Parser(TokenCursor cursor) {
+        this.cursor = cursor;
     }
 
     public List<Statement> parse() {
         return program();
     }
 
+    /**
+     * Parse the program handing every top level statement to {@code statements} as soon as it is complete.
+     */
+    public void parse(Consumer<Statement> statements) {
+        while (!isAtEnd()) {
+            statements.accept(declaration());
+        }
+    }
+
+    /**
+     * Parse a program with its top level statements split into chunks parsed on {@code pool}. A
+     * pre-scan cuts the tokens after a {@code ;} outside any code block, where a statement must end
+     * or the parser fails anyway, so the statements equal the ones of a sequential parse. Of several
+     * syntax errors the first one in the source is thrown.
+     */
+    public static List<Statement> parse(TokenBuffer tokens, ForkJoinPool pool) {
+        List<ChunkParse> chunks = chunks(tokens);
+        if (chunks.size() == 1) {
+            return new Parser(tokens).parse();
+        }
+        final List<ForkJoinTask<ChunkParse.Parsed>> parses = new ArrayList<>(chunks.size());
+        for (ChunkParse chunk : chunks) {
+            parses.add(pool.submit(chunk));
+        }
+        final List<Statement> statements = new ArrayList<>();
+        for (int i = 0; i < parses.size(); i++) {
+            ChunkParse.Parsed parsed = parses.get(i).join();
+            if (parsed.failure() != null) {
+                for (ForkJoinTask<ChunkParse.Parsed> later : parses.subList(i + 1, parses.size())) {
+                    later.cancel(false);
+                }
+                throw parsed.failure();
+            }
+            statements.addAll(parsed.statements());
+        }
+        return statements;
+    }
+
+    private static List<ChunkParse> chunks(TokenBuffer tokens) {
+        final List<ChunkParse> chunks = new ArrayList<>();
+        int eof = tokens.size() - 1;
+        int from = 0;
+        int depth = 0;
+        for (int i = 0; i < eof; i++) {
+            switch (tokens.kind(i)) {
+                case OPEN_CURLY -> depth++;
+                case CLOSE_CURLY -> depth--;
+                case SEMI -> {
+                    if (depth == 0 && i + 1 - from >= CHUNK_TOKENS) {
+                        chunks.add(new ChunkParse(tokens, from, i + 1));
+                        from = i + 1;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        chunks.add(new ChunkParse(tokens, from, eof));
+        return chunks;
+    }
+
     private List<Statement> program() {
         final List<Statement> statements = new ArrayList<>();
         while (!isAtEnd()) {
@@ -51,6 +149,7 @@ public class Parser implements Serializable {
         if (!match(TokenKind.NUM, TokenKind.STR, TokenKind.BOOL)) {
             throw new SyntaxError(peek(), "<type>");
         }
+        Type type = Type.of(previous().tokenKind());
         if (match(TokenKind.ASSIGN)) {
             Expression expression = expression();
             if (!match(TokenKind.SEMI)) {
@@ -59,8 +158,7 @@ public class Parser implements Serializable {
             if (identifier.content().isEmpty()) {
                 throw new SyntaxError(peek(), TokenKind.IDENTIFIER.symbol());
             }
-            Context.defineExpression(identifier.content().get(), expression);
-            return new Statement.VariableDeclaration(identifier, expression);
+            return new Statement.VariableDeclaration(identifier, type, expression);
         }
         if (!match(TokenKind.SEMI)) {
             throw new SyntaxError(peek(), TokenKind.SEMI.symbol());
@@ -69,8 +167,7 @@ public class Parser implements Serializable {
             throw new SyntaxError(peek(), TokenKind.IDENTIFIER.symbol());
         }
         Expression nilExpr = new Expression.Literal(new Token(TokenKind.NIL, Optional.empty(), identifier.source(), identifier.line()));
-        Context.defineExpression(identifier.content().get(), nilExpr);
-        return new Statement.VariableDeclaration(identifier, nilExpr);
+        return new Statement.VariableDeclaration(identifier, type, nilExpr);
     }
 
     private Statement statement() {
@@ -95,7 +192,6 @@ public class Parser implements Serializable {
         if (!match(TokenKind.CLOSE_CURLY)) {
             throw new SyntaxError(peek(), TokenKind.CLOSE_PARENTHESIS.symbol());
         }
-        System.out.println(statements);
         return statements;
     }
 
@@ -115,84 +211,106 @@ public class Parser implements Serializable {
         return new Statement.PrintStatement(expression);
     }
 
+    /**
+     * Parse an expression by precedence climbing over {@link #BINDING_POWERS}. Pending operators,
+     * open groupings and assignments waiting for their value are kept on explicit stacks instead of
+     * the Java stack, so a long or deeply nested expression is parsed in linear time whatever its
+     * depth. Binary operators are left associative, prefix operators bind tighter than all of them
+     * and assignment binds loosest, to the right.
+     */
     private Expression expression() {
-        return assignment();
-    }
-
-    private Expression assignment() {
-        Expression expression = equality();
-        Token identifier = previous();
-        if (identifier.content().isEmpty()) {
-            throw new SyntaxError(peek(), TokenKind.IDENTIFIER.symbol());
-        }
-        if (match(TokenKind.ASSIGN)) {
-            Expression assignment = assignment();
-            Context.defineExpression(identifier.content().get(), assignment);
-            return new Expression.Assignment(identifier, assignment);
-        }
-        return expression;
-    }
-
-    private Expression equality() {
-        Expression expression = comparison();
-        while (match(TokenKind.EQ, TokenKind.NOT_EQ)) {
-            Token operator = previous();
-            Expression rightExpr = comparison();
-            expression = new Expression.Binary(expression, operator, rightExpr);
-        }
-        return expression;
-    }
-
-    private Expression comparison() {
-        Expression term = term();
-        while (match(TokenKind.LT, TokenKind.LT_EQ, TokenKind.GT, TokenKind.GT_EQ)) {
-            Token operator = previous();
-            Expression rightExpr = term();
-            term = new Expression.Binary(term, operator, rightExpr);
+        final List<Expression> operands = new ArrayList<>();
+        final PendingOperators pending = new PendingOperators();
+        while (true) {
+            // operand, after its prefix operators and open groupings
+            while (true) {
+                if (check(TokenKind.NOT) || check(TokenKind.MINUS)) {
+                    consume();
+                    pending.push(PendingOperators.PREFIX, previous());
+                } else if (check(TokenKind.OPEN_PARENTHESIS)) {
+                    consume();
+                    pending.push(PendingOperators.GROUPING, previous());
+                } else {
+                    break;
+                }
+            }
+            operands.add(primary());
+            while (true) {
+                while (pending.top() == PendingOperators.PREFIX) {
+                    operands.add(new Expression.Unary(pending.pop(), operands.removeLast()));
+                }
+                int bindingPower = bindingPower();
+                if (bindingPower > 0) {
+                    while (pending.top() == PendingOperators.BINARY && pending.bindingPower() >= bindingPower) {
+                        reduceBinary(operands, pending);
+                    }
+                    consume();
+                    pending.push(PendingOperators.BINARY, previous(), bindingPower);
+                    break;
+                }
+                while (pending.top() == PendingOperators.BINARY) {
+                    reduceBinary(operands, pending);
+                }
+                if (check(TokenKind.ASSIGN)) {
+                    // Only a variable standing alone is assigned, not an operand of an operator
+                    if (!(operands.getLast() instanceof Expression.Variable) || !cursor.previousHasContent()) {
+                        throw new SyntaxError(peek(), TokenKind.IDENTIFIER.symbol());
+                    }
+                    Token identifier = previous();
+                    consume();
+                    operands.removeLast();
+                    pending.push(PendingOperators.ASSIGNMENT, identifier);
+                    break;
+                }
+                while (pending.top() == PendingOperators.ASSIGNMENT) {
+                    operands.add(new Expression.Assignment(pending.pop(), operands.removeLast()));
+                }
+                if (pending.top() == PendingOperators.NONE) {
+                    return operands.removeLast();
+                }
+                if (!match(TokenKind.CLOSE_PARENTHESIS)) {
+                    throw new SyntaxError(peek(), TokenKind.CLOSE_PARENTHESIS.symbol());
+                }
+                pending.pop();
+                operands.add(new Expression.Grouping(operands.removeLast()));
+            }
         }
-        return term;
     }
 
-    private Expression term() {
-        Expression factor = factor();
-        while (match(TokenKind.PLUS, TokenKind.MINUS)) {
-            Token operator = previous();
-            Expression rightExpr = factor();
-            factor = new Expression.Binary(factor, operator, rightExpr);
-        }
-        return factor;
+    private static void reduceBinary(List<Expression> operands, PendingOperators pending) {
+        Expression rightExpr = operands.removeLast();
+        Expression leftExpr = operands.removeLast();
+        operands.add(new Expression.Binary(leftExpr, pending.pop(), rightExpr));
     }
 
-    private Expression factor() {
-        Expression unary = unary();
-        while (match(TokenKind.MULTIPLICATION, TokenKind.DIVISION)) {
-            Token operator = previous();
-            Expression rightExpr = unary();
-            unary = new Expression.Binary(unary, operator, rightExpr);
+    /**
+     * Binding power of the current token as a binary operator, 0 if it is not one
+     */
+    private int bindingPower() {
+        if (isAtEnd()) {
+            return 0;
         }
-        return unary;
+        return bindingPowerOf(cursor.kind());
     }
 
-    private Expression unary() {
-        if (match(TokenKind.NOT, TokenKind.MINUS)) {
-            Token operator = previous();
-            Expression unary = unary();
-            return new Expression.Unary(operator, unary);
-        }
-        return primary();
+    static int bindingPowerOf(TokenKind tokenKind) {
+        return BINDING_POWERS[tokenKind.ordinal()];
     }
 
     private Expression primary() {
-        if (match(TokenKind.NUM_LIT, TokenKind.STR_LIT, TokenKind.TRUE, TokenKind.FALSE, TokenKind.NIL)) {
-            return new Expression.Literal(previous());
-        } else if (match(TokenKind.IDENTIFIER)) {
-            return new Expression.Variable(previous());
-        } else if (match(TokenKind.OPEN_PARENTHESIS)) {
-            Expression expression = expression();
-            if (!match(TokenKind.CLOSE_PARENTHESIS)) {
-                throw new SyntaxError(peek(), TokenKind.CLOSE_PARENTHESIS.symbol());
+        if (!isAtEnd()) {
+            switch (cursor.kind()) {
+                case NUM_LIT, STR_LIT, TRUE, FALSE, NIL -> {
+                    consume();
+                    return new Expression.Literal(previous());
+                }
+                case IDENTIFIER -> {
+                    consume();
+                    return new Expression.Variable(previous());
+                }
+                default -> {
+                }
             }
-            return new Expression.Grouping(expression);
         }
         throw new SyntaxError(peek(), TokenKind.OPEN_PARENTHESIS.symbol());
     }
@@ -203,7 +321,7 @@ public class Parser implements Serializable {
      * @return a token
      */
     private Token previous() {
-        return tokens.get(current - 1);
+        return cursor.previous();
     }
 
     /**
@@ -212,26 +330,21 @@ public class Parser implements Serializable {
      * @return a token
      */
     private Token peek() {
-        return tokens.get(current);
+        return cursor.peek();
     }
 
     /**
      * Check if there's any token left.
      */
     private boolean isAtEnd() {
-        return peek().tokenKind() == TokenKind.EOF;
+        return cursor.isAtEnd();
     }
 
     /**
      * Consume a token and move the pointer to the next token
-     *
-     * @return a token
      */
-    private Token consume() {
-        if (!isAtEnd()) {
-            current = current + 1;
-        }
-        return previous();
+    private void consume() {
+        cursor.advance();
     }
 
     /**
@@ -243,7 +356,20 @@ public class Parser implements Serializable {
         if (isAtEnd()) {
             return false;
         }
-        return peek().tokenKind() == tokenKind;
+        return cursor.kind() == tokenKind;
+    }
+
+    /**
+     * Match a token with the current token, consuming it on a match
+     *
+     * @param tokenKind to match
+     */
+    private boolean match(TokenKind tokenKind) {
+        if (check(tokenKind)) {
+            consume();
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -260,4 +386,70 @@ public class Parser implements Serializable {
         }
         return false;
     }
+
+    /**
+     * Stack of what an expression is waiting on: binary and prefix operators for their operands,
+     * groupings for their closing parenthesis and assignments for their value
+     */
+    private static final class PendingOperators {
+
+        private static final int NONE = 0;
+        private static final int BINARY = 1;
+        private static final int PREFIX = 2;
+        private static final int GROUPING = 3;
+        private static final int ASSIGNMENT = 4;
+
+        private int[] kinds = new int[16];
+        private int[] bindingPowers = new int[16];
+        private Token[] tokens = new Token[16];
+        private int size;
+
+        private void push(int kind, Token token) {
+            push(kind, token, 0);
+        }
+
+        private void push(int kind, Token token, int bindingPower) {
+            if (size == kinds.length) {
+                kinds = Arrays.copyOf(kinds, size * 2);
+                bindingPowers = Arrays.copyOf(bindingPowers, size * 2);
+                tokens = Arrays.copyOf(tokens, size * 2);
+            }
+            kinds[size] = kind;
+            bindingPowers[size] = bindingPower;
+            tokens[size] = token;
+            size++;
+        }
+
+        private Token pop() {
+            Token token = tokens[--size];
+            tokens[size] = null;
+            return token;
+        }
+
+        private int top() {
+            return size == 0 ? NONE : kinds[size - 1];
+        }
+
+        private int bindingPower() {
+            return bindingPowers[size - 1];
+        }
+    }
+
+    /**
+     * Parse of the tokens {@code [from, to)}, a syntax error is kept for the caller to order.
+     */
+    private record ChunkParse(TokenBuffer tokens, int from, int to) implements Callable<ChunkParse.Parsed> {
+
+        private record Parsed(List<Statement> statements, SyntaxError failure) {
+        }
+
+        @Override
+        public Parsed call() {
+            try {
+                return new Parsed(new Parser(tokens.cursor(from, to)).parse(), null);
+            } catch (SyntaxError e) {
+                return new Parsed(List.of(), e);
+            }
+        }
+    }
 }
@@ -0,0 +1,128 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenKind;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pass between the {@link Parser} and the {@link Interpreter} giving every variable name a slot
+ * in the {@link Environment}. It returns a copy of the tree whose variables, assignments and
+ * declarations carry their slot, so the interpreter never looks a name up at runtime.
+ * <p>
+ * Names share one flat scope, code blocks do not open a new one. A resolver keeps its slots
+ * across calls, so statements resolved one by one (the REPL, streaming mode) agree on them.
+ *
+ * @author autonu.kro
+ */
+public class Resolver {
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final Resolving expressions = new Resolving();
+
+    public List<Statement> resolve(List<Statement> statements) {
+        final List<Statement> resolved = new ArrayList<>(statements.size());
+        for (Statement statement : statements) {
+            resolved.add(resolve(statement));
+        }
+        return resolved;
+    }
+
+    public Statement resolve(Statement statement) {
+        return switch (statement) {
+            case Statement.ExpressionStatement expressionStatement ->
+                    new Statement.ExpressionStatement(resolveExpression(expressionStatement.expression()));
+            case Statement.PrintStatement printStatement ->
+                    new Statement.PrintStatement(resolveExpression(printStatement.expression()));
+            case Statement.VariableDeclaration declaration ->
+                    new Statement.VariableDeclaration(declaration.identifier(), declaration.type(), resolveExpression(declaration.expression()), slotOf(declaration.identifier()));
+            case Statement.CodeBlock codeBlock -> new Statement.CodeBlock(resolve(codeBlock.statements()));
+            default -> throw new IllegalArgumentException("Invalid statement: " + statement);
+        };
+    }
+
+    /**
+     * Give the variables, assignments and declarations of an arena their slot in place. The nodes
+     * are scanned in the order they were completed, the order in which resolving the statements
+     * of {@link AstArena#toStatements()} would hand out the slots.
+     */
+    public AstArena resolve(AstArena arena) {
+        for (int node = 0; node < arena.size(); node++) {
+            switch (arena.kind(node)) {
+                case VARIABLE, ASSIGNMENT, VARIABLE_DECLARATION -> arena.resolve(node, slotOf(arena.content(node)));
+                default -> {
+                }
+            }
+        }
+        return arena;
+    }
+
+    /**
+     * Number of slots handed out so far
+     */
+    public int slotCount() {
+        return slots.size();
+    }
+
+    private Expression resolveExpression(Expression expression) {
+        return expression == null ? null : expressions.fold(expression);
+    }
+
+    private int slotOf(Token identifier) {
+        return slotOf(identifier.content().orElse(null));
+    }
+
+    private int slotOf(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Expected identifier content");
+        }
+        return slots.computeIfAbsent(name, key -> slots.size());
+    }
+
+    /**
+     * Copy of an expression with the slots of its variables, assignments after their value
+     */
+    private final class Resolving extends ExpressionFold<Expression> {
+
+        @Override
+        protected Expression literal(Expression.Literal literal) {
+            if (literal.literal().tokenKind() == TokenKind.IDENTIFIER) {
+                return new Expression.Variable(literal.literal(), slotOf(literal.literal()));
+            }
+            return literal;
+        }
+
+        @Override
+        protected Expression variable(Expression.Variable variable) {
+            return new Expression.Variable(variable.identifier(), slotOf(variable.identifier()));
+        }
+
+        @Override
+        protected Expression value(Expression.Value value) {
+            return value;
+        }
+
+        @Override
+        protected Expression unary(Expression.Unary unary, Expression right) {
+            return new Expression.Unary(unary.operator(), right);
+        }
+
+        @Override
+        protected Expression binary(Expression.Binary binary, Expression left, Expression right) {
+            return new Expression.Binary(left, binary.operator(), right, binary.operands());
+        }
+
+        @Override
+        protected Expression grouping(Expression.Grouping grouping, Expression inner) {
+            return new Expression.Grouping(inner);
+        }
+
+        @Override
+        protected Expression assignment(Expression.Assignment assignment, Expression value) {
+            return new Expression.Assignment(assignment.identifier(), value, slotOf(assignment.identifier()));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.krolang.compiler.core.ast;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A Str built by {@code +}, holding its two operands instead of copying them. Building a string
+ * from n pieces then costs O(n), the text is copied once, the first time it is read, and kept.
+ * Short results are concatenated right away, a node would cost more than the copy.
+ *
+ * @author autonu.kro
+ */
+public final class Rope implements CharSequence {
+
+    /**
+     * Results up to this length are plain Strings
+     */
+    static final int FLAT_LENGTH = 64;
+
+    private final int length;
+    private CharSequence left;
+    private CharSequence right;
+    private String flat;
+
+    private Rope(CharSequence left, CharSequence right, int length) {
+        this.left = left;
+        this.right = right;
+        this.length = length;
+    }
+
+    /**
+     * Gives the Str {@code left + right}, a String or a Rope
+     */
+    public static CharSequence concat(CharSequence left, CharSequence right) {
+        if (left.isEmpty()) {
+            return right;
+        }
+        if (right.isEmpty()) {
+            return left;
+        }
+        int length = Math.addExact(left.length(), right.length());
+        if (length <= FLAT_LENGTH) {
+            return left.toString().concat(right.toString());
+        }
+        return new Rope(left, right, length);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    /**
+     * Gives the text, copied from the pieces on the first call. The tree is walked with an explicit
+     * stack, a long chain of concatenations must not overflow the thread stack.
+     */
+    @Override
+    public String toString() {
+        if (flat != null) {
+            return flat;
+        }
+        char[] chars = new char[length];
+        int end = length;
+        Deque<CharSequence> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            CharSequence piece = pending.pop();
+            if (piece instanceof Rope rope && rope.flat == null) {
+                // Filled from the end, the left operand is taken after the right one
+                pending.push(rope.left);
+                pending.push(rope.right);
+                continue;
+            }
+            String text = piece.toString();
+            end = end - text.length();
+            text.getChars(0, text.length(), chars, end);
+        }
+        flat = new String(chars);
+        left = null;
+        right = null;
+        return flat;
+    }
+}
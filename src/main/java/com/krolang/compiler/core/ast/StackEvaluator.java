@@ -0,0 +1,99 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenKind;
+
+/**
+ * Evaluates an expression of any depth with an {@link ExpressionFold}. The engines evaluate
+ * expressions by recursion, the fastest way for the expressions programs are made of, and hand
+ * the parts nested deeper than {@link #RECURSION_LIMIT} to it. It gives the results and raises
+ * the errors of the {@link Interpreter}.
+ *
+ * @author autonu.kro
+ */
+public abstract class StackEvaluator extends ExpressionFold<Object> {
+
+    /**
+     * Depth of an expression up to which the engines recurse into it
+     */
+    public static final int RECURSION_LIMIT = 256;
+
+    /**
+     * Evaluator reading and writing the variables of an {@link Environment}
+     */
+    public static StackEvaluator of(Environment environment) {
+        return new EnvironmentEvaluator(environment);
+    }
+
+    /**
+     * Gives the value of a variable, failing like {@link Environment#get} if it was never assigned
+     */
+    protected abstract Object read(int slot, Token identifier);
+
+    protected abstract void write(int slot, Object value);
+
+    @Override
+    protected Object literal(Expression.Literal literal) {
+        return Operations.literalOf(literal.literal());
+    }
+
+    @Override
+    protected Object variable(Expression.Variable variable) {
+        if (variable.identifier() == null) {
+            throw new IllegalArgumentException("Invalid identifier");
+        }
+        return read(variable.slot(), variable.identifier());
+    }
+
+    @Override
+    protected Object value(Expression.Value value) {
+        return value.value();
+    }
+
+    @Override
+    protected Object unary(Expression.Unary unary, Object right) {
+        return switch (unary.operator().tokenKind()) {
+            case NOT -> Operations.makeNot(right);
+            case MINUS -> Operations.makeNegate(right);
+            default -> throw new IllegalArgumentException("Invalid operator: " + unary.operator());
+        };
+    }
+
+    @Override
+    protected Object binary(Expression.Binary binary, Object left, Object right) {
+        if (binary.operands() == Type.STR && binary.operator().tokenKind() == TokenKind.PLUS) {
+            return Rope.concat((CharSequence) left, (CharSequence) right);
+        }
+        return Operations.binaryOf(binary.operator(), left, right);
+    }
+
+    @Override
+    protected Object grouping(Expression.Grouping grouping, Object inner) {
+        return inner;
+    }
+
+    @Override
+    protected Object assignment(Expression.Assignment assignment, Object value) {
+        write(assignment.slot(), value);
+        return value;
+    }
+
+    private static final class EnvironmentEvaluator extends StackEvaluator {
+
+        private final Environment environment;
+
+        private EnvironmentEvaluator(Environment environment) {
+            this.environment = environment;
+        }
+
+        @Override
+        protected Object read(int slot, Token identifier) {
+            return environment.get(slot, identifier);
+        }
+
+        @Override
+        protected void write(int slot, Object value) {
+            environment.define(slot, value);
+        }
+    }
+}
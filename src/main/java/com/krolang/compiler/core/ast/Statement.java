@@ -38,7 +38,14 @@ public interface Statement {
         }
     }
 
-    record VariableDeclaration(Token identifier, Expression expression) implements Statement {
+    /**
+     * @param type the declared type
+     */
+    record VariableDeclaration(Token identifier, Type type, Expression expression, int slot) implements Statement {
+
+        public VariableDeclaration(Token identifier, Type type, Expression expression) {
+            this(identifier, type, expression, Expression.UNRESOLVED);
+        }
 
         @Override
         public void accept(Visitor visitor) {
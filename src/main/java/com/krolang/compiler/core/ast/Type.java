@@ -0,0 +1,57 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.lox.TokenKind;
+
+/**
+ * Static type of a value, as declared by a {@code Let} or inferred by the {@link TypeChecker}.
+ *
+ * @author autonu.kro
+ */
+public enum Type {
+    NUM("Num"),
+    STR("Str"),
+    BOOL("Bool"),
+    /**
+     * Type of Nil, the value of a variable declared without one
+     */
+    NIL("Nil"),
+    /**
+     * Unknown before execution, any value
+     */
+    ANY("Any");
+
+    private final String symbol;
+
+    Type(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String symbol() {
+        return symbol;
+    }
+
+    /**
+     * Gives the type named by a type keyword
+     */
+    public static Type of(TokenKind tokenKind) {
+        return switch (tokenKind) {
+            case NUM -> NUM;
+            case STR -> STR;
+            case BOOL -> BOOL;
+            default -> throw new IllegalArgumentException("Invalid type: " + tokenKind);
+        };
+    }
+
+    /**
+     * Gives the type of a runtime value
+     */
+    public static Type of(Object value) {
+        return switch (value) {
+            case null -> NIL;
+            case Double number -> NUM;
+            case CharSequence str -> STR;
+            case Boolean bool -> BOOL;
+            default -> ANY;
+        };
+    }
+}
@@ -0,0 +1,270 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.CompilationError;
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenKind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pass between the {@link Resolver} and the {@link Optimizer} inferring the type of every
+ * expression. A value that does not fit the declared type of its variable, or an operator whose
+ * operands it can never apply to, is reported before anything runs. It returns a copy of the tree
+ * whose binary expressions carry the type of their operands, so the engines pick the Num or Str
+ * operation without checking the values.
+ * <p>
+ * KroLang has no control flow, so the type every variable holds at each statement is exact: it is
+ * the type of the value assigned last, Nil included. A checker keeps the types across calls, like
+ * the {@link Resolver} keeps its slots. A failed check leaves them as they were.
+ *
+ * @author autonu.kro
+ */
+public class TypeChecker {
+
+    /**
+     * Declared type of every slot, null for variables without a declaration
+     */
+    private Type[] declared = new Type[16];
+    /**
+     * Type of the value every slot holds, null while it is not assigned
+     */
+    private Type[] held = new Type[16];
+    /**
+     * Slots the running check changed and the types they had before, to undo a failed check
+     * without copying every slot on each call
+     */
+    private int[] changedSlots = new int[16];
+    private Type[] changedTypes = new Type[32];
+    private int changedCount;
+    private final Checking expressions = new Checking();
+
+    public List<Statement> check(List<Statement> statements) {
+        changedCount = 0;
+        try {
+            final List<Statement> checked = new ArrayList<>(statements.size());
+            for (Statement statement : statements) {
+                checked.add(checkStatement(statement));
+            }
+            return checked;
+        } catch (RuntimeException e) {
+            while (changedCount > 0) {
+                changedCount--;
+                int slot = changedSlots[changedCount];
+                declared[slot] = changedTypes[2 * changedCount];
+                held[slot] = changedTypes[2 * changedCount + 1];
+            }
+            throw e;
+        }
+    }
+
+    public Statement check(Statement statement) {
+        return check(List.of(statement)).getFirst();
+    }
+
+    /**
+     * Forget the types the variables hold, for when statements that were checked did not all run.
+     * The declared types stay, a declaration binds its variable whether or not it ran.
+     */
+    public void forget() {
+        Arrays.fill(held, null);
+    }
+
+    private Statement checkStatement(Statement statement) {
+        return switch (statement) {
+            case Statement.ExpressionStatement expressionStatement ->
+                    new Statement.ExpressionStatement(checkExpression(expressionStatement.expression()).expression());
+            case Statement.PrintStatement printStatement ->
+                    new Statement.PrintStatement(checkExpression(printStatement.expression()).expression());
+            case Statement.VariableDeclaration declaration -> {
+                Typed value = checkExpression(declaration.expression());
+                int slot = declaration.slot();
+                ensureSlot(slot);
+                change(slot);
+                declared[slot] = declaration.type();
+                assign(declaration.identifier(), slot, value.type());
+                yield new Statement.VariableDeclaration(declaration.identifier(), declaration.type(), value.expression(), slot);
+            }
+            case Statement.CodeBlock codeBlock -> {
+                final List<Statement> statements = new ArrayList<>(codeBlock.statements().size());
+                for (Statement inner : codeBlock.statements()) {
+                    statements.add(checkStatement(inner));
+                }
+                yield new Statement.CodeBlock(statements);
+            }
+            default -> throw new IllegalArgumentException("Invalid statement: " + statement);
+        };
+    }
+
+    private Typed checkExpression(Expression expression) {
+        return expression == null ? new Typed(null, Type.ANY) : expressions.fold(expression);
+    }
+
+    private void assign(Token identifier, int slot, Type type) {
+        Type declaredType = declared[slot];
+        if (declaredType != null && declaredType != Type.ANY && isValue(type) && type != declaredType) {
+            throw typeError(identifier, "variable '" + identifier.content().orElse("")
+                    + "' is declared " + declaredType.symbol() + ", it can not hold a " + type.symbol());
+        }
+        change(slot);
+        held[slot] = type;
+    }
+
+    /**
+     * Remember the types of a slot before the running check changes them
+     */
+    private void change(int slot) {
+        if (changedCount == changedSlots.length) {
+            changedSlots = Arrays.copyOf(changedSlots, changedCount * 2);
+            changedTypes = Arrays.copyOf(changedTypes, changedCount * 4);
+        }
+        changedSlots[changedCount] = slot;
+        changedTypes[2 * changedCount] = declared[slot];
+        changedTypes[2 * changedCount + 1] = held[slot];
+        changedCount++;
+    }
+
+    private static Type unaryType(Token operator, Type operand) {
+        return switch (operator.tokenKind()) {
+            case MINUS -> switch (operand) {
+                case NUM, NIL, ANY -> operand;
+                default -> throw operationError(operator, operand.symbol());
+            };
+            case NOT -> switch (operand) {
+                case BOOL, NIL, ANY -> Type.BOOL;
+                default -> throw operationError(operator, operand.symbol());
+            };
+            default -> Type.ANY;
+        };
+    }
+
+    /**
+     * Type of the result of a binary operator, following the rules of {@link Operations}
+     */
+    private static Type binaryType(Token operator, Type left, Type right) {
+        TokenKind tokenKind = operator.tokenKind();
+        if (!isBinary(tokenKind)) {
+            return Type.ANY;
+        }
+        if (left == Type.NIL || right == Type.NIL) {
+            throw operationError(operator, Type.NIL.symbol());
+        }
+        if (tokenKind == TokenKind.EQ || tokenKind == TokenKind.NOT_EQ) {
+            return Type.BOOL;
+        }
+        if (!accepts(tokenKind, left) || !accepts(tokenKind, right)
+                || isValue(left) && isValue(right) && left != right) {
+            throw operationError(operator, left.symbol() + " and " + right.symbol());
+        }
+        return switch (tokenKind) {
+            case PLUS -> left == Type.ANY ? right : left;
+            case MINUS, MULTIPLICATION, DIVISION -> Type.NUM;
+            default -> Type.BOOL;
+        };
+    }
+
+    private static boolean accepts(TokenKind operator, Type operand) {
+        return switch (operator) {
+            case PLUS, GT, LT, GT_EQ, LT_EQ -> operand == Type.NUM || operand == Type.STR || operand == Type.ANY;
+            case MINUS, MULTIPLICATION, DIVISION -> operand == Type.NUM || operand == Type.ANY;
+            case AND, OR -> operand == Type.BOOL || operand == Type.ANY;
+            default -> true;
+        };
+    }
+
+    private static boolean isBinary(TokenKind operator) {
+        return switch (operator) {
+            case PLUS, MINUS, MULTIPLICATION, DIVISION, AND, OR, EQ, NOT_EQ, GT, LT, GT_EQ, LT_EQ -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Check if a type is the one of a value other than Nil
+     */
+    private static boolean isValue(Type type) {
+        return type == Type.NUM || type == Type.STR || type == Type.BOOL;
+    }
+
+    private void ensureSlot(int slot) {
+        if (slot < 0) {
+            throw new IllegalStateException("Variable is not resolved");
+        }
+        if (slot >= held.length) {
+            int length = Math.max(held.length * 2, slot + 1);
+            declared = Arrays.copyOf(declared, length);
+            held = Arrays.copyOf(held, length);
+        }
+    }
+
+    private static CompilationError operationError(Token operator, String operands) {
+        return typeError(operator, "operation '" + operator.tokenKind().symbol() + "' can not be done on " + operands);
+    }
+
+    private static CompilationError typeError(Token token, String message) {
+        String err = """
+                | File %s, line:%d
+                | Compilation Error: %s
+                """;
+        return new CompilationError(String.format(err, token.source(), token.line(), message));
+    }
+
+    /**
+     * A checked expression and the type of its value
+     */
+    private record Typed(Expression expression, Type type) {
+    }
+
+    /**
+     * Checks the operands before the node, an assignment changes the type its variable holds
+     * for the operands after it
+     */
+    private final class Checking extends ExpressionFold<Typed> {
+
+        @Override
+        protected Typed literal(Expression.Literal literal) {
+            return new Typed(literal, Type.of(Operations.literalOf(literal.literal())));
+        }
+
+        @Override
+        protected Typed variable(Expression.Variable variable) {
+            int slot = variable.slot();
+            Type type = slot >= 0 && slot < held.length ? held[slot] : null;
+            // A variable never assigned fails when it is read
+            return new Typed(variable, type == null ? Type.ANY : type);
+        }
+
+        @Override
+        protected Typed value(Expression.Value value) {
+            return new Typed(value, Type.of(value.value()));
+        }
+
+        @Override
+        protected Typed unary(Expression.Unary unary, Typed right) {
+            return new Typed(new Expression.Unary(unary.operator(), right.expression()), unaryType(unary.operator(), right.type()));
+        }
+
+        @Override
+        protected Typed binary(Expression.Binary binary, Typed left, Typed right) {
+            Type result = binaryType(binary.operator(), left.type(), right.type());
+            Type operands = left.type() == right.type() && isValue(left.type()) ? left.type() : Type.ANY;
+            return new Typed(new Expression.Binary(left.expression(), binary.operator(), right.expression(), operands), result);
+        }
+
+        @Override
+        protected Typed grouping(Expression.Grouping grouping, Typed inner) {
+            if (inner == null) {
+                return new Typed(grouping, Type.NIL);
+            }
+            return new Typed(new Expression.Grouping(inner.expression()), inner.type());
+        }
+
+        @Override
+        protected Typed assignment(Expression.Assignment assignment, Typed value) {
+            ensureSlot(assignment.slot());
+            assign(assignment.identifier(), assignment.slot(), value.type());
+            return new Typed(new Expression.Assignment(assignment.identifier(), value.expression(), assignment.slot()), value.type());
+        }
+    }
+}
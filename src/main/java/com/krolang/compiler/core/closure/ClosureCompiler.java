@@ -0,0 +1,265 @@
+package com.krolang.compiler.core.closure;
+
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Expression;
+import com.krolang.compiler.core.ast.Operations;
+import com.krolang.compiler.core.ast.Output;
+import com.krolang.compiler.core.ast.Rope;
+import com.krolang.compiler.core.ast.StackEvaluator;
+import com.krolang.compiler.core.ast.Statement;
+import com.krolang.compiler.core.ast.Type;
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenKind;
+
+import java.util.List;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Compiles resolved statements into closures bound to an {@link Environment} and an
+ * {@link Output}. Literals are decoded and the operation of every operator is picked here, once.
+ * An expression proven to give a Num, by its literal or by the operand types the
+ * {@link com.krolang.compiler.core.ast.TypeChecker} recorded, becomes a {@link DoubleSupplier}
+ * and is never boxed.
+ *
+ * @author autonu.kro
+ */
+final class ClosureCompiler {
+
+    private final Environment environment;
+    private final Output output;
+    /**
+     * Depth of the expression being compiled, the parts nested deeper than
+     * {@link StackEvaluator#RECURSION_LIMIT} are evaluated without closures
+     */
+    private int depth;
+
+    ClosureCompiler(Environment environment, Output output) {
+        this.environment = environment;
+        this.output = output;
+    }
+
+    Runnable[] compile(List<Statement> statements) {
+        Runnable[] compiled = new Runnable[statements.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = compile(statements.get(i));
+        }
+        return compiled;
+    }
+
+    Runnable compile(Statement statement) {
+        return switch (statement) {
+            case Statement.ExpressionStatement expressionStatement -> {
+                Supplier<Object> expression = object(required(expressionStatement.expression(), "No expression found"));
+                yield expression::get;
+            }
+            case Statement.PrintStatement printStatement -> {
+                Expression expression = required(printStatement.expression(), "No valid expression to print");
+                if (isNumber(expression)) {
+                    DoubleSupplier number = number(expression);
+                    yield () -> Operations.print(number.getAsDouble(), output);
+                }
+                Supplier<Object> value = object(expression);
+                yield () -> Operations.print(value.get(), output);
+            }
+            case Statement.VariableDeclaration declaration -> {
+                if (declaration.identifier().content().isEmpty()) {
+                    throw new IllegalArgumentException("variable identifier expected");
+                }
+                int slot = declaration.slot();
+                Supplier<Object> value = object(declaration.expression());
+                yield () -> environment.define(slot, value.get());
+            }
+            case Statement.CodeBlock codeBlock -> {
+                Runnable[] statements = compile(codeBlock.statements());
+                yield () -> {
+                    for (Runnable inner : statements) {
+                        inner.run();
+                    }
+                };
+            }
+            default -> throw new IllegalArgumentException("Invalid statement: " + statement);
+        };
+    }
+
+    /**
+     * Closure giving the value of an expression
+     */
+    Supplier<Object> object(Expression expression) {
+        if (depth == StackEvaluator.RECURSION_LIMIT) {
+            StackEvaluator evaluator = StackEvaluator.of(environment);
+            return () -> evaluator.fold(expression);
+        }
+        depth++;
+        try {
+            return objectOf(expression);
+        } finally {
+            depth--;
+        }
+    }
+
+    private Supplier<Object> objectOf(Expression expression) {
+        if (isNumber(expression)) {
+            DoubleSupplier number = number(expression);
+            return number::getAsDouble;
+        }
+        return switch (expression) {
+            case Expression.Literal literal -> constant(Operations.literalOf(literal.literal()));
+            case Expression.Value value -> constant(value.value());
+            case Expression.Grouping grouping -> grouping.expression() == null ? constant(null) : object(grouping.expression());
+            case Expression.Variable variable -> {
+                int slot = variable.slot();
+                Token identifier = required(variable.identifier(), "Invalid identifier");
+                yield () -> environment.get(slot, identifier);
+            }
+            case Expression.Assignment assignment -> {
+                int slot = assignment.slot();
+                Supplier<Object> value = object(assignment.expression());
+                yield () -> {
+                    Object evaluated = value.get();
+                    environment.define(slot, evaluated);
+                    return evaluated;
+                };
+            }
+            case Expression.Unary unary -> {
+                Supplier<Object> right = object(unary.rightExpr());
+                yield switch (unary.operator().tokenKind()) {
+                    case NOT -> () -> Operations.makeNot(right.get());
+                    case MINUS -> () -> Operations.makeNegate(right.get());
+                    default -> throw new IllegalArgumentException("Invalid operator: " + unary.operator());
+                };
+            }
+            case Expression.Binary binary -> binary(binary);
+            default -> throw new IllegalArgumentException("Invalid expression: " + expression);
+        };
+    }
+
+    private Supplier<Object> binary(Expression.Binary binary) {
+        TokenKind operator = binary.operator().tokenKind();
+        if (binary.operands() == Type.NUM) {
+            DoubleSupplier left = number(binary.leftExpr());
+            DoubleSupplier right = number(binary.rightExpr());
+            return switch (operator) {
+                case EQ -> () -> Double.doubleToLongBits(left.getAsDouble()) == Double.doubleToLongBits(right.getAsDouble());
+                case NOT_EQ -> () -> Double.doubleToLongBits(left.getAsDouble()) != Double.doubleToLongBits(right.getAsDouble());
+                case GT -> () -> Double.compare(left.getAsDouble(), right.getAsDouble()) > 0;
+                case LT -> () -> Double.compare(left.getAsDouble(), right.getAsDouble()) < 0;
+                case GT_EQ -> () -> Double.compare(left.getAsDouble(), right.getAsDouble()) >= 0;
+                case LT_EQ -> () -> Double.compare(left.getAsDouble(), right.getAsDouble()) <= 0;
+                default -> throw new IllegalArgumentException("Invalid operator: " + binary.operator());
+            };
+        }
+        Supplier<Object> left = object(binary.leftExpr());
+        Supplier<Object> right = object(binary.rightExpr());
+        if (binary.operands() == Type.STR && operator == TokenKind.PLUS) {
+            return () -> Rope.concat((CharSequence) left.get(), (CharSequence) right.get());
+        }
+        return switch (operator) {
+            case PLUS -> () -> Operations.additionOf(left.get(), right.get());
+            case MINUS -> () -> Operations.subtractionOf(left.get(), right.get());
+            case MULTIPLICATION -> () -> Operations.multiplicationOf(left.get(), right.get());
+            case DIVISION -> () -> Operations.divisionOf(left.get(), right.get());
+            case AND -> () -> Operations.logicalAndOf(left.get(), right.get());
+            case OR -> () -> Operations.logicalOrOf(left.get(), right.get());
+            case EQ -> () -> Operations.equalOf(left.get(), right.get());
+            case NOT_EQ -> () -> !Operations.equalOf(left.get(), right.get());
+            case GT -> () -> Operations.greaterOf(left.get(), right.get());
+            case LT -> () -> Operations.lesserOf(left.get(), right.get());
+            case GT_EQ -> () -> Operations.greaterOrEqualOf(left.get(), right.get());
+            case LT_EQ -> () -> Operations.lesserOrEqualOf(left.get(), right.get());
+            default -> throw new IllegalArgumentException("Invalid operator: " + binary.operator());
+        };
+    }
+
+    /**
+     * Closure giving the value of an expression known to be a Num, see {@link #isNumber}
+     */
+    DoubleSupplier number(Expression expression) {
+        if (depth == StackEvaluator.RECURSION_LIMIT) {
+            StackEvaluator evaluator = StackEvaluator.of(environment);
+            return () -> (Double) evaluator.fold(expression);
+        }
+        depth++;
+        try {
+            return numberOf(expression);
+        } finally {
+            depth--;
+        }
+    }
+
+    private DoubleSupplier numberOf(Expression expression) {
+        return switch (expression) {
+            case Expression.Literal literal when isNumber(literal) -> {
+                double number = (Double) Operations.literalOf(literal.literal());
+                yield () -> number;
+            }
+            case Expression.Value value when value.value() instanceof Double boxed -> {
+                double number = boxed;
+                yield () -> number;
+            }
+            case Expression.Grouping grouping when grouping.expression() != null -> number(grouping.expression());
+            case Expression.Unary unary when unary.operator().tokenKind() == TokenKind.MINUS && isNumber(unary.rightExpr()) -> {
+                DoubleSupplier right = number(unary.rightExpr());
+                yield () -> -right.getAsDouble();
+            }
+            case Expression.Binary binary when isNumber(binary) -> {
+                DoubleSupplier left = number(binary.leftExpr());
+                DoubleSupplier right = number(binary.rightExpr());
+                yield switch (binary.operator().tokenKind()) {
+                    case PLUS -> () -> left.getAsDouble() + right.getAsDouble();
+                    case MINUS -> () -> left.getAsDouble() - right.getAsDouble();
+                    case MULTIPLICATION -> () -> left.getAsDouble() * right.getAsDouble();
+                    case DIVISION -> () -> {
+                        double dividend = left.getAsDouble();
+                        double divisor = right.getAsDouble();
+                        return Double.compare(divisor, 0.0) == 0 ? Double.NaN : dividend / divisor;
+                    };
+                    default -> throw new IllegalArgumentException("Invalid operator: " + binary.operator());
+                };
+            }
+            default -> {
+                // An operand of a Num operator, the type checker proved it gives a Num
+                Supplier<Object> value = object(expression);
+                yield () -> (Double) value.get();
+            }
+        };
+    }
+
+    /**
+     * Check if an expression gives a Num whatever the values of the variables are
+     */
+    static boolean isNumber(Expression expression) {
+        Expression operand = expression;
+        for (int depth = 0; depth < StackEvaluator.RECURSION_LIMIT; depth++) {
+            switch (operand) {
+                case Expression.Literal literal -> {
+                    return literal.literal().tokenKind() == TokenKind.NUM_LIT && literal.literal().content().isPresent();
+                }
+                case Expression.Value value -> {
+                    return value.value() instanceof Double;
+                }
+                case Expression.Grouping grouping when grouping.expression() != null -> operand = grouping.expression();
+                case Expression.Unary unary when unary.operator().tokenKind() == TokenKind.MINUS -> operand = unary.rightExpr();
+                case Expression.Binary binary -> {
+                    return binary.operands() == Type.NUM && Operations.isArithmetic(binary.operator().tokenKind());
+                }
+                case null, default -> {
+                    return false;
+                }
+            }
+        }
+        // Deeper, it is not compiled as a Num anyway
+        return false;
+    }
+
+    private static Supplier<Object> constant(Object value) {
+        return () -> value;
+    }
+
+    private static <T> T required(T value, String message) {
+        if (value == null) {
+            throw new IllegalArgumentException(message);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,59 @@
+package com.krolang.compiler.core.closure;
+
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Output;
+import com.krolang.compiler.core.ast.Statement;
+
+import java.util.List;
+
+/**
+ * Runs statements compiled once into closures, a drop-in for the
+ * {@link com.krolang.compiler.core.ast.Interpreter}. The tree is walked only while compiling, so
+ * running a statement costs no dispatch on the kind of its nodes or on its operators. The
+ * statements are compiled when the interpreter is made, nothing runs if a statement is invalid.
+ *
+ * @author autonu.kro
+ */
+public class ClosureInterpreter {
+
+    private final ClosureCompiler compiler;
+    private final Runnable[] statements;
+
+    /**
+     * @param statements resolved by a {@link com.krolang.compiler.core.ast.Resolver}
+     */
+    public ClosureInterpreter(List<Statement> statements) {
+        this(statements, new Environment());
+    }
+
+    /**
+     * @param statements  resolved by a {@link com.krolang.compiler.core.ast.Resolver}
+     * @param environment holding the variables, it outlives this interpreter in the REPL
+     */
+    public ClosureInterpreter(List<Statement> statements, Environment environment) {
+        this(statements, environment, Output.console());
+    }
+
+    /**
+     * @param statements  resolved by a {@link com.krolang.compiler.core.ast.Resolver}
+     * @param environment holding the variables, it outlives this interpreter in the REPL
+     * @param output      receiving what is printed, flushed by the caller
+     */
+    public ClosureInterpreter(List<Statement> statements, Environment environment, Output output) {
+        this.compiler = new ClosureCompiler(environment, output);
+        this.statements = compiler.compile(statements);
+    }
+
+    public void interpret() {
+        for (Runnable statement : statements) {
+            statement.run();
+        }
+    }
+
+    /**
+     * Compile and execute a single top level statement, for programs whose statements arrive one by one.
+     */
+    public void execute(Statement statement) {
+        compiler.compile(statement).run();
+    }
+}
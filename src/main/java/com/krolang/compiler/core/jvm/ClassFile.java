@@ -0,0 +1,288 @@
+package com.krolang.compiler.core.jvm;
+
+import com.krolang.compiler.core.CompilationError;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writer of a class file with a single public static method. It only knows the constant pool
+ * entries and instructions the {@link JvmCompiler} needs. The code never branches, so the class
+ * needs no stack map frames.
+ *
+ * @author autonu.kro
+ */
+final class ClassFile {
+
+    static final int ACONST_NULL = 0x01;
+    static final int ICONST_0 = 0x03;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC = 0x12;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int DLOAD = 0x18;
+    static final int ALOAD = 0x19;
+    static final int ALOAD_0 = 0x2a;
+    static final int ALOAD_1 = 0x2b;
+    static final int ALOAD_2 = 0x2c;
+    static final int DALOAD = 0x31;
+    static final int AALOAD = 0x32;
+    static final int DSTORE = 0x39;
+    static final int ASTORE = 0x3a;
+    static final int DASTORE = 0x52;
+    static final int AASTORE = 0x53;
+    static final int POP = 0x57;
+    static final int POP2 = 0x58;
+    static final int DUP = 0x59;
+    static final int DUP_X2 = 0x5b;
+    static final int DUP2 = 0x5c;
+    static final int SWAP = 0x5f;
+    static final int DADD = 0x63;
+    static final int DSUB = 0x67;
+    static final int DMUL = 0x6b;
+    static final int DNEG = 0x77;
+    static final int RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2;
+    static final int INVOKESTATIC = 0xb8;
+    static final int CHECKCAST = 0xc0;
+    static final int WIDE = 0xc4;
+
+    /**
+     * Class file version of Java 17
+     */
+    private static final int MAJOR_VERSION = 61;
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int poolCount = 1;
+
+    private byte[] code = new byte[1024];
+    private int codeLength = 0;
+
+    int poolCount() {
+        return poolCount;
+    }
+
+    int codeLength() {
+        return codeLength;
+    }
+
+    void op(int opcode) {
+        u1(opcode);
+    }
+
+    /**
+     * Emit an instruction taking a constant pool index
+     */
+    void op(int opcode, int index) {
+        u1(opcode);
+        u2(index);
+    }
+
+    /**
+     * Emit a load or a store of a local variable, widened when the index needs it
+     */
+    void local(int opcode, int index) {
+        if (index > 0xff) {
+            u1(WIDE);
+            u1(opcode);
+            u2(index);
+        } else {
+            u1(opcode);
+            u1(index);
+        }
+    }
+
+    void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            u1(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            u1(BIPUSH);
+            u1(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            u1(SIPUSH);
+            u2(value);
+        } else {
+            loadConstant(integer(value));
+        }
+    }
+
+    void pushString(String value) {
+        loadConstant(entry("S" + value, () -> {
+            int utf8 = utf8(value);
+            pool.writeByte(CONSTANT_STRING);
+            pool.writeShort(utf8);
+        }, 1));
+    }
+
+    void pushDouble(double value) {
+        op(LDC2_W, entry("D" + Double.doubleToRawLongBits(value), () -> {
+            pool.writeByte(CONSTANT_DOUBLE);
+            pool.writeDouble(value);
+        }, 2));
+    }
+
+    int classRef(String internalName) {
+        return entry("C" + internalName, () -> {
+            int name = utf8(internalName);
+            pool.writeByte(CONSTANT_CLASS);
+            pool.writeShort(name);
+        }, 1);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    /**
+     * Gives the bytes of the class, its only method running the code emitted so far
+     */
+    byte[] toBytes(String className, String methodName, String descriptor, int maxStack, int maxLocals) {
+        if (codeLength > 0xffff || poolCount > 0xffff) {
+            throw new CompilationError("Program part is too large for a class file");
+        }
+        int thisClass = classRef(className);
+        int superClass = classRef("java/lang/Object");
+        int name = utf8(methodName);
+        int type = utf8(descriptor);
+        int codeName = utf8("Code");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(poolBytes.size() + codeLength + 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            out.writeShort(poolCount);
+            poolBytes.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(1);
+            out.writeShort(ACC_PUBLIC | ACC_STATIC);
+            out.writeShort(name);
+            out.writeShort(type);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(12 + codeLength);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(codeLength);
+            out.write(code, 0, codeLength);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void loadConstant(int index) {
+        if (index > 0xff) {
+            op(LDC_W, index);
+        } else {
+            u1(LDC);
+            u1(index);
+        }
+    }
+
+    private int integer(int value) {
+        return entry("I" + value, () -> {
+            pool.writeByte(CONSTANT_INTEGER);
+            pool.writeInt(value);
+        }, 1);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        return entry(tag + owner + "." + name + descriptor, () -> {
+            int ownerIndex = classRef(owner);
+            int nameAndType = entry("N" + name + descriptor, () -> {
+                int nameIndex = utf8(name);
+                int typeIndex = utf8(descriptor);
+                pool.writeByte(CONSTANT_NAME_AND_TYPE);
+                pool.writeShort(nameIndex);
+                pool.writeShort(typeIndex);
+            }, 1);
+            pool.writeByte(tag);
+            pool.writeShort(ownerIndex);
+            pool.writeShort(nameAndType);
+        }, 1);
+    }
+
+    private int utf8(String value) {
+        return entry("U" + value, () -> {
+            pool.writeByte(CONSTANT_UTF8);
+            try {
+                pool.writeUTF(value);
+            } catch (UTFDataFormatException e) {
+                throw new CompilationError("String is too long to be compiled: " + value.substring(0, 32) + "...");
+            }
+        }, 1);
+    }
+
+    /**
+     * Gives the index of an entry, writing it on first use. Entries it refers to are written by
+     * {@code writer} before the entry itself, so the index is only taken afterwards.
+     */
+    private int entry(String key, PoolWriter writer, int size) {
+        Integer index = entries.get(key);
+        if (index != null) {
+            return index;
+        }
+        try {
+            writer.write();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        int assigned = poolCount;
+        poolCount = poolCount + size;
+        entries.put(key, assigned);
+        return assigned;
+    }
+
+    private void u1(int value) {
+        ensureCode(1);
+        code[codeLength++] = (byte) value;
+    }
+
+    private void u2(int value) {
+        ensureCode(2);
+        code[codeLength++] = (byte) (value >> 8);
+        code[codeLength++] = (byte) value;
+    }
+
+    private void ensureCode(int length) {
+        if (codeLength + length > code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+    }
+
+    private interface PoolWriter {
+        void write() throws IOException;
+    }
+}
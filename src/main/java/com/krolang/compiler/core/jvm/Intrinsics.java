@@ -0,0 +1,87 @@
+package com.krolang.compiler.core.jvm;
+
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Expression;
+import com.krolang.compiler.core.ast.Operations;
+import com.krolang.compiler.core.ast.Output;
+import com.krolang.compiler.core.ast.StackEvaluator;
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenKind;
+
+/**
+ * Helpers called by the generated classes for what is not a single JVM instruction. They are
+ * small enough for the JIT to inline, the operator arguments are constants at every call site.
+ *
+ * @author autonu.kro
+ */
+public final class Intrinsics {
+
+    /**
+     * Kinds of the slots {@link #evaluate} reads: a Num in the {@code double} array, an object
+     * in the other one, 0 for a slot never assigned
+     */
+    static final byte NUMBER_SLOT = 1;
+    static final byte OBJECT_SLOT = 2;
+
+    private Intrinsics() {
+    }
+
+    public static double divide(double left, double right) {
+        return Operations.arithmeticOf(TokenKind.DIVISION, left, right);
+    }
+
+    public static Object compare(double left, double right, TokenKind operator) {
+        return Operations.comparisonOf(operator, left, right);
+    }
+
+    public static Object binary(Object left, Object right, TokenKind operator) {
+        return Operations.binaryOf(operator, left, right);
+    }
+
+    public static void print(double number, Output output) {
+        Operations.print(number, output);
+    }
+
+    /**
+     * Fails like reading a variable that was never assigned, typed to be used as the value read
+     */
+    public static Object undefined(Token identifier) {
+        throw Environment.notDefined(identifier);
+    }
+
+    /**
+     * Evaluates an expression too large to be compiled, with the variables of the slot arrays.
+     * The variables it assigns are written as objects.
+     */
+    public static Object evaluate(Expression expression, byte[] kinds, Object[] slots, double[] numbers) {
+        return new SlotEvaluator(kinds.clone(), slots, numbers).fold(expression);
+    }
+
+    private static final class SlotEvaluator extends StackEvaluator {
+
+        private final byte[] kinds;
+        private final Object[] slots;
+        private final double[] numbers;
+
+        private SlotEvaluator(byte[] kinds, Object[] slots, double[] numbers) {
+            this.kinds = kinds;
+            this.slots = slots;
+            this.numbers = numbers;
+        }
+
+        @Override
+        protected Object read(int slot, Token identifier) {
+            return switch (slot >= 0 && slot < kinds.length ? kinds[slot] : 0) {
+                case NUMBER_SLOT -> numbers[slot];
+                case OBJECT_SLOT -> slots[slot];
+                default -> throw Environment.notDefined(identifier);
+            };
+        }
+
+        @Override
+        protected void write(int slot, Object value) {
+            slots[slot] = value;
+            kinds[slot] = OBJECT_SLOT;
+        }
+    }
+}
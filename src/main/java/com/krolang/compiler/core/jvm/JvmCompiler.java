@@ -0,0 +1,493 @@
+package com.krolang.compiler.core.jvm;
+
+import com.krolang.compiler.core.ast.Expression;
+import com.krolang.compiler.core.ast.ExpressionFold;
+import com.krolang.compiler.core.ast.Operations;
+import com.krolang.compiler.core.ast.Statement;
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenKind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles resolved statements into JVM classes, each with a static method running a part of the
+ * program. Since KroLang has no control flow, the kind of every value is known while compiling:
+ * a Num stays a {@code double} on the operand stack and in a local variable, and Num arithmetic
+ * is a {@code dadd}, {@code dsub}, {@code dmul} or {@code dneg}. Other values are objects handed
+ * to {@link Operations}, like the other engines do.
+ * <p>
+ * Inside a method a variable lives in a JVM local. Between methods, and between calls of
+ * {@link #compile}, variables are kept in the slot arrays the methods take as arguments: a local
+ * is loaded from them on first use and written back when the method returns. An expression too
+ * large for a method is handed to {@link Intrinsics#evaluate}, which works on the slot arrays.
+ *
+ * @author autonu.kro
+ */
+final class JvmCompiler implements Statement.Visitor {
+
+    static final String SEGMENT_CLASS = "com/krolang/compiler/core/jvm/Segment";
+    static final String SEGMENT_METHOD = "run";
+    static final String SEGMENT_DESCRIPTOR = "([Ljava/lang/Object;[Ljava/lang/Object;[DLcom/krolang/compiler/core/ast/Output;)V";
+
+    /**
+     * A method is closed when its code or constant pool reaches this size, well below the class
+     * file limit of 65535, so the statement being compiled still fits
+     */
+    private static final int SEGMENT_LIMIT = 32 * 1024;
+    /**
+     * Upper bound of the code writing one variable back to the slot arrays
+     */
+    private static final int SPILL_SIZE = 10;
+    /**
+     * Number of nodes from which an expression is not compiled but evaluated, its code could
+     * not fit in a method
+     */
+    private static final int LARGE_EXPRESSION = 2048;
+    /**
+     * Length up to which a Str is sure to fit in a class file constant, 65535 bytes of modified
+     * UTF-8; longer ones are read from the segment constants
+     */
+    private static final int STRING_CONSTANT_LIMIT = 65535 / 3;
+
+    /**
+     * Local holding the {@link com.krolang.compiler.core.ast.Output}, the last method argument
+     */
+    private static final int OUTPUT_LOCAL = 3;
+
+    private static final String OBJECT = "Ljava/lang/Object;";
+    private static final String OUTPUT = "Lcom/krolang/compiler/core/ast/Output;";
+    private static final String OPERATIONS = "com/krolang/compiler/core/ast/Operations";
+    private static final String INTRINSICS = "com/krolang/compiler/core/jvm/Intrinsics";
+    private static final String TOKEN = "com/krolang/compiler/core/lox/Token";
+    private static final String EXPRESSION = "com/krolang/compiler/core/ast/Expression";
+    private static final String TOKEN_KIND = "com/krolang/compiler/core/lox/TokenKind";
+
+    /**
+     * Representation of a value: an unboxed Num, or any object
+     */
+    private enum Kind {
+        NUMBER, OBJECT
+    }
+
+    /**
+     * A compiled part of the program, its method reads {@code constants} from the first argument
+     */
+    record Segment(byte[] classBytes, Object[] constants) {
+    }
+
+    /**
+     * Kind of the value every slot holds at the current point, null while it is not assigned
+     */
+    private Kind[] slotKinds = new Kind[16];
+    private int slotCount = 0;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private ClassFile classFile;
+    private List<Object> constants;
+    private Map<Integer, Integer> numberLocals;
+    private Map<Integer, Integer> objectLocals;
+    private Set<Integer> assigned;
+    private int maxLocals;
+    private int depth;
+    private int maxStack;
+    private final Compiling expressions = new Compiling();
+
+    /**
+     * Compile statements running after the ones compiled before
+     */
+    List<Segment> compile(List<Statement> statements) {
+        segments.clear();
+        startSegment();
+        for (Statement statement : statements) {
+            statement(statement);
+        }
+        finishSegment();
+        return List.copyOf(segments);
+    }
+
+    /**
+     * Number of variable slots the compiled code uses
+     */
+    int slotCount() {
+        return slotCount;
+    }
+
+    @Override
+    public void visit(Statement.ExpressionStatement expressionStatement) {
+        Kind kind = compile(expressionStatement.expression());
+        classFile.op(kind == Kind.NUMBER ? ClassFile.POP2 : ClassFile.POP);
+        depth = depth - words(kind);
+    }
+
+    @Override
+    public void visit(Statement.PrintStatement printStatement) {
+        Kind kind = compile(printStatement.expression());
+        classFile.local(ClassFile.ALOAD, OUTPUT_LOCAL);
+        grow(1);
+        if (kind == Kind.NUMBER) {
+            invoke(INTRINSICS, "print", "(D" + OUTPUT + ")V", 3, 0);
+        } else {
+            invoke(OPERATIONS, "print", "(" + OBJECT + OUTPUT + ")V", 2, 0);
+        }
+    }
+
+    @Override
+    public void visit(Statement.VariableDeclaration variableDeclaration) {
+        store(variableDeclaration.slot(), compile(variableDeclaration.expression()));
+    }
+
+    @Override
+    public void visit(Statement.CodeBlock codeBlock) {
+        for (Statement statement : codeBlock.statements()) {
+            statement(statement);
+        }
+    }
+
+    private void statement(Statement statement) {
+        if (!(statement instanceof Statement.CodeBlock)
+                && (classFile.codeLength() + assigned.size() * SPILL_SIZE > SEGMENT_LIMIT || classFile.poolCount() > SEGMENT_LIMIT)) {
+            finishSegment();
+            startSegment();
+        }
+        statement.accept(this);
+    }
+
+    private Kind compile(Expression expression) {
+        if (ExpressionFold.size(expression, LARGE_EXPRESSION) < LARGE_EXPRESSION) {
+            return expressions.fold(expression);
+        }
+        return evaluate(expression);
+    }
+
+    /**
+     * Code handing an expression too large for a method to {@link Intrinsics#evaluate}. It reads
+     * and writes the variables in the slot arrays, so the segment is finished before, and the
+     * variables it assigns hold objects after it.
+     */
+    private Kind evaluate(Expression expression) {
+        finishSegment();
+        startSegment();
+        AssignedSlots assignedSlots = new AssignedSlots();
+        assignedSlots.fold(expression);
+        for (int slot : assignedSlots.slots) {
+            if (slot < 0) {
+                throw new IllegalStateException("Variable is not resolved");
+            }
+            slotCount = Math.max(slotCount, slot + 1);
+        }
+        byte[] kinds = new byte[slotCount];
+        for (int slot = 0; slot < kinds.length && slot < slotKinds.length; slot++) {
+            if (slotKinds[slot] != null) {
+                kinds[slot] = slotKinds[slot] == Kind.NUMBER ? Intrinsics.NUMBER_SLOT : Intrinsics.OBJECT_SLOT;
+            }
+        }
+        constantOf(expression, EXPRESSION);
+        constantOf(kinds, "[B");
+        classFile.op(ClassFile.ALOAD_1);
+        classFile.op(ClassFile.ALOAD_2);
+        grow(2);
+        invoke(INTRINSICS, "evaluate", "(L" + EXPRESSION + ";[B[" + OBJECT + "[D)" + OBJECT, 4, 1);
+        for (int slot : assignedSlots.slots) {
+            if (slot >= slotKinds.length) {
+                slotKinds = Arrays.copyOf(slotKinds, Math.max(slotKinds.length * 2, slot + 1));
+            }
+            slotKinds[slot] = Kind.OBJECT;
+        }
+        return Kind.OBJECT;
+    }
+
+    /**
+     * Push a constant of the segment, cast to {@code type}
+     */
+    private void constantOf(Object value, String type) {
+        classFile.op(ClassFile.ALOAD_0);
+        grow(1);
+        pushInt(constant(value));
+        classFile.op(ClassFile.AALOAD);
+        depth = depth - 1;
+        classFile.op(ClassFile.CHECKCAST, classFile.classRef(type));
+    }
+
+    private Kind value(Object value) {
+        switch (value) {
+            case null -> classFile.op(ClassFile.ACONST_NULL);
+            case Double number -> {
+                classFile.pushDouble(number);
+                grow(2);
+                return Kind.NUMBER;
+            }
+            case String string when string.length() <= STRING_CONSTANT_LIMIT -> classFile.pushString(string);
+            case Boolean bool -> classFile.op(ClassFile.GETSTATIC,
+                    classFile.fieldRef("java/lang/Boolean", bool ? "TRUE" : "FALSE", "Ljava/lang/Boolean;"));
+            default -> {
+                classFile.op(ClassFile.ALOAD_0);
+                grow(1);
+                pushInt(constant(value));
+                classFile.op(ClassFile.AALOAD);
+                depth = depth - 2;
+            }
+        }
+        grow(1);
+        return Kind.OBJECT;
+    }
+
+    private void arithmetic(int opcode) {
+        classFile.op(opcode);
+        depth = depth - 2;
+    }
+
+    private void box(Kind kind) {
+        if (kind == Kind.NUMBER) {
+            invoke("java/lang/Double", "valueOf", "(D)Ljava/lang/Double;", 2, 1);
+        }
+    }
+
+    private void tokenKind(TokenKind tokenKind) {
+        classFile.op(ClassFile.GETSTATIC, classFile.fieldRef(TOKEN_KIND, tokenKind.name(), "L" + TOKEN_KIND + ";"));
+        grow(1);
+    }
+
+    private void invoke(String owner, String name, String descriptor, int argumentWords, int resultWords) {
+        classFile.op(ClassFile.INVOKESTATIC, classFile.methodRef(owner, name, descriptor));
+        depth = depth - argumentWords;
+        grow(resultWords);
+    }
+
+    private void pushInt(int value) {
+        classFile.pushInt(value);
+        grow(1);
+    }
+
+    private void store(int slot, Kind kind) {
+        if (slot < 0) {
+            throw new IllegalStateException("Variable is not resolved");
+        }
+        int local = local(slot, kind, false);
+        classFile.local(kind == Kind.NUMBER ? ClassFile.DSTORE : ClassFile.ASTORE, local);
+        depth = depth - words(kind);
+        if (slot >= slotKinds.length) {
+            slotKinds = Arrays.copyOf(slotKinds, Math.max(slotKinds.length * 2, slot + 1));
+        }
+        slotKinds[slot] = kind;
+        slotCount = Math.max(slotCount, slot + 1);
+        assigned.add(slot);
+    }
+
+    /**
+     * Gives the JVM local of a slot for values of {@code kind}, loading it from the slot arrays
+     * when it is read before this method assigned it.
+     */
+    private int local(int slot, Kind kind, boolean read) {
+        Map<Integer, Integer> locals = kind == Kind.NUMBER ? numberLocals : objectLocals;
+        Integer local = locals.get(slot);
+        if (local != null) {
+            return local;
+        }
+        int allocated = maxLocals;
+        maxLocals = maxLocals + words(kind);
+        locals.put(slot, allocated);
+        if (read) {
+            classFile.op(kind == Kind.NUMBER ? ClassFile.ALOAD_2 : ClassFile.ALOAD_1);
+            grow(1);
+            pushInt(slot);
+            classFile.op(kind == Kind.NUMBER ? ClassFile.DALOAD : ClassFile.AALOAD);
+            depth = depth - 2;
+            grow(words(kind));
+            classFile.local(kind == Kind.NUMBER ? ClassFile.DSTORE : ClassFile.ASTORE, allocated);
+            depth = depth - words(kind);
+        }
+        return allocated;
+    }
+
+    private int constant(Object value) {
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    private void grow(int words) {
+        depth = depth + words;
+        maxStack = Math.max(maxStack, depth);
+    }
+
+    private static int words(Kind kind) {
+        return kind == Kind.NUMBER ? 2 : 1;
+    }
+
+    private void startSegment() {
+        classFile = new ClassFile();
+        constants = new ArrayList<>();
+        numberLocals = new HashMap<>();
+        objectLocals = new HashMap<>();
+        assigned = new LinkedHashSet<>();
+        // The constants, the two slot arrays and the output
+        maxLocals = OUTPUT_LOCAL + 1;
+        depth = 0;
+        maxStack = 0;
+    }
+
+    private void finishSegment() {
+        if (classFile.codeLength() == 0) {
+            return;
+        }
+        for (int slot : assigned) {
+            Kind kind = slotKinds[slot];
+            classFile.op(kind == Kind.NUMBER ? ClassFile.ALOAD_2 : ClassFile.ALOAD_1);
+            grow(1);
+            pushInt(slot);
+            int local = (kind == Kind.NUMBER ? numberLocals : objectLocals).get(slot);
+            classFile.local(kind == Kind.NUMBER ? ClassFile.DLOAD : ClassFile.ALOAD, local);
+            grow(words(kind));
+            classFile.op(kind == Kind.NUMBER ? ClassFile.DASTORE : ClassFile.AASTORE);
+            depth = 0;
+        }
+        classFile.op(ClassFile.RETURN);
+        byte[] bytes = classFile.toBytes(SEGMENT_CLASS, SEGMENT_METHOD, SEGMENT_DESCRIPTOR, maxStack, maxLocals);
+        segments.add(new Segment(bytes, constants.toArray()));
+    }
+
+    /**
+     * Compiles the operands, leaving their values on the operand stack, then the node
+     */
+    private final class Compiling extends ExpressionFold<Kind> {
+
+        @Override
+        protected Kind literal(Expression.Literal literal) {
+            return JvmCompiler.this.value(Operations.literalOf(literal.literal()));
+        }
+
+        @Override
+        protected Kind variable(Expression.Variable variable) {
+            int slot = variable.slot();
+            Kind kind = slot < slotKinds.length ? slotKinds[slot] : null;
+            if (kind == null) {
+                constantOf(variable.identifier(), TOKEN);
+                invoke(INTRINSICS, "undefined", "(L" + TOKEN + ";)" + OBJECT, 1, 1);
+                return Kind.OBJECT;
+            }
+            int local = local(slot, kind, true);
+            classFile.local(kind == Kind.NUMBER ? ClassFile.DLOAD : ClassFile.ALOAD, local);
+            grow(words(kind));
+            return kind;
+        }
+
+        @Override
+        protected Kind value(Expression.Value value) {
+            return JvmCompiler.this.value(value.value());
+        }
+
+        @Override
+        protected Kind unary(Expression.Unary unary, Kind right) {
+            switch (unary.operator().tokenKind()) {
+                case MINUS -> {
+                    if (right == Kind.NUMBER) {
+                        classFile.op(ClassFile.DNEG);
+                        return Kind.NUMBER;
+                    }
+                    invoke(OPERATIONS, "makeNegate", "(" + OBJECT + ")Ljava/lang/Double;", 1, 1);
+                }
+                case NOT -> {
+                    box(right);
+                    invoke(OPERATIONS, "makeNot", "(" + OBJECT + ")Ljava/lang/Boolean;", 1, 1);
+                }
+                default -> throw new IllegalArgumentException("Invalid operator: " + unary.operator());
+            }
+            return Kind.OBJECT;
+        }
+
+        @Override
+        protected Kind binary(Expression.Binary binary, Kind left, Kind right) {
+            TokenKind operator = binary.operator().tokenKind();
+            if (left == Kind.NUMBER && right == Kind.NUMBER) {
+                switch (operator) {
+                    case PLUS -> arithmetic(ClassFile.DADD);
+                    case MINUS -> arithmetic(ClassFile.DSUB);
+                    case MULTIPLICATION -> arithmetic(ClassFile.DMUL);
+                    case DIVISION -> invoke(INTRINSICS, "divide", "(DD)D", 4, 2);
+                    case EQ, NOT_EQ, GT, LT, GT_EQ, LT_EQ -> {
+                        tokenKind(operator);
+                        invoke(INTRINSICS, "compare", "(DDL" + TOKEN_KIND + ";)" + OBJECT, 5, 1);
+                        return Kind.OBJECT;
+                    }
+                    default -> throw new IllegalArgumentException("Invalid operator: " + binary.operator());
+                }
+                return Kind.NUMBER;
+            }
+            box(right);
+            if (left == Kind.NUMBER) {
+                // Move the object under the Num to box the Num
+                grow(1);
+                classFile.op(ClassFile.DUP_X2);
+                classFile.op(ClassFile.POP);
+                depth = depth - 1;
+                box(Kind.NUMBER);
+                classFile.op(ClassFile.SWAP);
+            }
+            tokenKind(operator);
+            invoke(INTRINSICS, "binary", "(" + OBJECT + OBJECT + "L" + TOKEN_KIND + ";)" + OBJECT, 3, 1);
+            return Kind.OBJECT;
+        }
+
+        @Override
+        protected Kind grouping(Expression.Grouping grouping, Kind inner) {
+            return inner == null ? JvmCompiler.this.value(null) : inner;
+        }
+
+        @Override
+        protected Kind assignment(Expression.Assignment assignment, Kind kind) {
+            classFile.op(kind == Kind.NUMBER ? ClassFile.DUP2 : ClassFile.DUP);
+            grow(words(kind));
+            store(assignment.slot(), kind);
+            return kind;
+        }
+    }
+
+    /**
+     * Slots an expression assigns
+     */
+    private static final class AssignedSlots extends ExpressionFold<Void> {
+
+        private final Set<Integer> slots = new LinkedHashSet<>();
+
+        @Override
+        protected Void literal(Expression.Literal literal) {
+            return null;
+        }
+
+        @Override
+        protected Void variable(Expression.Variable variable) {
+            return null;
+        }
+
+        @Override
+        protected Void value(Expression.Value value) {
+            return null;
+        }
+
+        @Override
+        protected Void unary(Expression.Unary unary, Void right) {
+            return null;
+        }
+
+        @Override
+        protected Void binary(Expression.Binary binary, Void left, Void right) {
+            return null;
+        }
+
+        @Override
+        protected Void grouping(Expression.Grouping grouping, Void inner) {
+            return null;
+        }
+
+        @Override
+        protected Void assignment(Expression.Assignment assignment, Void value) {
+            slots.add(assignment.slot());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.krolang.compiler.core.jvm;
+
+import com.krolang.compiler.core.ast.Output;
+import com.krolang.compiler.core.ast.Statement;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs statements compiled into JVM classes by the {@link JvmCompiler}. The classes are defined
+ * as hidden classes, so HotSpot compiles them like any other code and unloads them once the
+ * engine is gone.
+ * <p>
+ * Variables outlive a run, so a program can be run statement by statement on the same engine.
+ *
+ * @author autonu.kro
+ */
+public class JvmEngine {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType SEGMENT_TYPE = MethodType.methodType(void.class, Object[].class, Object[].class, double[].class, Output.class);
+
+    private final JvmCompiler compiler = new JvmCompiler();
+    private final Output output;
+    private Object[] slots = new Object[16];
+    private double[] numbers = new double[16];
+
+    public JvmEngine() {
+        this(Output.console());
+    }
+
+    /**
+     * @param output receiving what is printed, flushed by the caller
+     */
+    public JvmEngine(Output output) {
+        this.output = output;
+    }
+
+    /**
+     * Compile the statements, then run them. Nothing runs if the statements can not be compiled.
+     *
+     * @param statements resolved by a {@link com.krolang.compiler.core.ast.Resolver}
+     */
+    public void run(List<Statement> statements) {
+        List<MethodHandle> segments = new ArrayList<>();
+        for (JvmCompiler.Segment segment : compiler.compile(statements)) {
+            segments.add(define(segment));
+        }
+        if (compiler.slotCount() > slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(slots.length * 2, compiler.slotCount()));
+            numbers = Arrays.copyOf(numbers, slots.length);
+        }
+        for (MethodHandle segment : segments) {
+            try {
+                segment.invokeExact(slots, numbers, output);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static MethodHandle define(JvmCompiler.Segment segment) {
+        try {
+            Class<?> segmentClass = LOOKUP.defineHiddenClass(segment.classBytes(), true).lookupClass();
+            MethodHandle method = LOOKUP.findStatic(segmentClass, JvmCompiler.SEGMENT_METHOD, SEGMENT_TYPE);
+            return MethodHandles.insertArguments(method, 0, (Object) segment.constants());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Compiled code could not be loaded", e);
+        }
+    }
+}
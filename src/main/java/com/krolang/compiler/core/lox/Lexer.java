@@ -1,18 +1,14 @@
 package com.krolang.compiler.core.lox;
 
-import java.io.Serializable;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * @author autonu.kro
  */
-public record Lexer(List<String> sourceCode, String sourcePath) implements Serializable {
-
-    private static final Pattern PATTERN = Pattern.compile("\\d+(\\.\\d+)?|'([^'\\\\]|\\\\'|\\\\\\\\)*'|[a-zA-Z][a-zA-Z0-9]*|<-|->|:|;|,|[+\\-*]|[(){}\\[\\]]|==|!=|<|<=|>|>=|=|&&|\\|\\|");
+public record Lexer(List<String> sourceCode, String sourcePath) {
 
     public Lexer {
         if (sourceCode == null) {
@@ -22,49 +18,61 @@ public record Lexer(List<String> sourceCode, String sourcePath) implements Seria
     }
 
     public List<Token> tokenize(String input) {
-        final List<Token> tokens = new ArrayList<>();
-        Matcher matcher = PATTERN.matcher(input);
-        while (matcher.find()) {
-            String tokenKind = matcher.group();
-            tokens.add(Token.from(tokenKind, sourcePath, 1));
-        }
-        tokens.add(new Token(TokenKind.EOF, Optional.empty(), sourcePath, 1));
-        return tokens;
+        return scan(input).asList();
     }
 
     public List<Token> tokenize() {
-        final List<Token> tokens = new ArrayList<>();
-        boolean flag = false;
-        long lineNo = 1;
+        return scan().asList();
+    }
+
+    /**
+     * Scan a single line of input, the tokens point into a copy of the input.
+     */
+    public TokenBuffer scan(String input) {
+        TokenBuffer buffer = new TokenBuffer(input.toCharArray(), sourcePath);
+        SourceScanner.scan(input, 0, input.length(), 1, (tokenKind, text, start, end, line) -> buffer.add(tokenKind, start, end - start, line));
+        buffer.add(TokenKind.EOF, input.length(), 0, 1);
+        return buffer;
+    }
+
+    /**
+     * Scan the source code line by line, skipping comments.
+     */
+    public TokenBuffer scan() {
+        TokenBuffer buffer = new TokenBuffer(sourcePath);
+        SourceScanner scanner = new SourceScanner(buffer::append);
         for (String line : sourceCode) {
-            if (line.replaceAll(" ", "").startsWith("//")) {
-                // Skip //single line comment
-                continue;
-            }
-            if (line.replaceAll(" ", "").startsWith("/*") && line.endsWith("*/")) {
-                // Skip /* multi line comment */
-                continue;
-            }
-            if (!flag && line.replaceAll(" ", "").startsWith("/*")) {
-                // Skip /* multi line comment
-                //      */
-                flag = true;
-                continue;
-            } else if (flag && line.endsWith("*/")) {
-                flag = false;
-                continue;
-            }
-            if (flag) {
-                continue;
-            }
-            Matcher matcher = PATTERN.matcher(line);
-            while (matcher.find()) {
-                String tokenKind = matcher.group();
-                tokens.add(Token.from(tokenKind, sourcePath, lineNo));
-            }
-            lineNo = lineNo + 1;
+            scanner.line(line);
         }
-        tokens.add(new Token(TokenKind.EOF, Optional.empty(), sourcePath, lineNo));
-        return tokens;
+        buffer.append(TokenKind.EOF, "", 0, 0, scanner.lineNo());
+        return buffer;
+    }
+
+    /**
+     * Scan a source file while it is read, the file is never held in memory as a whole but all
+     * of its tokens are. Scan into a {@link TokenPipe} to keep only the ones not yet parsed.
+     */
+    public static TokenBuffer scan(Path sourceFile) throws IOException {
+        TokenBuffer buffer = new TokenBuffer(sourceFile.toAbsolutePath().toString());
+        long eofLine = scan(sourceFile, buffer::append);
+        buffer.append(TokenKind.EOF, "", 0, 0, eofLine);
+        return buffer;
+    }
+
+    /**
+     * Scan a source file into a pipe, for a parser consuming the tokens on another thread.
+     */
+    public static void scan(Path sourceFile, TokenPipe pipe) throws IOException {
+        long eofLine = scan(sourceFile, pipe::append);
+        pipe.append(TokenKind.EOF, "", 0, 0, eofLine);
+    }
+
+    /**
+     * @return line of the EOF token
+     */
+    private static long scan(Path sourceFile, SourceScanner.Emitter emitter) throws IOException {
+        SourceScanner scanner = new SourceScanner(emitter);
+        SourceReader.lines(sourceFile, SourceReader.WINDOW_SIZE, scanner::line);
+        return scanner.lineNo();
     }
 }
@@ -0,0 +1,35 @@
+package com.krolang.compiler.core.lox;
+
+/**
+ * Scanner resumable at any line, for callers that keep the scanner state at every line start
+ * and re-lex only some lines of a source. Tokens are appended to a {@link TokenBuffer}.
+ *
+ * @author autonu.kro
+ */
+public final class LineScanner {
+
+    private final SourceScanner scanner;
+
+    /**
+     * @param lineNo       number the next non comment line gets
+     * @param blockComment whether the next line is inside a block comment
+     */
+    public LineScanner(TokenBuffer tokens, long lineNo, boolean blockComment) {
+        this.scanner = new SourceScanner(tokens::append, lineNo, blockComment);
+    }
+
+    /**
+     * Scan one source line without its terminator.
+     */
+    public void line(CharSequence line) {
+        scanner.line(line);
+    }
+
+    public long lineNo() {
+        return scanner.lineNo();
+    }
+
+    public boolean blockComment() {
+        return scanner.blockComment();
+    }
+}
@@ -0,0 +1,143 @@
+package com.krolang.compiler.core.lox;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Streams the lines of a UTF-8 source file. The file is memory mapped one window at a time and
+ * decoded into a reused char buffer, so the heap only ever holds a window worth of characters
+ * (or the longest line, if that is longer) however big the file is.
+ * <p>
+ * Lines end at {@code \n}, {@code \r} or {@code \r\n}, as with {@link java.nio.file.Files#lines}.
+ *
+ * @author autonu.kro
+ */
+final class SourceReader {
+
+    static final int WINDOW_SIZE = 1 << 20;
+
+    private SourceReader() {
+    }
+
+    /**
+     * Hand every line of the file, without its terminator, to {@code consumer}. The line is only
+     * valid during the call, it is overwritten by the next one.
+     */
+    static void lines(Path sourceFile, int windowSize, Consumer<CharSequence> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(sourceFile, StandardOpenOption.READ)) {
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+            LineView line = new LineView();
+            CharBuffer chars = CharBuffer.allocate(windowSize);
+            long size = channel.size();
+            long position = 0;
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                long remaining = size - position;
+                endOfInput = remaining <= windowSize;
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(remaining, windowSize));
+                CoderResult result;
+                do {
+                    result = decoder.decode(bytes, chars, endOfInput);
+                    if (result.isError()) {
+                        result.throwException();
+                    }
+                    chars = drain(chars, line, consumer, false);
+                } while (result.isOverflow());
+                // A character split by the window boundary is decoded with the next window
+                position = position + bytes.position();
+            }
+            while (decoder.flush(chars).isOverflow()) {
+                chars = drain(chars, line, consumer, false);
+            }
+            drain(chars, line, consumer, true);
+        }
+    }
+
+    /**
+     * Hand the complete lines in {@code chars} to the consumer and keep the incomplete rest.
+     *
+     * @return the buffer to decode into next, grown if a single line filled it
+     */
+    private static CharBuffer drain(CharBuffer chars, LineView line, Consumer<CharSequence> consumer, boolean endOfInput) {
+        chars.flip();
+        char[] array = chars.array();
+        int limit = chars.limit();
+        int lineStart = 0;
+        for (int i = 0; i < limit; i++) {
+            char c = array[i];
+            if (c == '\n') {
+                consumer.accept(line.of(array, lineStart, i));
+                lineStart = i + 1;
+            } else if (c == '\r') {
+                if (i + 1 == limit && !endOfInput) {
+                    // Wait for the next character, it may be the \n of a \r\n
+                    break;
+                }
+                consumer.accept(line.of(array, lineStart, i));
+                if (i + 1 < limit && array[i + 1] == '\n') {
+                    i++;
+                }
+                lineStart = i + 1;
+            }
+        }
+        if (endOfInput && lineStart < limit) {
+            consumer.accept(line.of(array, lineStart, limit));
+            lineStart = limit;
+        }
+        chars.position(lineStart);
+        chars.compact();
+        if (chars.remaining() < 2) {
+            // Make room for at least a surrogate pair
+            CharBuffer grown = CharBuffer.allocate(chars.capacity() * 2);
+            chars.flip();
+            grown.put(chars);
+            return grown;
+        }
+        return chars;
+    }
+
+    /**
+     * Reused window over a line of the decode buffer.
+     */
+    private static final class LineView implements CharSequence {
+
+        private char[] array;
+        private int start;
+        private int end;
+
+        LineView of(char[] array, int start, int end) {
+            this.array = array;
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return array[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new String(array, start + from, to - from);
+        }
+
+        @Override
+        public String toString() {
+            return new String(array, start, end - start);
+        }
+    }
+}
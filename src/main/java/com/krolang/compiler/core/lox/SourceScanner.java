@@ -0,0 +1,308 @@
+package com.krolang.compiler.core.lox;
+
+/**
+ * Single pass, character level scanner. Every lexeme is classified by a lookup in a static
+ * character class table, so no regular expression and no intermediate copy of the line is
+ * needed to decide the {@link TokenKind}.
+ * <p>
+ * The scanner produces exactly the tokens the former regex alternation did, including its
+ * quirks: characters that start no lexeme are skipped, {@code <=} and {@code >=} come out
+ * as two tokens and a line is only counted when it is not a comment line.
+ *
+ * @author autonu.kro
+ */
+final class SourceScanner {
+
+    /**
+     * Receives every recognised lexeme as a range of the scanned text.
+     */
+    interface Emitter {
+        void emit(TokenKind tokenKind, CharSequence text, int start, int end, long line);
+    }
+
+    private static final byte SKIP = 0;
+    private static final byte DIGIT = 1;
+    private static final byte LETTER = 2;
+    private static final byte QUOTE = 3;
+    private static final byte SINGLE = 4;
+    private static final byte LESS = 5;
+    private static final byte DASH = 6;
+    private static final byte EQUAL = 7;
+    private static final byte BANG = 8;
+    private static final byte AMPERSAND = 9;
+    private static final byte PIPE = 10;
+
+    private static final byte[] CHAR_CLASSES = new byte[128];
+    private static final TokenKind[] SINGLE_KINDS = new TokenKind[128];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            CHAR_CLASSES[c] = DIGIT;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASSES[c] = LETTER;
+            CHAR_CLASSES[Character.toUpperCase(c)] = LETTER;
+        }
+        CHAR_CLASSES['\''] = QUOTE;
+        CHAR_CLASSES['<'] = LESS;
+        CHAR_CLASSES['-'] = DASH;
+        CHAR_CLASSES['='] = EQUAL;
+        CHAR_CLASSES['!'] = BANG;
+        CHAR_CLASSES['&'] = AMPERSAND;
+        CHAR_CLASSES['|'] = PIPE;
+        single(':', TokenKind.COL);
+        single(';', TokenKind.SEMI);
+        single(',', TokenKind.COMMA);
+        single('+', TokenKind.PLUS);
+        single('*', TokenKind.MULTIPLICATION);
+        single('(', TokenKind.OPEN_PARENTHESIS);
+        single(')', TokenKind.CLOSE_PARENTHESIS);
+        single('{', TokenKind.OPEN_CURLY);
+        single('}', TokenKind.CLOSE_CURLY);
+        single('[', TokenKind.OPEN_BRACKET);
+        single(']', TokenKind.CLOSE_BRACKET);
+        single('>', TokenKind.GT);
+    }
+
+    private final Emitter emitter;
+    private long lineNo;
+    private boolean blockComment;
+
+    SourceScanner(Emitter emitter) {
+        this(emitter, 1, false);
+    }
+
+    /**
+     * A scanner resuming in the middle of a source.
+     */
+    SourceScanner(Emitter emitter, long lineNo, boolean blockComment) {
+        this.emitter = emitter;
+        this.lineNo = lineNo;
+        this.blockComment = blockComment;
+    }
+
+    /**
+     * Scan one source line. Comment lines are skipped and do not advance the line counter.
+     *
+     * @param line without its terminator
+     */
+    void line(CharSequence line) {
+        if (startsWithIgnoringSpaces(line, "//")) {
+            // Skip //single line comment
+            return;
+        }
+        boolean blockStart = startsWithIgnoringSpaces(line, "/*");
+        if (blockStart && endsWith(line, "*/")) {
+            // Skip /* multi line comment */
+            return;
+        }
+        if (!blockComment && blockStart) {
+            blockComment = true;
+            return;
+        } else if (blockComment && endsWith(line, "*/")) {
+            blockComment = false;
+            return;
+        }
+        if (blockComment) {
+            return;
+        }
+        scan(line, 0, line.length(), lineNo, emitter);
+        lineNo = lineNo + 1;
+    }
+
+    /**
+     * Gives the line number the next non comment line would get, which is the line of the EOF token.
+     */
+    long lineNo() {
+        return lineNo;
+    }
+
+    /**
+     * Check if the next line starts inside a block comment.
+     */
+    boolean blockComment() {
+        return blockComment;
+    }
+
+    /**
+     * Scan {@code text[start, end)} as a part of a single line.
+     */
+    static void scan(CharSequence text, int start, int end, long line, Emitter emitter) {
+        int pos = start;
+        while (pos < end) {
+            char c = text.charAt(pos);
+            byte charClass = c < 128 ? CHAR_CLASSES[c] : SKIP;
+            switch (charClass) {
+                case DIGIT -> {
+                    int last = numberEnd(text, pos + 1, end);
+                    emitter.emit(TokenKind.NUM_LIT, text, pos, last, line);
+                    pos = last;
+                }
+                case LETTER -> {
+                    int last = wordEnd(text, pos + 1, end);
+                    emitter.emit(keywordOrIdentifier(text, pos, last), text, pos, last, line);
+                    pos = last;
+                }
+                case QUOTE -> {
+                    int last = stringEnd(text, pos + 1, end);
+                    if (last < 0) {
+                        pos++;
+                    } else {
+                        emitter.emit(TokenKind.STR_LIT, text, pos, last, line);
+                        pos = last;
+                    }
+                }
+                case SINGLE -> {
+                    emitter.emit(SINGLE_KINDS[c], text, pos, pos + 1, line);
+                    pos++;
+                }
+                case LESS -> pos = pair(text, pos, end, '-', TokenKind.LEFT_ARROW, TokenKind.LT, line, emitter);
+                case DASH -> pos = pair(text, pos, end, '>', TokenKind.RIGHT_ARROW, TokenKind.MINUS, line, emitter);
+                case EQUAL -> pos = pair(text, pos, end, '=', TokenKind.EQ, TokenKind.ASSIGN, line, emitter);
+                case BANG -> pos = pair(text, pos, end, '=', TokenKind.NOT_EQ, null, line, emitter);
+                case AMPERSAND -> pos = pair(text, pos, end, '&', TokenKind.AND, null, line, emitter);
+                case PIPE -> pos = pair(text, pos, end, '|', TokenKind.OR, null, line, emitter);
+                default -> pos++;
+            }
+        }
+    }
+
+    /**
+     * Classify a complete literal or identifier lexeme.
+     *
+     * @return the kind, or null if the symbol is not a single literal or identifier
+     */
+    static TokenKind literalKind(String symbol) {
+        int end = symbol.length();
+        if (end == 0) {
+            return null;
+        }
+        char c = symbol.charAt(0);
+        byte charClass = c < 128 ? CHAR_CLASSES[c] : SKIP;
+        return switch (charClass) {
+            case QUOTE -> stringEnd(symbol, 1, end) == end ? TokenKind.STR_LIT : null;
+            case DIGIT -> numberEnd(symbol, 1, end) == end ? TokenKind.NUM_LIT : null;
+            case LETTER -> wordEnd(symbol, 1, end) == end ? TokenKind.IDENTIFIER : null;
+            default -> null;
+        };
+    }
+
+    private static void single(char c, TokenKind tokenKind) {
+        CHAR_CLASSES[c] = SINGLE;
+        SINGLE_KINDS[c] = tokenKind;
+    }
+
+    /**
+     * Emit a two character operator when {@code second} follows, otherwise the one character
+     * operator, or nothing when there is none.
+     *
+     * @return position after the emitted lexeme
+     */
+    private static int pair(CharSequence text, int pos, int end, char second, TokenKind pairKind,
+                            TokenKind singleKind, long line, Emitter emitter) {
+        if (pos + 1 < end && text.charAt(pos + 1) == second) {
+            emitter.emit(pairKind, text, pos, pos + 2, line);
+            return pos + 2;
+        }
+        if (singleKind != null) {
+            emitter.emit(singleKind, text, pos, pos + 1, line);
+        }
+        return pos + 1;
+    }
+
+    private static TokenKind keywordOrIdentifier(CharSequence text, int start, int end) {
+        TokenKind keyword = TokenKind.lookup(text, start, end);
+        return keyword != null ? keyword : TokenKind.IDENTIFIER;
+    }
+
+    /**
+     * Find the end of a number whose first digit precedes {@code pos}, an optional fraction
+     * needs at least one digit after the dot.
+     */
+    private static int numberEnd(CharSequence text, int pos, int end) {
+        int last = digits(text, pos, end);
+        if (last + 1 < end && text.charAt(last) == '.' && isDigit(text.charAt(last + 1))) {
+            last = digits(text, last + 2, end);
+        }
+        return last;
+    }
+
+    private static int wordEnd(CharSequence text, int pos, int end) {
+        while (pos < end && isLetterOrDigit(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int digits(CharSequence text, int pos, int end) {
+        while (pos < end && isDigit(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Find the end of a string literal whose opening quote precedes {@code pos}. Only {@code \'}
+     * and {@code \\} are valid escapes.
+     *
+     * @return position after the closing quote, or -1 if the literal is not terminated
+     */
+    private static int stringEnd(CharSequence text, int pos, int end) {
+        while (pos < end) {
+            char c = text.charAt(pos);
+            if (c == '\'') {
+                return pos + 1;
+            }
+            if (c == '\\') {
+                if (pos + 1 >= end) {
+                    return -1;
+                }
+                char escaped = text.charAt(pos + 1);
+                if (escaped != '\'' && escaped != '\\') {
+                    return -1;
+                }
+                pos += 2;
+            } else {
+                pos++;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetterOrDigit(char c) {
+        byte charClass = c < 128 ? CHAR_CLASSES[c] : SKIP;
+        return charClass == DIGIT || charClass == LETTER;
+    }
+
+    private static boolean startsWithIgnoringSpaces(CharSequence line, String prefix) {
+        int matched = 0;
+        for (int i = 0; i < line.length() && matched < prefix.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ' ') {
+                continue;
+            }
+            if (c != prefix.charAt(matched)) {
+                return false;
+            }
+            matched++;
+        }
+        return matched == prefix.length();
+    }
+
+    private static boolean endsWith(CharSequence line, String suffix) {
+        int offset = line.length() - suffix.length();
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (line.charAt(offset + i) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,90 @@
+package com.krolang.compiler.core.lox;
+
+import java.util.Arrays;
+
+/**
+ * Interning table numbering the distinct identifiers and literals of a token stream. A lexeme is
+ * looked up straight from the characters it is scanned from, only its first occurrence creates a
+ * {@link String}, which every later occurrence shares.
+ *
+ * @author autonu.kro
+ */
+final class SymbolTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Open addressing table of symbol ids plus one, zero marks a free slot
+     */
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+    private String[] symbols = new String[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Gives the id of the symbol with the characters {@code text[start, end)}, adding it when it is new
+     */
+    int intern(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (slots[slot] != 0) {
+            String symbol = symbols[slots[slot] - 1];
+            if (symbol.hashCode() == hash && matches(symbol, text, start, end)) {
+                return slots[slot] - 1;
+            }
+            slot = slot + 1 & mask;
+        }
+        if (size == symbols.length) {
+            symbols = Arrays.copyOf(symbols, size * 2);
+        }
+        symbols[size] = text.subSequence(start, end).toString();
+        size = size + 1;
+        slots[slot] = size;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    String symbol(int id) {
+        return symbols[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(symbols[id].hashCode()) & mask;
+            while (slots[slot] != 0) {
+                slot = slot + 1 & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static boolean matches(String symbol, CharSequence text, int start, int end) {
+        if (symbol.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (symbol.charAt(i - start) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Mix the high bits of a String hash into the low ones the table is indexed with
+     */
+    private static int spread(int hash) {
+        return hash ^ hash >>> 16;
+    }
+}
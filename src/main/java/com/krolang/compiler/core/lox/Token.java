@@ -1,30 +1,20 @@
 package com.krolang.compiler.core.lox;
 
-import java.io.Serializable;
 import java.util.Optional;
 
 /**
  * @author autonu.kro
  */
-public record Token(TokenKind tokenKind, Optional<String> content, String source, long line) implements Serializable {
-
-    private final static String NUMBER_PATTERN = "\\d+(\\.\\d+)?";
-    private final static String STRING_PATTERN = "'([^'\\\\]|\\\\'|\\\\\\\\)*'";
-    private final static String IDENTIFIER_PATTERN = "^[a-zA-Z][a-zA-Z0-9]*$";
+public record Token(TokenKind tokenKind, Optional<String> content, String source, long line) {
 
     public static Token from(String symbol, String source, long line) {
-        Optional<TokenKind> optionalTokenKind = TokenKind.of(symbol);
-        if (optionalTokenKind.isPresent()) {
-            return new Token(optionalTokenKind.get(), Optional.empty(), source, line);
-        }
-        if (symbol.matches(STRING_PATTERN)) {
-            return new Token(TokenKind.STR_LIT, Optional.of(symbol), source, line);
-        }
-        if (symbol.matches(NUMBER_PATTERN)) {
-            return new Token(TokenKind.NUM_LIT, Optional.of(symbol), source, line);
+        TokenKind tokenKind = TokenKind.lookup(symbol, 0, symbol.length());
+        if (tokenKind != null) {
+            return new Token(tokenKind, Optional.empty(), source, line);
         }
-        if (symbol.matches(IDENTIFIER_PATTERN)) {
-            return new Token(TokenKind.IDENTIFIER, Optional.of(symbol), source, line);
+        TokenKind literalKind = SourceScanner.literalKind(symbol);
+        if (literalKind != null) {
+            return new Token(literalKind, Optional.of(symbol), source, line);
         }
         throw new IllegalArgumentException("Parser error");
     }
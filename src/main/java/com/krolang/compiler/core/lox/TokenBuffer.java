@@ -0,0 +1,290 @@
+package com.krolang.compiler.core.lox;
+
+import java.nio.CharBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+
+/**
+ * Compact, struct of arrays storage for a token stream. A token is an index into parallel
+ * {@code int} arrays holding its kind, start offset, length and line, the offsets point into
+ * a single {@code char[]}. That is either the original source, or a pool the lexemes are
+ * copied into when the source is scanned line by line.
+ * <p>
+ * Token contents are interned in a {@link SymbolTable}, so every occurrence of an identifier or
+ * literal shares one {@link String}, and a repeated lexeme is copied into the pool only once.
+ * <p>
+ * Only {@link TokenKind#IDENTIFIER}, {@link TokenKind#NUM_LIT} and {@link TokenKind#STR_LIT}
+ * tokens carry content, like the {@link Token}s the lexer used to produce. {@link Token}
+ * records are only materialised on demand, through {@link #token(int)} or {@link #asList()}.
+ *
+ * @author autonu.kro
+ */
+public final class TokenBuffer {
+
+    private static final TokenKind[] KINDS = TokenKind.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String sourcePath;
+    private final boolean sharedText;
+    /**
+     * The shared source as a sequence symbols are interned from
+     */
+    private final CharSequence sharedView;
+    private char[] text;
+    private int textLength;
+    private final SymbolTable symbols = new SymbolTable();
+    /**
+     * Offset in the pool of every symbol, for a buffer owning its text
+     */
+    private int[] symbolStarts = new int[INITIAL_CAPACITY];
+
+    private int[] kinds = new int[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    /**
+     * Symbol id of every token, -1 for tokens without content
+     */
+    private int[] symbolIds = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * A buffer owning its text, lexemes are copied in by {@link #append}.
+     */
+    public TokenBuffer(String sourcePath) {
+        this.sourcePath = sourcePath;
+        this.sharedText = false;
+        this.sharedView = null;
+        this.text = new char[INITIAL_CAPACITY * 4];
+    }
+
+    /**
+     * A buffer whose tokens point into {@code source}, tokens are added by {@link #add}.
+     */
+    public TokenBuffer(char[] source, String sourcePath) {
+        this.sourcePath = sourcePath;
+        this.sharedText = true;
+        this.sharedView = CharBuffer.wrap(source);
+        this.text = source;
+        this.textLength = source.length;
+    }
+
+    /**
+     * Build a buffer from materialised tokens, the counterpart of {@link #asList()}.
+     */
+    public static TokenBuffer copyOf(List<Token> tokens) {
+        String sourcePath = tokens.isEmpty() ? null : tokens.getFirst().source();
+        TokenBuffer buffer = new TokenBuffer(sourcePath);
+        for (Token token : tokens) {
+            String content = token.content().orElse("");
+            buffer.append(token.tokenKind(), content, 0, content.length(), token.line());
+        }
+        return buffer;
+    }
+
+    /**
+     * Add a token pointing at {@code length} characters from {@code start} of the shared source.
+     */
+    public void add(TokenKind tokenKind, int start, int length, long line) {
+        if (!sharedText) {
+            throw new IllegalStateException("Token buffer does not share a source, use append");
+        }
+        int symbol = hasContent(tokenKind) ? symbols.intern(sharedView, start, start + length) : -1;
+        push(tokenKind, start, length, line, symbol);
+    }
+
+    /**
+     * Add a token, copying its content {@code text[start, end)} into the buffer's own text.
+     */
+    public void append(TokenKind tokenKind, CharSequence lexeme, int start, int end, long line) {
+        if (sharedText) {
+            throw new IllegalStateException("Token buffer shares its source, use add");
+        }
+        if (!hasContent(tokenKind)) {
+            push(tokenKind, textLength, 0, line, -1);
+            return;
+        }
+        int length = end - start;
+        int known = symbols.size();
+        int symbol = symbols.intern(lexeme, start, end);
+        if (symbol == known) {
+            copy(lexeme, start, length, symbol);
+        }
+        push(tokenKind, symbolStarts[symbol], length, line, symbol);
+    }
+
+    /**
+     * Copy the first occurrence of a symbol into the pool
+     */
+    private void copy(CharSequence lexeme, int start, int length, int symbol) {
+        if (textLength + length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+        }
+        for (int i = 0; i < length; i++) {
+            text[textLength + i] = lexeme.charAt(start + i);
+        }
+        if (symbol == symbolStarts.length) {
+            symbolStarts = Arrays.copyOf(symbolStarts, symbol * 2);
+        }
+        symbolStarts[symbol] = textLength;
+        textLength = textLength + length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String sourcePath() {
+        return sourcePath;
+    }
+
+    public TokenKind kind(int index) {
+        return KINDS[kinds[index]];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public long line(int index) {
+        return lines[index];
+    }
+
+    /**
+     * Gives the content of a token, or null for tokens without content. Tokens with equal content
+     * give the same instance.
+     */
+    public String content(int index) {
+        int symbol = symbolIds[index];
+        return symbol < 0 ? null : symbols.symbol(symbol);
+    }
+
+    /**
+     * Materialise a token record.
+     */
+    public Token token(int index) {
+        return new Token(kind(index), Optional.ofNullable(content(index)), sourcePath, line(index));
+    }
+
+    /**
+     * A read only {@code List<Token>} view, tokens are materialised on every access.
+     */
+    public List<Token> asList() {
+        return new TokenList();
+    }
+
+    public Cursor cursor() {
+        return new Cursor(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * A cursor over the tokens {@code [from, to)}, the token at {@code to} reads as EOF.
+     */
+    public Cursor cursor(int from, int to) {
+        if (from < 0 || from > to || to >= size) {
+            throw new IndexOutOfBoundsException("Token range [" + from + ", " + to + ") of " + size);
+        }
+        return new Cursor(from, to);
+    }
+
+    static boolean hasContent(TokenKind tokenKind) {
+        return tokenKind == TokenKind.IDENTIFIER || tokenKind == TokenKind.NUM_LIT || tokenKind == TokenKind.STR_LIT;
+    }
+
+    private void push(TokenKind tokenKind, int start, int length, long line, int symbol) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            symbolIds = Arrays.copyOf(symbolIds, capacity);
+        }
+        kinds[size] = tokenKind.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = Math.toIntExact(line);
+        symbolIds[size] = symbol;
+        size = size + 1;
+    }
+
+    /**
+     * Flyweight position in the buffer. It reads the current token straight from the arrays,
+     * a {@link Token} is only created when asked for.
+     */
+    public final class Cursor implements TokenCursor {
+
+        private final int end;
+        private int current;
+
+        private Cursor(int start, int end) {
+            this.current = start;
+            this.end = end;
+        }
+
+        @Override
+        public TokenKind kind() {
+            return current == end ? TokenKind.EOF : TokenBuffer.this.kind(current);
+        }
+
+        @Override
+        public Token peek() {
+            if (current == end) {
+                return new Token(TokenKind.EOF, Optional.empty(), sourcePath, line(current));
+            }
+            return token(current);
+        }
+
+        @Override
+        public Token previous() {
+            return token(current - 1);
+        }
+
+        @Override
+        public boolean previousHasContent() {
+            return hasContent(TokenBuffer.this.kind(current - 1));
+        }
+
+        @Override
+        public boolean isAtEnd() {
+            return kind() == TokenKind.EOF;
+        }
+
+        @Override
+        public void advance() {
+            if (!isAtEnd()) {
+                current = current + 1;
+            }
+        }
+
+        /**
+         * Gives the index of the current token in the buffer
+         */
+        public int position() {
+            return current;
+        }
+    }
+
+    private final class TokenList extends AbstractList<Token> implements RandomAccess {
+
+        @Override
+        public Token get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return token(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.krolang.compiler.core.lox;
+
+/**
+ * Position in a token stream as the parser walks it: the current token and the one consumed last.
+ *
+ * @author autonu.kro
+ */
+public interface TokenCursor {
+
+    /**
+     * Gives the kind of the current token
+     */
+    TokenKind kind();
+
+    /**
+     * Gives the current token
+     *
+     * @return a token
+     */
+    Token peek();
+
+    /**
+     * Gives the most recently consumed token
+     *
+     * @return a token
+     */
+    Token previous();
+
+    /**
+     * Check if the most recently consumed token carries content
+     */
+    boolean previousHasContent();
+
+    /**
+     * Check if there's any token left.
+     */
+    boolean isAtEnd();
+
+    /**
+     * Move the pointer to the next token, the EOF token is never passed.
+     */
+    void advance();
+}
@@ -1,5 +1,6 @@
 package com.krolang.compiler.core.lox;
 
+import java.util.Arrays;
 import java.util.Optional;
 
 /**
@@ -62,6 +63,18 @@ public enum TokenKind {
     STR("Str"),
     BOOL("Bool");
 
+    private static final int TABLE_MASK = 127;
+    private static final TokenKind[] TABLE = new TokenKind[TABLE_MASK + 1];
+    private static final int SEED;
+
+    static {
+        int seed = 1;
+        while (!fillTable(seed)) {
+            seed++;
+        }
+        SEED = seed;
+    }
+
     private final String symbol;
 
     TokenKind(String symbol) {
@@ -73,11 +86,57 @@ public enum TokenKind {
     }
 
     public static Optional<TokenKind> of(String symbol) {
+        return Optional.ofNullable(lookup(symbol, 0, symbol.length()));
+    }
+
+    /**
+     * Find the kind whose symbol is exactly {@code text[start, end)}, without allocating.
+     *
+     * @return the kind, or null if no symbol matches
+     */
+    public static TokenKind lookup(CharSequence text, int start, int end) {
+        if (end <= start) {
+            return null;
+        }
+        TokenKind kind = TABLE[hash(SEED, text, start, end)];
+        if (kind == null || kind.symbol.length() != end - start) {
+            return null;
+        }
+        for (int i = 0; i < kind.symbol.length(); i++) {
+            if (kind.symbol.charAt(i) != text.charAt(start + i)) {
+                return null;
+            }
+        }
+        return kind;
+    }
+
+    /**
+     * Place every symbol in the table with the given seed.
+     *
+     * @return false if two symbols collide, the table is then left for the next seed
+     */
+    private static boolean fillTable(int seed) {
+        Arrays.fill(TABLE, null);
         for (TokenKind kind : values()) {
-            if (kind.symbol.equals(symbol)) {
-                return Optional.of(kind);
+            int slot = hash(seed, kind.symbol, 0, kind.symbol.length());
+            if (TABLE[slot] != null) {
+                return false;
             }
+            TABLE[slot] = kind;
         }
-        return Optional.empty();
+        return true;
+    }
+
+    /**
+     * Hash of the length and the first, second and last character, which tells all symbols apart.
+     */
+    private static int hash(int seed, CharSequence text, int start, int end) {
+        int length = end - start;
+        int h = length;
+        h = h * 31 + text.charAt(start);
+        h = h * 31 + text.charAt(length > 1 ? start + 1 : start);
+        h = h * 31 + text.charAt(end - 1);
+        h = h * seed;
+        return (h ^ (h >>> 7)) & TABLE_MASK;
     }
 }
@@ -0,0 +1,176 @@
+package com.krolang.compiler.core.lox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded ring buffer handing tokens from a lexer thread to a parser thread. The lexer appends,
+ * the parser reads it as a {@link TokenCursor}. The lexer blocks while the ring is full, the
+ * parser while it is empty, so at most {@code capacity} tokens are ever in flight.
+ * <p>
+ * There must be exactly one producer and one consumer thread.
+ *
+ * @author autonu.kro
+ */
+public final class TokenPipe implements TokenCursor {
+
+    private static final TokenKind[] KINDS = TokenKind.values();
+
+    private final String sourcePath;
+    private final int mask;
+    private final int[] kinds;
+    private final int[] lines;
+    private final String[] contents;
+    /**
+     * Symbols of the stream, used by the producer only
+     */
+    private final SymbolTable symbols = new SymbolTable();
+
+    /**
+     * Number of tokens appended, written by the producer only
+     */
+    private volatile long published;
+    /**
+     * Index of the current token, written by the consumer only
+     */
+    private volatile long current;
+    private volatile Thread waitingProducer;
+    private volatile Thread waitingConsumer;
+    private volatile Throwable failure;
+    private volatile boolean cancelled;
+
+    /**
+     * @param capacity of the ring, rounded up to a power of two
+     */
+    public TokenPipe(String sourcePath, int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.sourcePath = sourcePath;
+        this.mask = size - 1;
+        this.kinds = new int[size];
+        this.lines = new int[size];
+        this.contents = new String[size];
+    }
+
+    /**
+     * Append a token, blocking while the ring is full.
+     *
+     * @throws CancellationException if the consumer gave up on the stream
+     */
+    public void append(TokenKind tokenKind, CharSequence lexeme, int start, int end, long line) {
+        long index = published;
+        // The consumer may still ask for the previous token, its slot is kept as well
+        while (index - current + 1 > mask) {
+            if (cancelled) {
+                throw new CancellationException("Token stream closed by the parser");
+            }
+            waitingProducer = Thread.currentThread();
+            if (index - current + 1 > mask && !cancelled) {
+                LockSupport.park(this);
+            }
+            waitingProducer = null;
+        }
+        int slot = (int) index & mask;
+        kinds[slot] = tokenKind.ordinal();
+        lines[slot] = Math.toIntExact(line);
+        contents[slot] = TokenBuffer.hasContent(tokenKind) ? symbols.symbol(symbols.intern(lexeme, start, end)) : null;
+        published = index + 1;
+        unpark(waitingConsumer);
+    }
+
+    /**
+     * Abort the stream from the producer side, the consumer gets the failure when it runs dry.
+     */
+    public void fail(Throwable throwable) {
+        failure = throwable;
+        unpark(waitingConsumer);
+    }
+
+    /**
+     * Abort the stream from the consumer side, a blocked producer is released.
+     */
+    public void cancel() {
+        cancelled = true;
+        unpark(waitingProducer);
+    }
+
+    @Override
+    public TokenKind kind() {
+        long index = current;
+        awaitToken(index);
+        return KINDS[kinds[(int) index & mask]];
+    }
+
+    @Override
+    public Token peek() {
+        long index = current;
+        awaitToken(index);
+        return token(index);
+    }
+
+    @Override
+    public Token previous() {
+        return token(current - 1);
+    }
+
+    @Override
+    public boolean previousHasContent() {
+        return contents[(int) (current - 1) & mask] != null;
+    }
+
+    @Override
+    public boolean isAtEnd() {
+        return kind() == TokenKind.EOF;
+    }
+
+    @Override
+    public void advance() {
+        if (!isAtEnd()) {
+            current = current + 1;
+            unpark(waitingProducer);
+        }
+    }
+
+    private Token token(long index) {
+        int slot = (int) index & mask;
+        return new Token(KINDS[kinds[slot]], Optional.ofNullable(contents[slot]), sourcePath, lines[slot]);
+    }
+
+    private void awaitToken(long index) {
+        while (published <= index) {
+            Throwable throwable = failure;
+            if (throwable != null) {
+                throw rethrow(throwable);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Token stream consumer interrupted");
+            }
+            waitingConsumer = Thread.currentThread();
+            if (published <= index && failure == null) {
+                LockSupport.park(this);
+            }
+            waitingConsumer = null;
+        }
+    }
+
+    private static void unpark(Thread thread) {
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable throwable) {
+        if (throwable instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (throwable instanceof Error error) {
+            throw error;
+        }
+        if (throwable instanceof IOException ioException) {
+            return new UncheckedIOException(ioException);
+        }
+        return new IllegalStateException(throwable);
+    }
+}
@@ -0,0 +1,196 @@
+package com.krolang.compiler.core.node;
+
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Operations;
+import com.krolang.compiler.core.ast.Rope;
+import com.krolang.compiler.core.ast.Type;
+import com.krolang.compiler.core.lox.TokenKind;
+
+/**
+ * A binary operator. Unless the type checker proved the types of its operands, it starts
+ * {@link Uninitialized} and replaces itself on its first execution with a node specialised on the
+ * operand types it saw: {@link NumArithmetic}, {@link NumComparison}
+ * or {@link StrConcatenation}. A specialised node that meets other types replaces itself with
+ * the {@link Generic} node, which handles any values, and stays that way.
+ *
+ * @author autonu.kro
+ */
+abstract class BinaryNode extends ExpressionNode {
+
+    protected final TokenKind operator;
+    protected ExpressionNode left;
+    protected ExpressionNode right;
+
+    protected BinaryNode(TokenKind operator, ExpressionNode left, ExpressionNode right) {
+        this.operator = operator;
+        this.left = adopt(left);
+        this.right = adopt(right);
+    }
+
+    /**
+     * @param operands type of both operands as proved by the type checker, the node then starts
+     *                 specialised on it
+     */
+    static BinaryNode of(TokenKind operator, Type operands, ExpressionNode left, ExpressionNode right) {
+        if (operands == Type.NUM && Operations.isArithmetic(operator)) {
+            return new NumArithmetic(operator, left, right);
+        }
+        if (operands == Type.NUM && isComparison(operator)) {
+            return new NumComparison(operator, left, right);
+        }
+        if (operands == Type.STR && operator == TokenKind.PLUS) {
+            return new StrConcatenation(operator, left, right);
+        }
+        return new Uninitialized(operator, left, right);
+    }
+
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+        if (left == child) {
+            left = (ExpressionNode) replacement;
+        } else {
+            right = swap(right, child, replacement);
+        }
+    }
+
+    /**
+     * Replace this node with the generic one, and give the result of the operands evaluated already
+     */
+    protected final Object generalize(Object leftValue, Object rightValue) {
+        replace(new Generic(operator, left, right));
+        return Operations.binaryOf(operator, leftValue, rightValue);
+    }
+
+    private static boolean isComparison(TokenKind operator) {
+        return switch (operator) {
+            case EQ, NOT_EQ, GT, LT, GT_EQ, LT_EQ -> true;
+            default -> false;
+        };
+    }
+
+    static final class Uninitialized extends BinaryNode {
+
+        private Uninitialized(TokenKind operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Object execute(Environment environment) {
+            Object leftValue = left.execute(environment);
+            Object rightValue = right.execute(environment);
+            Object result = Operations.binaryOf(operator, leftValue, rightValue);
+            replace(specialize(leftValue, rightValue));
+            return result;
+        }
+
+        private BinaryNode specialize(Object leftValue, Object rightValue) {
+            if (leftValue instanceof Double && rightValue instanceof Double) {
+                if (Operations.isArithmetic(operator)) {
+                    return new NumArithmetic(operator, left, right);
+                }
+                if (isComparison(operator)) {
+                    return new NumComparison(operator, left, right);
+                }
+            }
+            if (operator == TokenKind.PLUS && leftValue instanceof CharSequence && rightValue instanceof CharSequence) {
+                return new StrConcatenation(operator, left, right);
+            }
+            return new Generic(operator, left, right);
+        }
+    }
+
+    /**
+     * {@code + - * /} on Nums, without boxing the operands or the result
+     */
+    static final class NumArithmetic extends BinaryNode {
+
+        private NumArithmetic(TokenKind operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Object execute(Environment environment) {
+            try {
+                return executeNumber(environment);
+            } catch (UnexpectedResultException e) {
+                return e.result();
+            }
+        }
+
+        @Override
+        double executeNumber(Environment environment) throws UnexpectedResultException {
+            double leftValue;
+            try {
+                leftValue = left.executeNumber(environment);
+            } catch (UnexpectedResultException e) {
+                return expectNumber(generalize(e.result(), right.execute(environment)));
+            }
+            double rightValue;
+            try {
+                rightValue = right.executeNumber(environment);
+            } catch (UnexpectedResultException e) {
+                return expectNumber(generalize(leftValue, e.result()));
+            }
+            return Operations.arithmeticOf(operator, leftValue, rightValue);
+        }
+    }
+
+    /**
+     * Equality and ordering of Nums
+     */
+    static final class NumComparison extends BinaryNode {
+
+        private NumComparison(TokenKind operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Object execute(Environment environment) {
+            double leftValue;
+            try {
+                leftValue = left.executeNumber(environment);
+            } catch (UnexpectedResultException e) {
+                return generalize(e.result(), right.execute(environment));
+            }
+            double rightValue;
+            try {
+                rightValue = right.executeNumber(environment);
+            } catch (UnexpectedResultException e) {
+                return generalize(leftValue, e.result());
+            }
+            return Operations.comparisonOf(operator, leftValue, rightValue);
+        }
+    }
+
+    /**
+     * {@code +} on Strs
+     */
+    static final class StrConcatenation extends BinaryNode {
+
+        private StrConcatenation(TokenKind operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Object execute(Environment environment) {
+            Object leftValue = left.execute(environment);
+            Object rightValue = right.execute(environment);
+            if (leftValue instanceof CharSequence leftStr && rightValue instanceof CharSequence rightStr) {
+                return Rope.concat(leftStr, rightStr);
+            }
+            return generalize(leftValue, rightValue);
+        }
+    }
+
+    static final class Generic extends BinaryNode {
+
+        private Generic(TokenKind operator, ExpressionNode left, ExpressionNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Object execute(Environment environment) {
+            return Operations.binaryOf(operator, left.execute(environment), right.execute(environment));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.krolang.compiler.core.node;
+
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Expression;
+import com.krolang.compiler.core.ast.Operations;
+import com.krolang.compiler.core.ast.StackEvaluator;
+import com.krolang.compiler.core.lox.Token;
+
+/**
+ * Executable form of an {@link Expression}.
+ *
+ * @author autonu.kro
+ */
+abstract class ExpressionNode extends Node {
+
+    abstract Object execute(Environment environment);
+
+    /**
+     * Evaluate to a primitive Num, for callers specialised on Nums
+     *
+     * @throws UnexpectedResultException holding the value if it is not a Num
+     */
+    double executeNumber(Environment environment) throws UnexpectedResultException {
+        return expectNumber(execute(environment));
+    }
+
+    static double expectNumber(Object value) throws UnexpectedResultException {
+        if (value instanceof Double number) {
+            return number;
+        }
+        throw new UnexpectedResultException(value);
+    }
+
+    /**
+     * A literal or a folded constant
+     */
+    static final class Constant extends ExpressionNode {
+
+        private final Object value;
+
+        Constant(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        Object execute(Environment environment) {
+            return value;
+        }
+    }
+
+    /**
+     * An expression nested deeper than nodes are executed, evaluated with a {@link StackEvaluator}
+     */
+    static final class Deep extends ExpressionNode {
+
+        private final Expression expression;
+
+        Deep(Expression expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        Object execute(Environment environment) {
+            return StackEvaluator.of(environment).fold(expression);
+        }
+    }
+
+    static final class Read extends ExpressionNode {
+
+        private final int slot;
+        private final Token identifier;
+
+        Read(int slot, Token identifier) {
+            this.slot = slot;
+            this.identifier = identifier;
+        }
+
+        @Override
+        Object execute(Environment environment) {
+            return environment.get(slot, identifier);
+        }
+    }
+
+    static final class Write extends ExpressionNode {
+
+        private final int slot;
+        private ExpressionNode value;
+
+        Write(int slot, ExpressionNode value) {
+            this.slot = slot;
+            this.value = adopt(value);
+        }
+
+        @Override
+        Object execute(Environment environment) {
+            Object evaluated = value.execute(environment);
+            environment.define(slot, evaluated);
+            return evaluated;
+        }
+
+        @Override
+        protected void replaceChild(Node child, Node replacement) {
+            value = swap(value, child, replacement);
+        }
+    }
+
+    static final class Not extends ExpressionNode {
+
+        private ExpressionNode operand;
+
+        Not(ExpressionNode operand) {
+            this.operand = adopt(operand);
+        }
+
+        @Override
+        Object execute(Environment environment) {
+            return Operations.makeNot(operand.execute(environment));
+        }
+
+        @Override
+        protected void replaceChild(Node child, Node replacement) {
+            operand = swap(operand, child, replacement);
+        }
+    }
+
+    /**
+     * Unary minus, it negates a primitive Num until its operand gives something else once
+     */
+    static final class Negate extends ExpressionNode {
+
+        private ExpressionNode operand;
+        private boolean numeric = true;
+
+        Negate(ExpressionNode operand) {
+            this.operand = adopt(operand);
+        }
+
+        @Override
+        Object execute(Environment environment) {
+            if (numeric) {
+                try {
+                    return -operand.executeNumber(environment);
+                } catch (UnexpectedResultException e) {
+                    numeric = false;
+                    return Operations.makeNegate(e.result());
+                }
+            }
+            return Operations.makeNegate(operand.execute(environment));
+        }
+
+        @Override
+        double executeNumber(Environment environment) throws UnexpectedResultException {
+            if (numeric) {
+                try {
+                    return -operand.executeNumber(environment);
+                } catch (UnexpectedResultException e) {
+                    numeric = false;
+                    return expectNumber(Operations.makeNegate(e.result()));
+                }
+            }
+            return expectNumber(Operations.makeNegate(operand.execute(environment)));
+        }
+
+        @Override
+        protected void replaceChild(Node child, Node replacement) {
+            operand = swap(operand, child, replacement);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.krolang.compiler.core.node;
+
+/**
+ * A node of the executable tree. A node may replace itself in its parent with a node better
+ * suited to the values it has seen, see {@link BinaryNode}.
+ *
+ * @author autonu.kro
+ */
+abstract class Node {
+
+    private Node parent;
+
+    /**
+     * Make this node the parent of {@code child}
+     *
+     * @return the child
+     */
+    protected final <T extends Node> T adopt(T child) {
+        ((Node) child).parent = this;
+        return child;
+    }
+
+    /**
+     * Put {@code replacement} in the place of this node in its parent
+     *
+     * @return the replacement
+     */
+    protected final <T extends Node> T replace(T replacement) {
+        if (parent == null) {
+            throw new IllegalStateException("Root node can not be replaced: " + this);
+        }
+        parent.replaceChild(this, replacement);
+        ((Node) replacement).parent = parent;
+        parent = null;
+        return replacement;
+    }
+
+    /**
+     * Swap the child {@code child} for {@code replacement}
+     */
+    protected void replaceChild(Node child, Node replacement) {
+        throw new IllegalStateException("Node has no child " + child);
+    }
+
+    static ExpressionNode swap(ExpressionNode field, Node child, Node replacement) {
+        if (field != child) {
+            throw new IllegalStateException("Node has no child " + child);
+        }
+        return (ExpressionNode) replacement;
+    }
+}
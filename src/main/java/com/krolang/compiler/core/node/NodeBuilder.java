@@ -0,0 +1,100 @@
+package com.krolang.compiler.core.node;
+
+import com.krolang.compiler.core.ast.Expression;
+import com.krolang.compiler.core.ast.Operations;
+import com.krolang.compiler.core.ast.Output;
+import com.krolang.compiler.core.ast.StackEvaluator;
+import com.krolang.compiler.core.ast.Statement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the executable node tree of resolved statements.
+ *
+ * @author autonu.kro
+ */
+final class NodeBuilder {
+
+    private final Output output;
+    /**
+     * Depth of the expression being built
+     */
+    private int depth;
+
+    NodeBuilder(Output output) {
+        this.output = output;
+    }
+
+    List<StatementNode> build(List<Statement> statements) {
+        final List<StatementNode> nodes = new ArrayList<>(statements.size());
+        for (Statement statement : statements) {
+            nodes.add(statementNode(statement));
+        }
+        return nodes;
+    }
+
+    private StatementNode statementNode(Statement statement) {
+        return switch (statement) {
+            case Statement.ExpressionStatement expressionStatement -> {
+                if (expressionStatement.expression() == null) {
+                    throw new IllegalArgumentException("No expression found");
+                }
+                yield new StatementNode.Evaluate(expressionNode(expressionStatement.expression()));
+            }
+            case Statement.PrintStatement printStatement -> {
+                if (printStatement.expression() == null) {
+                    throw new IllegalArgumentException("No valid expression to print");
+                }
+                yield new StatementNode.Print(expressionNode(printStatement.expression()), output);
+            }
+            case Statement.VariableDeclaration declaration -> {
+                if (declaration.identifier().content().isEmpty()) {
+                    throw new IllegalArgumentException("variable identifier expected");
+                }
+                yield new StatementNode.Declare(declaration.slot(), expressionNode(declaration.expression()));
+            }
+            case Statement.CodeBlock codeBlock -> new StatementNode.Block(build(codeBlock.statements()));
+            default -> throw new IllegalArgumentException("Invalid statement: " + statement);
+        };
+    }
+
+    /**
+     * Node of an expression, the parts nested deeper than {@link StackEvaluator#RECURSION_LIMIT}
+     * are evaluated without nodes
+     */
+    private ExpressionNode expressionNode(Expression expression) {
+        if (depth == StackEvaluator.RECURSION_LIMIT) {
+            return new ExpressionNode.Deep(expression);
+        }
+        depth++;
+        try {
+            return node(expression);
+        } finally {
+            depth--;
+        }
+    }
+
+    private ExpressionNode node(Expression expression) {
+        return switch (expression) {
+            case Expression.Literal literal -> new ExpressionNode.Constant(Operations.literalOf(literal.literal()));
+            case Expression.Value value -> new ExpressionNode.Constant(value.value());
+            case Expression.Grouping grouping -> grouping.expression() == null
+                    ? new ExpressionNode.Constant(null) : expressionNode(grouping.expression());
+            case Expression.Unary unary -> switch (unary.operator().tokenKind()) {
+                case NOT -> new ExpressionNode.Not(expressionNode(unary.rightExpr()));
+                case MINUS -> new ExpressionNode.Negate(expressionNode(unary.rightExpr()));
+                default -> throw new IllegalArgumentException("Invalid operator: " + unary.operator());
+            };
+            case Expression.Binary binary -> BinaryNode.of(binary.operator().tokenKind(), binary.operands(), expressionNode(binary.leftExpr()), expressionNode(binary.rightExpr()));
+            case Expression.Variable variable -> {
+                if (variable.identifier() == null) {
+                    throw new IllegalArgumentException("Invalid identifier");
+                }
+                yield new ExpressionNode.Read(variable.slot(), variable.identifier());
+            }
+            case Expression.Assignment assignment -> new ExpressionNode.Write(assignment.slot(), expressionNode(assignment.expression()));
+            default -> throw new IllegalArgumentException("Invalid expression: " + expression);
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.krolang.compiler.core.node;
+
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Output;
+import com.krolang.compiler.core.ast.Statement;
+
+import java.util.List;
+
+/**
+ * Runs statements as a tree of self specialising nodes. Every operator node rewrites itself on
+ * its first execution into a node for the operand types it saw, so a node executed again skips
+ * the dispatch on the operator and the checks of the operand types. A node seeing other types
+ * later falls back to the generic operations.
+ * <p>
+ * Variables outlive a run, so a program can be run statement by statement on the same engine.
+ * An engine is used by one thread at a time.
+ *
+ * @author autonu.kro
+ */
+public class NodeEngine {
+
+    private final NodeBuilder builder;
+    private final Environment environment = new Environment();
+
+    public NodeEngine() {
+        this(Output.console());
+    }
+
+    /**
+     * @param output receiving what is printed, flushed by the caller
+     */
+    public NodeEngine(Output output) {
+        this.builder = new NodeBuilder(output);
+    }
+
+    /**
+     * Build the nodes of the statements, then run them. Nothing runs if a statement is invalid.
+     *
+     * @param statements resolved by a {@link com.krolang.compiler.core.ast.Resolver}
+     */
+    public void run(List<Statement> statements) {
+        for (StatementNode statement : builder.build(statements)) {
+            statement.execute(environment);
+        }
+    }
+}
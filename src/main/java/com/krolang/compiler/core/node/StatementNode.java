@@ -0,0 +1,111 @@
+package com.krolang.compiler.core.node;
+
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Operations;
+import com.krolang.compiler.core.ast.Output;
+
+import java.util.List;
+
+/**
+ * Executable form of a {@link com.krolang.compiler.core.ast.Statement}.
+ *
+ * @author autonu.kro
+ */
+abstract class StatementNode extends Node {
+
+    abstract void execute(Environment environment);
+
+    static final class Evaluate extends StatementNode {
+
+        private ExpressionNode expression;
+
+        Evaluate(ExpressionNode expression) {
+            this.expression = adopt(expression);
+        }
+
+        @Override
+        void execute(Environment environment) {
+            expression.execute(environment);
+        }
+
+        @Override
+        protected void replaceChild(Node child, Node replacement) {
+            expression = swap(expression, child, replacement);
+        }
+    }
+
+    /**
+     * Print, it formats a primitive Num until its expression gives something else once
+     */
+    static final class Print extends StatementNode {
+
+        private final Output output;
+        private ExpressionNode expression;
+        private boolean numeric = true;
+
+        Print(ExpressionNode expression, Output output) {
+            this.expression = adopt(expression);
+            this.output = output;
+        }
+
+        @Override
+        void execute(Environment environment) {
+            if (numeric) {
+                try {
+                    Operations.print(expression.executeNumber(environment), output);
+                    return;
+                } catch (UnexpectedResultException e) {
+                    numeric = false;
+                    Operations.print(e.result(), output);
+                    return;
+                }
+            }
+            Operations.print(expression.execute(environment), output);
+        }
+
+        @Override
+        protected void replaceChild(Node child, Node replacement) {
+            expression = swap(expression, child, replacement);
+        }
+    }
+
+    static final class Declare extends StatementNode {
+
+        private final int slot;
+        private ExpressionNode value;
+
+        Declare(int slot, ExpressionNode value) {
+            this.slot = slot;
+            this.value = adopt(value);
+        }
+
+        @Override
+        void execute(Environment environment) {
+            environment.define(slot, value.execute(environment));
+        }
+
+        @Override
+        protected void replaceChild(Node child, Node replacement) {
+            value = swap(value, child, replacement);
+        }
+    }
+
+    static final class Block extends StatementNode {
+
+        private final StatementNode[] statements;
+
+        Block(List<StatementNode> statements) {
+            this.statements = statements.toArray(StatementNode[]::new);
+            for (StatementNode statement : this.statements) {
+                adopt(statement);
+            }
+        }
+
+        @Override
+        void execute(Environment environment) {
+            for (StatementNode statement : statements) {
+                statement.execute(environment);
+            }
+        }
+    }
+}
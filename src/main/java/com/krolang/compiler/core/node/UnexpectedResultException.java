@@ -0,0 +1,23 @@
+package com.krolang.compiler.core.node;
+
+/**
+ * Thrown by {@link ExpressionNode#executeNumber} when the value is not a Num, it carries the value
+ * so the caller can carry on without evaluating the expression again.
+ *
+ * @author autonu.kro
+ */
+final class UnexpectedResultException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Object result;
+
+    UnexpectedResultException(Object result) {
+        super(null, null, false, false);
+        this.result = result;
+    }
+
+    Object result() {
+        return result;
+    }
+}
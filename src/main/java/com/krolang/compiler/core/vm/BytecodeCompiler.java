@@ -0,0 +1,308 @@
+package com.krolang.compiler.core.vm;
+
+import com.krolang.compiler.core.ast.Expression;
+import com.krolang.compiler.core.ast.ExpressionFold;
+import com.krolang.compiler.core.ast.Operations;
+import com.krolang.compiler.core.ast.Statement;
+import com.krolang.compiler.core.ast.Type;
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenKind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles resolved statements into a {@link Chunk} for the {@link VirtualMachine}. The tree is
+ * walked once here, so running the chunk needs neither recursion nor visitors. Num arithmetic
+ * whose right operand is a constant or a variable, and the declaration of a Num constant, are
+ * fused into one superinstruction.
+ *
+ * @author autonu.kro
+ */
+public class BytecodeCompiler implements Statement.Visitor {
+
+    private int[] code = new int[256];
+    private int size = 0;
+    /**
+     * Start of the last instruction emitted
+     */
+    private int last = -1;
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndexes = new HashMap<>();
+    private double[] numbers = new double[16];
+    private int numberCount = 0;
+    /**
+     * Open addressing table from the bits of a Num to its index plus one, 0 for a free entry
+     */
+    private long[] numberBits = new long[32];
+    private int[] numberIndexes = new int[32];
+    private int depth = 0;
+    private int maxStack = 0;
+    private int slotCount = 0;
+    private final Emitting expressions = new Emitting();
+
+    public Chunk compile(List<Statement> statements) {
+        for (Statement statement : statements) {
+            statement.accept(this);
+        }
+        emit(OpCode.HALT);
+        return new Chunk(Arrays.copyOf(code, size), constants.toArray(), Arrays.copyOf(numbers, numberCount), maxStack, slotCount);
+    }
+
+    @Override
+    public void visit(Statement.ExpressionStatement expressionStatement) {
+        if (expressionStatement.expression() instanceof Expression.Value) {
+            // Computing a known value does nothing
+            return;
+        }
+        compile(expressionStatement.expression());
+        emit(OpCode.POP);
+        pop();
+    }
+
+    @Override
+    public void visit(Statement.PrintStatement printStatement) {
+        compile(printStatement.expression());
+        emit(OpCode.PRINT);
+        pop();
+    }
+
+    @Override
+    public void visit(Statement.VariableDeclaration variableDeclaration) {
+        compile(variableDeclaration.expression());
+        if (code[last] == OpCode.NUM) {
+            int number = code[last + 1];
+            size = last;
+            emit(OpCode.DEFINE_NUM, slot(variableDeclaration.slot()), number);
+        } else {
+            emit(OpCode.DEFINE, slot(variableDeclaration.slot()));
+        }
+        pop();
+    }
+
+    @Override
+    public void visit(Statement.CodeBlock codeBlock) {
+        for (Statement statement : codeBlock.statements()) {
+            statement.accept(this);
+        }
+    }
+
+    private void compile(Expression expression) {
+        expressions.fold(expression);
+    }
+
+    private void emitValue(Object value) {
+        switch (value) {
+            case null -> emit(OpCode.NIL);
+            case Boolean bool -> emit(bool ? OpCode.TRUE : OpCode.FALSE);
+            case Double number -> emit(OpCode.NUM, number(number));
+            default -> emit(OpCode.CONST, constant(value));
+        }
+        push();
+    }
+
+    private int slot(int slot) {
+        if (slot < 0) {
+            throw new IllegalStateException("Variable is not resolved");
+        }
+        slotCount = Math.max(slotCount, slot + 1);
+        return slot;
+    }
+
+    private int constant(Object value) {
+        Integer index = constantIndexes.get(value);
+        if (index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndexes.put(value, index);
+        }
+        return index;
+    }
+
+    private int number(double number) {
+        long bits = Double.doubleToRawLongBits(number);
+        int mask = numberBits.length - 1;
+        int entry = Long.hashCode(bits * 0x9E3779B97F4A7C15L) & mask;
+        while (numberIndexes[entry] != 0) {
+            if (numberBits[entry] == bits) {
+                return numberIndexes[entry] - 1;
+            }
+            entry = (entry + 1) & mask;
+        }
+        if (numberCount == numbers.length) {
+            numbers = Arrays.copyOf(numbers, numberCount * 2);
+        }
+        numbers[numberCount] = number;
+        numberBits[entry] = bits;
+        numberIndexes[entry] = ++numberCount;
+        if (numberCount * 2 > numberBits.length) {
+            rehashNumbers();
+        }
+        return numberCount - 1;
+    }
+
+    private void rehashNumbers() {
+        numberBits = new long[numberBits.length * 2];
+        numberIndexes = new int[numberBits.length];
+        int mask = numberBits.length - 1;
+        for (int index = 0; index < numberCount; index++) {
+            long bits = Double.doubleToRawLongBits(numbers[index]);
+            int entry = Long.hashCode(bits * 0x9E3779B97F4A7C15L) & mask;
+            while (numberIndexes[entry] != 0) {
+                entry = (entry + 1) & mask;
+            }
+            numberBits[entry] = bits;
+            numberIndexes[entry] = index + 1;
+        }
+    }
+
+    private void push() {
+        depth = depth + 1;
+        maxStack = Math.max(maxStack, depth);
+    }
+
+    private void pop() {
+        depth = depth - 1;
+    }
+
+    private void emit(int opCode) {
+        ensureCode(1);
+        last = size;
+        code[size++] = opCode;
+    }
+
+    private void emit(int opCode, int operand) {
+        ensureCode(2);
+        last = size;
+        code[size++] = opCode;
+        code[size++] = operand;
+    }
+
+    private void emit(int opCode, int first, int second) {
+        ensureCode(3);
+        last = size;
+        code[size++] = opCode;
+        code[size++] = first;
+        code[size++] = second;
+    }
+
+    private void ensureCode(int words) {
+        if (size + words > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + words));
+        }
+    }
+
+    /**
+     * Emit Num arithmetic, fused with the last instruction when that pushed its right operand
+     *
+     * @param opCode the {@code _NUM} instruction, its {@code _CONST} and {@code _LOAD} forms
+     *               follow at the same distance
+     */
+    private void emitArithmetic(int opCode) {
+        int offset = opCode - OpCode.ADD_NUM;
+        if (last >= 0 && code[last] == OpCode.NUM) {
+            int number = code[last + 1];
+            size = last;
+            emit(OpCode.ADD_NUM_CONST + offset, number);
+        } else if (last >= 0 && code[last] == OpCode.LOAD) {
+            int slot = code[last + 1];
+            int name = code[last + 2];
+            size = last;
+            emit(OpCode.ADD_NUM_LOAD + offset, slot, name);
+        } else {
+            emit(opCode);
+        }
+    }
+
+    /**
+     * Emits the code of the operands, then the instruction of the node
+     */
+    private final class Emitting extends ExpressionFold<Void> {
+
+        @Override
+        protected Void literal(Expression.Literal literal) {
+            emitValue(Operations.literalOf(literal.literal()));
+            return null;
+        }
+
+        @Override
+        protected Void variable(Expression.Variable variable) {
+            emit(OpCode.LOAD, slot(variable.slot()), constant(variable.identifier()));
+            push();
+            return null;
+        }
+
+        @Override
+        protected Void value(Expression.Value value) {
+            emitValue(value.value());
+            return null;
+        }
+
+        @Override
+        protected Void unary(Expression.Unary unary, Void right) {
+            switch (unary.operator().tokenKind()) {
+                case NOT -> emit(OpCode.NOT);
+                case MINUS -> emit(OpCode.NEGATE);
+                default -> throw new IllegalArgumentException("Invalid operator: " + unary.operator());
+            }
+            return null;
+        }
+
+        @Override
+        protected Void binary(Expression.Binary binary, Void left, Void right) {
+            Token operator = binary.operator();
+            if (binary.operands() == Type.NUM) {
+                switch (operator.tokenKind()) {
+                    case PLUS -> emitArithmetic(OpCode.ADD_NUM);
+                    case MINUS -> emitArithmetic(OpCode.SUBTRACT_NUM);
+                    case MULTIPLICATION -> emitArithmetic(OpCode.MULTIPLY_NUM);
+                    case DIVISION -> emitArithmetic(OpCode.DIVIDE_NUM);
+                    case EQ, NOT_EQ, GT, LT, GT_EQ, LT_EQ -> emit(OpCode.COMPARE_NUM, operator.tokenKind().ordinal());
+                    default -> throw new IllegalArgumentException("Invalid operator: " + operator);
+                }
+                pop();
+                return null;
+            }
+            if (binary.operands() == Type.STR && operator.tokenKind() == TokenKind.PLUS) {
+                emit(OpCode.CONCAT);
+                pop();
+                return null;
+            }
+            emit(switch (operator.tokenKind()) {
+                case PLUS -> OpCode.ADD;
+                case MINUS -> OpCode.SUBTRACT;
+                case MULTIPLICATION -> OpCode.MULTIPLY;
+                case DIVISION -> OpCode.DIVIDE;
+                case AND -> OpCode.AND;
+                case OR -> OpCode.OR;
+                case EQ -> OpCode.EQ;
+                case NOT_EQ -> OpCode.NOT_EQ;
+                case GT -> OpCode.GT;
+                case LT -> OpCode.LT;
+                case GT_EQ -> OpCode.GT_EQ;
+                case LT_EQ -> OpCode.LT_EQ;
+                default -> throw new IllegalArgumentException("Invalid operator: " + operator);
+            });
+            pop();
+            return null;
+        }
+
+        @Override
+        protected Void grouping(Expression.Grouping grouping, Void inner) {
+            if (grouping.expression() == null) {
+                emit(OpCode.NIL);
+                push();
+            }
+            return null;
+        }
+
+        @Override
+        protected Void assignment(Expression.Assignment assignment, Void value) {
+            emit(OpCode.STORE, slot(assignment.slot()));
+            return null;
+        }
+    }
+}
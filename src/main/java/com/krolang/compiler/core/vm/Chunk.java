@@ -0,0 +1,14 @@
+package com.krolang.compiler.core.vm;
+
+/**
+ * A compiled program: instructions with their operands, and the pools they index.
+ *
+ * @param code      opcodes of {@link OpCode} followed by their operands
+ * @param constants strings and identifier tokens
+ * @param numbers   Num constants, kept unboxed
+ * @param maxStack  deepest the operand stack gets
+ * @param slotCount number of variable slots the code uses
+ * @author autonu.kro
+ */
+public record Chunk(int[] code, Object[] constants, double[] numbers, int maxStack, int slotCount) {
+}
@@ -0,0 +1,93 @@
+package com.krolang.compiler.core.vm;
+
+/**
+ * Instruction set of the {@link VirtualMachine}. Operands follow the opcode in the code array,
+ * the comment of each instruction lists them.
+ *
+ * @author autonu.kro
+ */
+public final class OpCode {
+
+    /**
+     * Stop the machine
+     */
+    public static final int HALT = 0;
+    /**
+     * Push a constant: index into the constant pool
+     */
+    public static final int CONST = 1;
+    /**
+     * Push a Num: index into the number pool
+     */
+    public static final int NUM = 2;
+    public static final int NIL = 3;
+    public static final int TRUE = 4;
+    public static final int FALSE = 5;
+    /**
+     * Push a variable: slot, constant pool index of its identifier token
+     */
+    public static final int LOAD = 6;
+    /**
+     * Assign the top of the stack to a variable and keep it: slot
+     */
+    public static final int STORE = 7;
+    /**
+     * Pop the top of the stack into a variable: slot
+     */
+    public static final int DEFINE = 8;
+    public static final int POP = 9;
+    public static final int PRINT = 10;
+    public static final int NEGATE = 11;
+    public static final int NOT = 12;
+    public static final int ADD = 13;
+    public static final int SUBTRACT = 14;
+    public static final int MULTIPLY = 15;
+    public static final int DIVIDE = 16;
+    public static final int EQ = 17;
+    public static final int NOT_EQ = 18;
+    public static final int GT = 19;
+    public static final int LT = 20;
+    public static final int GT_EQ = 21;
+    public static final int LT_EQ = 22;
+    public static final int AND = 23;
+    public static final int OR = 24;
+    /**
+     * Arithmetic on operands the type checker proved to be Nums
+     */
+    public static final int ADD_NUM = 25;
+    public static final int SUBTRACT_NUM = 26;
+    public static final int MULTIPLY_NUM = 27;
+    public static final int DIVIDE_NUM = 28;
+    /**
+     * Compare operands the type checker proved to be Nums: ordinal of the operator token kind
+     */
+    public static final int COMPARE_NUM = 29;
+    /**
+     * Concatenate operands the type checker proved to be Strs
+     */
+    public static final int CONCAT = 30;
+    /**
+     * Arithmetic on a Num and a Num constant, the superinstruction of {@link #NUM} then the
+     * {@code _NUM} instruction: index into the number pool
+     */
+    public static final int ADD_NUM_CONST = 31;
+    public static final int SUBTRACT_NUM_CONST = 32;
+    public static final int MULTIPLY_NUM_CONST = 33;
+    public static final int DIVIDE_NUM_CONST = 34;
+    /**
+     * Arithmetic on a Num and a Num variable, the superinstruction of {@link #LOAD} then the
+     * {@code _NUM} instruction: slot, constant pool index of its identifier token
+     */
+    public static final int ADD_NUM_LOAD = 35;
+    public static final int SUBTRACT_NUM_LOAD = 36;
+    public static final int MULTIPLY_NUM_LOAD = 37;
+    public static final int DIVIDE_NUM_LOAD = 38;
+    /**
+     * Define a variable as a Num constant, the superinstruction of {@link #NUM} then
+     * {@link #DEFINE}: slot, index into the number pool
+     */
+    public static final int DEFINE_NUM = 39;
+
+    private OpCode() {
+    }
+}
@@ -0,0 +1,257 @@
+package com.krolang.compiler.core.vm;
+
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Operations;
+import com.krolang.compiler.core.ast.Output;
+import com.krolang.compiler.core.ast.Rope;
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenKind;
+
+import java.util.Arrays;
+
+/**
+ * Stack machine running a {@link Chunk}. Stack entries and variable slots are tagged: a Num is
+ * kept unboxed in a {@code double[]} next to a {@link #NUMBER} tag, any other value is the tag
+ * itself. Arithmetic and comparisons on two Nums never allocate, mixed operands fall back to
+ * {@link Operations}, so both engines give the same results and errors. The {@code _NUM}
+ * instructions, their superinstructions and {@link OpCode#CONCAT} skip the tags, their operands
+ * were proved by the type checker.
+ * <p>
+ * Variables outlive a run, so the chunks of a program compiled statement by statement can run
+ * one after the other on the same machine.
+ *
+ * @author autonu.kro
+ */
+public class VirtualMachine {
+
+    /**
+     * Tag of an entry whose value is the Num next to it
+     */
+    private static final Object NUMBER = new Object();
+    /**
+     * Tag of a slot whose variable was never assigned, which is not the same as Nil
+     */
+    private static final Object UNDEFINED = new Object();
+    private static final TokenKind[] KINDS = TokenKind.values();
+
+    private final Output output;
+    private Object[] stack = new Object[16];
+    private double[] numbers = new double[16];
+    private Object[] slots = new Object[16];
+    private double[] slotNumbers = new double[16];
+
+    public VirtualMachine() {
+        this(Output.console());
+    }
+
+    /**
+     * @param output receiving what is printed, flushed by the caller
+     */
+    public VirtualMachine(Output output) {
+        this.output = output;
+        Arrays.fill(slots, UNDEFINED);
+    }
+
+    public void run(Chunk chunk) {
+        ensureCapacity(chunk);
+        final int[] code = chunk.code();
+        final Object[] constants = chunk.constants();
+        final double[] pool = chunk.numbers();
+        final Object[] stack = this.stack;
+        final double[] numbers = this.numbers;
+        final Object[] slots = this.slots;
+        final double[] slotNumbers = this.slotNumbers;
+        int sp = 0;
+        int pc = 0;
+        while (true) {
+            switch (code[pc++]) {
+                case OpCode.HALT -> {
+                    return;
+                }
+                case OpCode.CONST -> stack[sp++] = constants[code[pc++]];
+                case OpCode.NUM -> {
+                    stack[sp] = NUMBER;
+                    numbers[sp++] = pool[code[pc++]];
+                }
+                case OpCode.NIL -> stack[sp++] = null;
+                case OpCode.TRUE -> stack[sp++] = Boolean.TRUE;
+                case OpCode.FALSE -> stack[sp++] = Boolean.FALSE;
+                case OpCode.LOAD -> {
+                    int slot = code[pc++];
+                    int name = code[pc++];
+                    Object value = slots[slot];
+                    if (value == UNDEFINED) {
+                        throw Environment.notDefined((Token) constants[name]);
+                    }
+                    stack[sp] = value;
+                    numbers[sp++] = slotNumbers[slot];
+                }
+                case OpCode.STORE -> {
+                    int slot = code[pc++];
+                    slots[slot] = stack[sp - 1];
+                    slotNumbers[slot] = numbers[sp - 1];
+                }
+                case OpCode.DEFINE -> {
+                    int slot = code[pc++];
+                    sp--;
+                    slots[slot] = stack[sp];
+                    slotNumbers[slot] = numbers[sp];
+                    stack[sp] = null;
+                }
+                case OpCode.DEFINE_NUM -> {
+                    int slot = code[pc++];
+                    slots[slot] = NUMBER;
+                    slotNumbers[slot] = pool[code[pc++]];
+                }
+                case OpCode.POP -> stack[--sp] = null;
+                case OpCode.PRINT -> {
+                    sp--;
+                    if (stack[sp] == NUMBER) {
+                        Operations.print(numbers[sp], output);
+                    } else {
+                        Operations.print(stack[sp], output);
+                    }
+                    stack[sp] = null;
+                }
+                case OpCode.NEGATE -> {
+                    if (stack[sp - 1] == NUMBER) {
+                        numbers[sp - 1] = -numbers[sp - 1];
+                    } else {
+                        set(stack, numbers, sp - 1, Operations.makeNegate(stack[sp - 1]));
+                    }
+                }
+                case OpCode.NOT -> set(stack, numbers, sp - 1, Operations.makeNot(value(stack, numbers, sp - 1)));
+                case OpCode.ADD -> sp = arithmetic(stack, numbers, sp, TokenKind.PLUS);
+                case OpCode.SUBTRACT -> sp = arithmetic(stack, numbers, sp, TokenKind.MINUS);
+                case OpCode.MULTIPLY -> sp = arithmetic(stack, numbers, sp, TokenKind.MULTIPLICATION);
+                case OpCode.DIVIDE -> sp = arithmetic(stack, numbers, sp, TokenKind.DIVISION);
+                case OpCode.EQ -> sp = comparison(stack, numbers, sp, TokenKind.EQ);
+                case OpCode.NOT_EQ -> sp = comparison(stack, numbers, sp, TokenKind.NOT_EQ);
+                case OpCode.GT -> sp = comparison(stack, numbers, sp, TokenKind.GT);
+                case OpCode.LT -> sp = comparison(stack, numbers, sp, TokenKind.LT);
+                case OpCode.GT_EQ -> sp = comparison(stack, numbers, sp, TokenKind.GT_EQ);
+                case OpCode.LT_EQ -> sp = comparison(stack, numbers, sp, TokenKind.LT_EQ);
+                case OpCode.AND -> {
+                    sp--;
+                    set(stack, numbers, sp - 1, Operations.logicalAndOf(value(stack, numbers, sp - 1), value(stack, numbers, sp)));
+                    stack[sp] = null;
+                }
+                case OpCode.OR -> {
+                    sp--;
+                    set(stack, numbers, sp - 1, Operations.logicalOrOf(value(stack, numbers, sp - 1), value(stack, numbers, sp)));
+                    stack[sp] = null;
+                }
+                case OpCode.ADD_NUM -> {
+                    sp--;
+                    numbers[sp - 1] = numbers[sp - 1] + numbers[sp];
+                }
+                case OpCode.SUBTRACT_NUM -> {
+                    sp--;
+                    numbers[sp - 1] = numbers[sp - 1] - numbers[sp];
+                }
+                case OpCode.MULTIPLY_NUM -> {
+                    sp--;
+                    numbers[sp - 1] = numbers[sp - 1] * numbers[sp];
+                }
+                case OpCode.DIVIDE_NUM -> {
+                    sp--;
+                    numbers[sp - 1] = Operations.arithmeticOf(TokenKind.DIVISION, numbers[sp - 1], numbers[sp]);
+                }
+                case OpCode.ADD_NUM_CONST -> numbers[sp - 1] = numbers[sp - 1] + pool[code[pc++]];
+                case OpCode.SUBTRACT_NUM_CONST -> numbers[sp - 1] = numbers[sp - 1] - pool[code[pc++]];
+                case OpCode.MULTIPLY_NUM_CONST -> numbers[sp - 1] = numbers[sp - 1] * pool[code[pc++]];
+                case OpCode.DIVIDE_NUM_CONST ->
+                        numbers[sp - 1] = Operations.arithmeticOf(TokenKind.DIVISION, numbers[sp - 1], pool[code[pc++]]);
+                case OpCode.ADD_NUM_LOAD -> {
+                    numbers[sp - 1] = numbers[sp - 1] + loadNumber(slots, slotNumbers, constants, code[pc], code[pc + 1]);
+                    pc = pc + 2;
+                }
+                case OpCode.SUBTRACT_NUM_LOAD -> {
+                    numbers[sp - 1] = numbers[sp - 1] - loadNumber(slots, slotNumbers, constants, code[pc], code[pc + 1]);
+                    pc = pc + 2;
+                }
+                case OpCode.MULTIPLY_NUM_LOAD -> {
+                    numbers[sp - 1] = numbers[sp - 1] * loadNumber(slots, slotNumbers, constants, code[pc], code[pc + 1]);
+                    pc = pc + 2;
+                }
+                case OpCode.DIVIDE_NUM_LOAD -> {
+                    numbers[sp - 1] = Operations.arithmeticOf(TokenKind.DIVISION, numbers[sp - 1],
+                            loadNumber(slots, slotNumbers, constants, code[pc], code[pc + 1]));
+                    pc = pc + 2;
+                }
+                case OpCode.COMPARE_NUM -> {
+                    TokenKind operator = KINDS[code[pc++]];
+                    sp--;
+                    stack[sp - 1] = Operations.comparisonOf(operator, numbers[sp - 1], numbers[sp]);
+                }
+                case OpCode.CONCAT -> {
+                    sp--;
+                    stack[sp - 1] = Rope.concat((CharSequence) stack[sp - 1], (CharSequence) stack[sp]);
+                    stack[sp] = null;
+                }
+                default -> throw new IllegalStateException("Invalid opcode: " + code[pc - 1]);
+            }
+        }
+    }
+
+    /**
+     * Value of a variable the type checker proved to hold a Num
+     */
+    private static double loadNumber(Object[] slots, double[] slotNumbers, Object[] constants, int slot, int name) {
+        if (slots[slot] == UNDEFINED) {
+            throw Environment.notDefined((Token) constants[name]);
+        }
+        return slotNumbers[slot];
+    }
+
+    private static int arithmetic(Object[] stack, double[] numbers, int sp, TokenKind operator) {
+        int left = sp - 2;
+        int right = sp - 1;
+        if (stack[left] == NUMBER && stack[right] == NUMBER) {
+            numbers[left] = Operations.arithmeticOf(operator, numbers[left], numbers[right]);
+        } else {
+            set(stack, numbers, left, Operations.binaryOf(operator, value(stack, numbers, left), value(stack, numbers, right)));
+            stack[right] = null;
+        }
+        return right;
+    }
+
+    private static int comparison(Object[] stack, double[] numbers, int sp, TokenKind operator) {
+        int left = sp - 2;
+        int right = sp - 1;
+        if (stack[left] == NUMBER && stack[right] == NUMBER) {
+            stack[left] = Operations.comparisonOf(operator, numbers[left], numbers[right]);
+        } else {
+            stack[left] = Operations.binaryOf(operator, value(stack, numbers, left), value(stack, numbers, right));
+            stack[right] = null;
+        }
+        return right;
+    }
+
+    private static Object value(Object[] stack, double[] numbers, int index) {
+        Object tag = stack[index];
+        return tag == NUMBER ? (Object) numbers[index] : tag;
+    }
+
+    private static void set(Object[] stack, double[] numbers, int index, Object value) {
+        if (value instanceof Double number) {
+            stack[index] = NUMBER;
+            numbers[index] = number;
+        } else {
+            stack[index] = value;
+        }
+    }
+
+    private void ensureCapacity(Chunk chunk) {
+        if (chunk.maxStack() > stack.length) {
+            stack = new Object[chunk.maxStack()];
+            numbers = new double[chunk.maxStack()];
+        }
+        if (chunk.slotCount() > slots.length) {
+            int length = slots.length;
+            slots = Arrays.copyOf(slots, Math.max(length * 2, chunk.slotCount()));
+            slotNumbers = Arrays.copyOf(slotNumbers, slots.length);
+            Arrays.fill(slots, length, slots.length, UNDEFINED);
+        }
+    }
+}
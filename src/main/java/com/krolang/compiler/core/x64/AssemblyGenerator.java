@@ -0,0 +1,464 @@
+package com.krolang.compiler.core.x64;
+
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Expression;
+import com.krolang.compiler.core.ast.ExpressionFold;
+import com.krolang.compiler.core.ast.Operations;
+import com.krolang.compiler.core.ast.Statement;
+import com.krolang.compiler.core.lox.TokenKind;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lowers resolved statements to x86-64 assembly in GAS syntax, a {@code main} linked with the
+ * {@link NativeRuntime} and the C library.
+ * <p>
+ * KroLang has no control flow, so the kind of every value is known while generating: a Num is
+ * computed in {@code xmm0}, a Str (a pointer to a C string) or a Bool in {@code rax}, and a Nil
+ * has no register at all. Operations on kinds that {@link Operations} rejects become a call
+ * raising its error message. Variables live in a {@code .bss} array, one quad word per slot.
+ *
+ * @author autonu.kro
+ */
+public class AssemblyGenerator implements Statement.Visitor {
+
+    private enum Kind {
+        NUMBER, STRING, BOOLEAN, NIL
+    }
+
+    private static final String LEFT = "16(%rsp)";
+    private static final String RIGHT = "(%rsp)";
+
+    private final StringBuilder text = new StringBuilder();
+    private final Map<Long, String> numbers = new LinkedHashMap<>();
+    private final Map<String, String> strings = new LinkedHashMap<>();
+    private Kind[] slotKinds = new Kind[16];
+    private int slotCount = 0;
+    private final Generating expressions = new Generating();
+
+    public String generate(List<Statement> statements) {
+        for (Statement statement : statements) {
+            statement.accept(this);
+        }
+        StringBuilder assembly = new StringBuilder();
+        assembly.append(NativeRuntime.SOURCE);
+        assembly.append("\n\t.section .rodata\n\t.align 8\n");
+        numbers.forEach((bits, label) -> assembly.append(label).append(":\t.quad ").append(bits).append('\n'));
+        strings.forEach((string, label) -> assembly.append(label).append(":\t.asciz ").append(quoted(string)).append('\n'));
+        assembly.append("\n\t.bss\n\t.align 8\nkro_slots:\t.zero ").append(Math.max(8, slotCount * 8L)).append('\n');
+        assembly.append("\n\t.text\n\t.globl main\nmain:\n\tpush %rbp\n\tmov %rsp, %rbp\n");
+        assembly.append(text);
+        assembly.append("\txor %eax, %eax\n\tpop %rbp\n\tret\n");
+        assembly.append("\n\t.section .note.GNU-stack,\"\",@progbits\n");
+        return assembly.toString();
+    }
+
+    @Override
+    public void visit(Statement.ExpressionStatement expressionStatement) {
+        compile(expressionStatement.expression());
+    }
+
+    @Override
+    public void visit(Statement.PrintStatement printStatement) {
+        switch (compile(printStatement.expression())) {
+            case NUMBER -> emit("call kro_print_num");
+            case STRING -> {
+                emit("mov %rax, %rdi");
+                emit("call puts@PLT");
+            }
+            case BOOLEAN -> {
+                emit("lea kro_true_text(%rip), %rdi");
+                emit("lea kro_false_text(%rip), %rcx");
+                emit("test %rax, %rax");
+                emit("cmovz %rcx, %rdi");
+                emit("call puts@PLT");
+            }
+            case NIL -> {
+                emit("lea kro_nil_text(%rip), %rdi");
+                emit("call puts@PLT");
+            }
+        }
+    }
+
+    @Override
+    public void visit(Statement.VariableDeclaration variableDeclaration) {
+        store(variableDeclaration.slot(), compile(variableDeclaration.expression()));
+    }
+
+    @Override
+    public void visit(Statement.CodeBlock codeBlock) {
+        for (Statement statement : codeBlock.statements()) {
+            statement.accept(this);
+        }
+    }
+
+    private Kind compile(Expression expression) {
+        return expressions.fold(expression);
+    }
+
+    private Kind value(Object value) {
+        switch (value) {
+            case null -> {
+                return Kind.NIL;
+            }
+            case Double number -> {
+                String label = numbers.computeIfAbsent(Double.doubleToRawLongBits(number), bits -> ".LN" + numbers.size());
+                emit("movsd " + label + "(%rip), %xmm0");
+                return Kind.NUMBER;
+            }
+            case String string -> {
+                emit("lea " + string(string) + "(%rip), %rax");
+                return Kind.STRING;
+            }
+            case Boolean bool -> {
+                emit(bool ? "mov $1, %eax" : "xor %eax, %eax");
+                return Kind.BOOLEAN;
+            }
+            default -> throw new IllegalArgumentException("Invalid value: " + value);
+        }
+    }
+
+    /**
+     * Same checks, in the same order, as the arithmetic of {@link Operations}
+     */
+    private Kind arithmetic(TokenKind operator, Kind left, Kind right) {
+        if (left == Kind.NIL || right == Kind.NIL) {
+            return fail("Operation '" + symbol(operator) + "' on Nil can not be done");
+        }
+        if (left == Kind.NUMBER) {
+            if (right != Kind.NUMBER) {
+                return fail("Operation '" + symbol(operator) + "' can not be done on different types");
+            }
+            emit("movsd " + LEFT + ", %xmm0");
+            switch (operator) {
+                case PLUS -> emit("addsd " + RIGHT + ", %xmm0");
+                case MINUS -> emit("subsd " + RIGHT + ", %xmm0");
+                case MULTIPLICATION -> emit("mulsd " + RIGHT + ", %xmm0");
+                default -> {
+                    emit("movsd " + RIGHT + ", %xmm1");
+                    emit("call kro_divide");
+                }
+            }
+            return Kind.NUMBER;
+        }
+        if (operator == TokenKind.PLUS && left == Kind.STRING) {
+            return fail("Operation '+' can not be done on different types");
+        }
+        return failWithValues(operator, left, right);
+    }
+
+    private Kind concatenation() {
+        emit("mov " + LEFT + ", %rdi");
+        emit("mov " + RIGHT + ", %rsi");
+        emit("call kro_concat");
+        return Kind.STRING;
+    }
+
+    private Kind logical(TokenKind operator, Kind left, Kind right) {
+        if (left == Kind.NIL || right == Kind.NIL) {
+            return fail("Operation '" + symbol(operator) + "' on Nil can not be done");
+        }
+        if (left != Kind.BOOLEAN) {
+            return failWithValues(operator, left, right);
+        }
+        if (right != Kind.BOOLEAN) {
+            return fail("Operation '" + symbol(operator) + "' can not be done on different types");
+        }
+        emit("mov " + LEFT + ", %rax");
+        emit((operator == TokenKind.AND ? "and " : "or ") + RIGHT + ", %rax");
+        return Kind.BOOLEAN;
+    }
+
+    private Kind equality(TokenKind operator, Kind left, Kind right) {
+        if (left == Kind.NIL || right == Kind.NIL) {
+            return fail("Operation '==' on Nil can not be done");
+        }
+        if (left != right) {
+            emit(operator == TokenKind.EQ ? "xor %eax, %eax" : "mov $1, %eax");
+            return Kind.BOOLEAN;
+        }
+        compare(left);
+        return condition(operator == TokenKind.EQ ? "sete" : "setne");
+    }
+
+    private Kind comparison(TokenKind operator, Kind left, Kind right) {
+        if (left == Kind.NIL || right == Kind.NIL) {
+            return fail("Operation '" + symbol(operator) + "' on Nil can not be done");
+        }
+        if (left == Kind.NUMBER || left == Kind.STRING) {
+            if (right != left) {
+                // Operations reports '>' for a '<' between a Num and another kind
+                String symbol = operator == TokenKind.LT && left == Kind.NUMBER ? ">" : symbol(operator);
+                return fail("Operation '" + symbol + "' can not be done on different types");
+            }
+            compare(left);
+            return condition(switch (operator) {
+                case GT -> "setg";
+                case LT -> "setl";
+                case GT_EQ -> "setge";
+                default -> "setle";
+            });
+        }
+        return failWithValues(operator, left, right);
+    }
+
+    /**
+     * Compare the operands of the same kind, setting the flags like a signed compare of left and right
+     */
+    private void compare(Kind kind) {
+        switch (kind) {
+            case NUMBER -> {
+                emit("movsd " + LEFT + ", %xmm0");
+                emit("movsd " + RIGHT + ", %xmm1");
+                emit("call kro_compare_num");
+                emit("cmp $0, %eax");
+            }
+            case STRING -> {
+                emit("mov " + LEFT + ", %rdi");
+                emit("mov " + RIGHT + ", %rsi");
+                emit("call strcmp@PLT");
+                emit("cmp $0, %eax");
+            }
+            default -> {
+                emit("mov " + LEFT + ", %rax");
+                emit("cmp " + RIGHT + ", %rax");
+            }
+        }
+    }
+
+    private Kind condition(String setInstruction) {
+        emit(setInstruction + " %al");
+        emit("movzbl %al, %eax");
+        return Kind.BOOLEAN;
+    }
+
+    private void push(Kind kind) {
+        emit("sub $16, %rsp");
+        switch (kind) {
+            case NUMBER -> emit("movsd %xmm0, (%rsp)");
+            case STRING, BOOLEAN -> emit("mov %rax, (%rsp)");
+            case NIL -> {
+            }
+        }
+    }
+
+    private void store(int slot, Kind kind) {
+        if (slot < 0) {
+            throw new IllegalStateException("Variable is not resolved");
+        }
+        switch (kind) {
+            case NUMBER -> emit("movsd %xmm0, " + slot(slot));
+            case STRING, BOOLEAN -> emit("mov %rax, " + slot(slot));
+            case NIL -> {
+            }
+        }
+        if (slot >= slotKinds.length) {
+            slotKinds = Arrays.copyOf(slotKinds, Math.max(slotKinds.length * 2, slot + 1));
+        }
+        slotKinds[slot] = kind;
+        slotCount = Math.max(slotCount, slot + 1);
+    }
+
+    /**
+     * Symbol of an operator as the messages of {@link Operations} show it
+     */
+    private static String symbol(TokenKind operator) {
+        return operator == TokenKind.DIVISION ? "/" : operator.symbol();
+    }
+
+    private static String slot(int slot) {
+        return "kro_slots+" + slot * 8L + "(%rip)";
+    }
+
+    /**
+     * Raise an error, the code after it is never reached
+     */
+    private Kind fail(String message) {
+        emit("lea " + string(message) + "(%rip), %rdi");
+        emit("call kro_fail");
+        return Kind.NIL;
+    }
+
+    /**
+     * Raise the error of a binary operation whose message shows both operands
+     */
+    private Kind failWithValues(TokenKind operator, Kind left, Kind right) {
+        emit("lea " + string("Operation '" + symbol(operator) + "' can not be done on: ") + "(%rip), %rdi");
+        emit("call kro_write");
+        writeValue(left, LEFT);
+        emit("lea kro_and(%rip), %rdi");
+        emit("call kro_write");
+        writeValue(right, RIGHT);
+        emit("lea kro_empty(%rip), %rdi");
+        emit("call kro_fail");
+        return Kind.NIL;
+    }
+
+    /**
+     * Raise the error of a unary operation on the value in its register
+     */
+    private Kind failWithValue(Kind kind) {
+        push(kind);
+        emit("lea " + string("Invalid object: ") + "(%rip), %rdi");
+        emit("call kro_write");
+        writeValue(kind, RIGHT);
+        emit("lea kro_empty(%rip), %rdi");
+        emit("call kro_fail");
+        return Kind.NIL;
+    }
+
+    /**
+     * Write a value the way Java shows it in a message
+     */
+    private void writeValue(Kind kind, String address) {
+        switch (kind) {
+            case NUMBER -> {
+                emit("movsd " + address + ", %xmm0");
+                emit("call kro_write_num");
+            }
+            case STRING -> {
+                emit("mov " + address + ", %rdi");
+                emit("call kro_write");
+            }
+            case BOOLEAN -> {
+                emit("lea kro_true(%rip), %rdi");
+                emit("lea kro_false(%rip), %rcx");
+                emit("cmpq $0, " + address);
+                emit("cmovz %rcx, %rdi");
+                emit("call kro_write");
+            }
+            case NIL -> {
+                emit("lea " + string("null") + "(%rip), %rdi");
+                emit("call kro_write");
+            }
+        }
+    }
+
+    private String string(String string) {
+        return strings.computeIfAbsent(string, s -> ".LS" + strings.size());
+    }
+
+    private void emit(String instruction) {
+        text.append('\t').append(instruction).append('\n');
+    }
+
+    /**
+     * Quote a string for {@code .asciz}, as UTF-8 with every other byte than printable ASCII escaped
+     */
+    private static String quoted(String string) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (byte b : string.getBytes(StandardCharsets.UTF_8)) {
+            int c = b & 0xff;
+            if (c >= 0x20 && c < 0x7f && c != '"' && c != '\\') {
+                quoted.append((char) c);
+            } else {
+                quoted.append('\\').append(Integer.toOctalString(c | 0x200).substring(1));
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Generates the code of the operands, then the one of the node
+     */
+    private final class Generating extends ExpressionFold<Kind> {
+
+        @Override
+        protected Kind literal(Expression.Literal literal) {
+            return AssemblyGenerator.this.value(Operations.literalOf(literal.literal()));
+        }
+
+        @Override
+        protected Kind variable(Expression.Variable variable) {
+            int slot = variable.slot();
+            Kind kind = slot >= 0 && slot < slotKinds.length ? slotKinds[slot] : null;
+            if (kind == null) {
+                return fail(Environment.notDefined(variable.identifier()).getMessage());
+            }
+            switch (kind) {
+                case NUMBER -> emit("movsd " + slot(slot) + ", %xmm0");
+                case STRING, BOOLEAN -> emit("mov " + slot(slot) + ", %rax");
+                case NIL -> {
+                }
+            }
+            return kind;
+        }
+
+        @Override
+        protected Kind value(Expression.Value value) {
+            return AssemblyGenerator.this.value(value.value());
+        }
+
+        @Override
+        protected Kind unary(Expression.Unary unary, Kind right) {
+            switch (unary.operator().tokenKind()) {
+                case MINUS -> {
+                    switch (right) {
+                        case NIL -> {
+                            return Kind.NIL;
+                        }
+                        case NUMBER -> {
+                            emit("xorpd kro_sign_mask(%rip), %xmm0");
+                            return Kind.NUMBER;
+                        }
+                        default -> {
+                            return failWithValue(right);
+                        }
+                    }
+                }
+                case NOT -> {
+                    switch (right) {
+                        case NIL -> {
+                            emit("mov $1, %eax");
+                            return Kind.BOOLEAN;
+                        }
+                        case BOOLEAN -> {
+                            emit("xor $1, %eax");
+                            return Kind.BOOLEAN;
+                        }
+                        default -> {
+                            return failWithValue(right);
+                        }
+                    }
+                }
+                default -> throw new IllegalArgumentException("Invalid operator: " + unary.operator());
+            }
+        }
+
+        @Override
+        protected void left(Expression.Binary binary, Kind left) {
+            push(left);
+        }
+
+        @Override
+        protected Kind binary(Expression.Binary binary, Kind left, Kind right) {
+            push(right);
+            TokenKind operator = binary.operator().tokenKind();
+            Kind result = switch (operator) {
+                case PLUS -> left == Kind.STRING && right == Kind.STRING ? concatenation() : arithmetic(operator, left, right);
+                case MINUS, MULTIPLICATION, DIVISION -> arithmetic(operator, left, right);
+                case AND, OR -> logical(operator, left, right);
+                case EQ, NOT_EQ -> equality(operator, left, right);
+                case GT, LT, GT_EQ, LT_EQ -> comparison(operator, left, right);
+                default -> throw new IllegalArgumentException("Invalid operator: " + binary.operator());
+            };
+            emit("add $32, %rsp");
+            return result;
+        }
+
+        @Override
+        protected Kind grouping(Expression.Grouping grouping, Kind inner) {
+            return inner == null ? Kind.NIL : inner;
+        }
+
+        @Override
+        protected Kind assignment(Expression.Assignment assignment, Kind value) {
+            store(assignment.slot(), value);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.krolang.compiler.core.x64;
+
+/**
+ * Support routines linked into every native program, in GAS syntax for x86-64 System V. They
+ * print values the way the Print statement of the JVM engines does and raise the errors of
+ * {@link com.krolang.compiler.core.ast.Operations}, using the C library for I/O, memory and the
+ * decimal conversions.
+ * <p>
+ * A Num that is not whole is printed like {@link Double#toString} or {@link Float#toString}:
+ * with the shortest digits that read back as the same value, found by trying {@code %.*e}
+ * precisions with {@code strtod} or {@code strtof}.
+ *
+ * @author autonu.kro
+ */
+final class NativeRuntime {
+
+    static final String SOURCE = """
+            \t.section .rodata
+            kro_fmt_int:\t.asciz "%d\\n"
+            kro_fmt_long:\t.asciz "%ld\\n"
+            kro_fmt_exp:\t.asciz "%.*e"
+            kro_fmt_dec:\t.asciz "%d"
+            kro_fmt_str:\t.asciz "%s"
+            kro_fmt_line:\t.asciz "%s\\n"
+            kro_long_max:\t.asciz "9223372036854775807"
+            kro_nan:\t.asciz "NaN"
+            kro_inf:\t.asciz "Infinity"
+            kro_ninf:\t.asciz "-Infinity"
+            kro_nil_text:\t.asciz "Nil"
+            kro_true_text:\t.asciz "True"
+            kro_false_text:\t.asciz "False"
+            kro_true:\t.asciz "true"
+            kro_false:\t.asciz "false"
+            kro_and:\t.asciz " and "
+            kro_empty:\t.asciz ""
+            \t.align 16
+            kro_sign_mask:\t.quad 0x8000000000000000, 0
+            kro_two63:\t.quad 0x43e0000000000000
+            kro_nan_value:\t.quad 0x7ff8000000000000
+
+            \t.bss
+            kro_exp_buf:\t.zero 64
+            kro_digits:\t.zero 32
+            kro_text:\t.zero 64
+
+            \t.text
+            # Print a Num and a line break: whole numbers as an int or a long, others like
+            # Float.toString when the value is a float, or else like Double.toString
+            kro_print_num:
+            \tsub $24, %rsp
+            \tmovsd %xmm0, (%rsp)
+            \tcvttsd2si %xmm0, %eax
+            \tcvtsi2sd %eax, %xmm1
+            \tucomisd %xmm0, %xmm1
+            \tjp 1f
+            \tjne 1f
+            \tlea kro_fmt_int(%rip), %rdi
+            \tmov %eax, %esi
+            \txor %eax, %eax
+            \tcall printf@PLT
+            \tadd $24, %rsp
+            \tret
+            1:\tucomisd kro_two63(%rip), %xmm0
+            \tjp 3f
+            \tjae 2f
+            \tcvttsd2si %xmm0, %rax
+            \tcvtsi2sd %rax, %xmm1
+            \tucomisd %xmm0, %xmm1
+            \tjne 3f
+            \tlea kro_fmt_long(%rip), %rdi
+            \tmov %rax, %rsi
+            \txor %eax, %eax
+            \tcall printf@PLT
+            \tadd $24, %rsp
+            \tret
+            # A long saturates, 2^63 is the only value at or above it equal to its long
+            2:\tjne 3f
+            \tlea kro_long_max(%rip), %rdi
+            \tcall puts@PLT
+            \tadd $24, %rsp
+            \tret
+            3:\tcvtsd2ss %xmm0, %xmm1
+            \tcvtss2sd %xmm1, %xmm1
+            \tucomisd %xmm0, %xmm1
+            \tjp 4f
+            \tjne 4f
+            \tmov $1, %edi
+            \tcall kro_format
+            \tjmp 5f
+            4:\txor %edi, %edi
+            \tmovsd (%rsp), %xmm0
+            \tcall kro_format
+            5:\tmov %rax, %rdi
+            \tcall puts@PLT
+            \tadd $24, %rsp
+            \tret
+
+            # Format xmm0 like Double.toString, or like Float.toString when edi is not 0
+            kro_format:
+            \tpush %rbx
+            \tpush %r12
+            \tsub $24, %rsp
+            \tmovsd %xmm0, (%rsp)
+            \tmov %edi, %r12d
+            \tucomisd %xmm0, %xmm0
+            \tjp 30f
+            \tmovq %xmm0, %rax
+            \tbtr $63, %rax
+            \tmov $0x7ff0000000000000, %rcx
+            \tcmp %rcx, %rax
+            \tje 31f
+            \txor %ebx, %ebx
+            # Shortest precision reading back as the same value
+            1:\tcall kro_format_exp
+            \tlea kro_exp_buf(%rip), %rdi
+            \txor %esi, %esi
+            \ttest %r12d, %r12d
+            \tjnz 2f
+            \tcall strtod@PLT
+            \tjmp 3f
+            2:\tcall strtof@PLT
+            \tcvtss2sd %xmm0, %xmm0
+            3:\tucomisd (%rsp), %xmm0
+            \tjp 4f
+            \tje 5f
+            4:\tinc %ebx
+            \tcmp $17, %ebx
+            \tjb 1b
+            # With a single digit, the closest of two digits is taken instead
+            5:\ttest %ebx, %ebx
+            \tjnz 6f
+            \tmov $1, %ebx
+            \tcall kro_format_exp
+            # Split [-]d[.ddd]e(+|-)dd into the digits and the exponent
+            6:\tlea kro_exp_buf(%rip), %rsi
+            \tlea kro_text(%rip), %rdi
+            \tlea kro_digits(%rip), %r8
+            \txor %r9d, %r9d
+            \tcmpb $45, (%rsi)
+            \tjne 7f
+            \tmovb $45, (%rdi)
+            \tinc %rdi
+            \tinc %rsi
+            7:\tmovzbl (%rsi), %eax
+            \tinc %rsi
+            \tcmp $46, %al
+            \tje 7b
+            \tcmp $101, %al
+            \tje 8f
+            \tmov %al, (%r8,%r9)
+            \tinc %r9
+            \tjmp 7b
+            8:\tmovzbl (%rsi), %r10d
+            \tinc %rsi
+            \txor %r11d, %r11d
+            9:\tmovzbl (%rsi), %eax
+            \ttest %al, %al
+            \tjz 10f
+            \tsub $48, %eax
+            \timul $10, %r11d, %r11d
+            \tadd %eax, %r11d
+            \tinc %rsi
+            \tjmp 9b
+            10:\tcmp $45, %r10d
+            \tjne 11f
+            \tneg %r11d
+            11:\tcmp $1, %r9
+            \tjbe 12f
+            \tcmpb $48, -1(%r8,%r9)
+            \tjne 12f
+            \tdec %r9
+            \tjmp 11b
+            # Plain notation from 10^-3 up to 10^7, computerized scientific otherwise
+            12:\tcmp $-3, %r11d
+            \tjl 20f
+            \tcmp $7, %r11d
+            \tjge 20f
+            \ttest %r11d, %r11d
+            \tjs 16f
+            \txor %ecx, %ecx
+            13:\tcmp %r11d, %ecx
+            \tjg 14f
+            \tmov $48, %eax
+            \tcmp %r9, %rcx
+            \tjae 1f
+            \tmovzbl (%r8,%rcx), %eax
+            1:\tmov %al, (%rdi)
+            \tinc %rdi
+            \tinc %ecx
+            \tjmp 13b
+            14:\tmovb $46, (%rdi)
+            \tinc %rdi
+            \tmovslq %r11d, %rcx
+            \tinc %rcx
+            \tcmp %r9, %rcx
+            \tjb 15f
+            \tmovb $48, (%rdi)
+            \tinc %rdi
+            \tjmp 25f
+            15:\tmovzbl (%r8,%rcx), %eax
+            \tmov %al, (%rdi)
+            \tinc %rdi
+            \tinc %rcx
+            \tcmp %r9, %rcx
+            \tjb 15b
+            \tjmp 25f
+            16:\tmovb $48, (%rdi)
+            \tmovb $46, 1(%rdi)
+            \tadd $2, %rdi
+            \tmov %r11d, %ecx
+            \tneg %ecx
+            \tdec %ecx
+            17:\ttest %ecx, %ecx
+            \tjz 18f
+            \tmovb $48, (%rdi)
+            \tinc %rdi
+            \tdec %ecx
+            \tjmp 17b
+            18:\txor %ecx, %ecx
+            19:\tmovzbl (%r8,%rcx), %eax
+            \tmov %al, (%rdi)
+            \tinc %rdi
+            \tinc %rcx
+            \tcmp %r9, %rcx
+            \tjb 19b
+            \tjmp 25f
+            20:\tmovzbl (%r8), %eax
+            \tmov %al, (%rdi)
+            \tmovb $46, 1(%rdi)
+            \tadd $2, %rdi
+            \tcmp $1, %r9
+            \tja 21f
+            \tmovb $48, (%rdi)
+            \tinc %rdi
+            \tjmp 23f
+            21:\tmov $1, %ecx
+            22:\tmovzbl (%r8,%rcx), %eax
+            \tmov %al, (%rdi)
+            \tinc %rdi
+            \tinc %rcx
+            \tcmp %r9, %rcx
+            \tjb 22b
+            23:\tmovb $69, (%rdi)
+            \tinc %rdi
+            \tlea kro_fmt_dec(%rip), %rsi
+            \tmov %r11d, %edx
+            \txor %eax, %eax
+            \tcall sprintf@PLT
+            \tjmp 26f
+            25:\tmovb $0, (%rdi)
+            26:\tlea kro_text(%rip), %rax
+            \tjmp 32f
+            30:\tlea kro_nan(%rip), %rax
+            \tjmp 32f
+            31:\tlea kro_inf(%rip), %rax
+            \tlea kro_ninf(%rip), %rcx
+            \tcmpq $0, (%rsp)
+            \tcmovl %rcx, %rax
+            32:\tadd $24, %rsp
+            \tpop %r12
+            \tpop %rbx
+            \tret
+
+            # snprintf the value at 8(%rsp) of the caller into kro_exp_buf with ebx digits after the point
+            kro_format_exp:
+            \tsub $8, %rsp
+            \tlea kro_exp_buf(%rip), %rdi
+            \tmov $64, %esi
+            \tlea kro_fmt_exp(%rip), %rdx
+            \tmov %ebx, %ecx
+            \tmovsd 16(%rsp), %xmm0
+            \tmov $1, %eax
+            \tcall snprintf@PLT
+            \tadd $8, %rsp
+            \tret
+
+            # Write a Num like Double.toString, without a line break
+            kro_write_num:
+            \tsub $8, %rsp
+            \txor %edi, %edi
+            \tcall kro_format
+            \tmov %rax, %rdi
+            \tcall kro_write
+            \tadd $8, %rsp
+            \tret
+
+            # Write the string in rdi, without a line break
+            kro_write:
+            \tsub $8, %rsp
+            \tmov %rdi, %rsi
+            \tlea kro_fmt_str(%rip), %rdi
+            \txor %eax, %eax
+            \tcall printf@PLT
+            \tadd $8, %rsp
+            \tret
+
+            # Print the message in rdi and a line break, then exit like a failed compilation
+            kro_fail:
+            \tsub $8, %rsp
+            \tmov %rdi, %rsi
+            \tlea kro_fmt_line(%rip), %rdi
+            \txor %eax, %eax
+            \tcall printf@PLT
+            \tmov $64, %edi
+            \tcall exit@PLT
+
+            # Concatenate the strings in rdi and rsi into a new string
+            kro_concat:
+            \tpush %rbx
+            \tpush %r12
+            \tpush %r13
+            \tpush %r14
+            \tsub $8, %rsp
+            \tmov %rdi, %rbx
+            \tmov %rsi, %r12
+            \tcall strlen@PLT
+            \tmov %rax, %r13
+            \tmov %r12, %rdi
+            \tcall strlen@PLT
+            \tmov %rax, %r14
+            \tlea 1(%r13,%r14), %rdi
+            \tcall malloc@PLT
+            \ttest %rax, %rax
+            \tjz 1f
+            \tmov %rax, %rdi
+            \tmov %rbx, %rsi
+            \tmov %r13, %rdx
+            \tcall memcpy@PLT
+            \tlea (%rax,%r13), %rdi
+            \tmov %r12, %rsi
+            \tlea 1(%r14), %rdx
+            \tcall memcpy@PLT
+            \tsub %r13, %rax
+            \tadd $8, %rsp
+            \tpop %r14
+            \tpop %r13
+            \tpop %r12
+            \tpop %rbx
+            \tret
+            1:\tcall abort@PLT
+
+            # Compare xmm0 with xmm1 like Double.compare, giving -1, 0 or 1 in eax
+            kro_compare_num:
+            \tucomisd %xmm1, %xmm0
+            \tjp 1f
+            \tjb 4f
+            \tja 5f
+            1:\tmovq %xmm0, %rax
+            \tucomisd %xmm0, %xmm0
+            \tjnp 2f
+            \tmov kro_nan_value(%rip), %rax
+            2:\tmovq %xmm1, %rcx
+            \tucomisd %xmm1, %xmm1
+            \tjnp 3f
+            \tmov kro_nan_value(%rip), %rcx
+            3:\tcmp %rcx, %rax
+            \tjl 4f
+            \tjg 5f
+            \txor %eax, %eax
+            \tret
+            4:\tmov $-1, %eax
+            \tret
+            5:\tmov $1, %eax
+            \tret
+
+            # Divide xmm0 by xmm1, a division by 0.0 gives NaN
+            kro_divide:
+            \tmovq %xmm1, %rax
+            \ttest %rax, %rax
+            \tjz 1f
+            \tdivsd %xmm1, %xmm0
+            \tret
+            1:\tmovsd kro_nan_value(%rip), %xmm0
+            \tret
+            """;
+
+    private NativeRuntime() {
+    }
+}
@@ -0,0 +1,62 @@
+package com.krolang.compiler.core.x64;
+
+import com.krolang.compiler.core.CompilationError;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Turns generated assembly into an executable with the local tools: the GNU assembler, and the C
+ * compiler driver as the linker so the C library and its start files are linked in.
+ *
+ * @author autonu.kro
+ */
+public class Toolchain {
+
+    private final String assembler;
+    private final String linker;
+
+    public Toolchain() {
+        this("as", "cc");
+    }
+
+    public Toolchain(String assembler, String linker) {
+        this.assembler = assembler;
+        this.linker = linker;
+    }
+
+    /**
+     * Assemble and link {@code assembly} into the executable {@code output}. The intermediate
+     * files are written next to it and removed afterwards.
+     */
+    public void link(String assembly, Path output) throws IOException {
+        Path assemblyFile = output.resolveSibling(output.getFileName() + ".s");
+        Path objectFile = output.resolveSibling(output.getFileName() + ".o");
+        try {
+            Files.writeString(assemblyFile, assembly, StandardCharsets.UTF_8);
+            run(List.of(assembler, "-o", objectFile.toString(), assemblyFile.toString()));
+            run(List.of(linker, "-o", output.toString(), objectFile.toString()));
+        } finally {
+            Files.deleteIfExists(assemblyFile);
+            Files.deleteIfExists(objectFile);
+        }
+    }
+
+    private static void run(List<String> command) throws IOException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new CompilationError(String.format("| %s failed with exit code %d%n%s", command.getFirst(), exitCode, output));
+            }
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new CompilationError("Build interrupted");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.krolang.compiler.core;
+
+import com.krolang.compiler.core.ast.Output;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * @author autonu.kro
+ */
+class CompilerStreamingTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void endsWhenTheParserFinishesAheadOfASlowInterpreter() throws IOException {
+        int count = 5_000;
+        StringBuilder source = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            source.append("Print -> ").append(i).append(";\n");
+            expected.append(i).append(System.lineSeparator());
+        }
+        Path file = write(source);
+        SlowChannel channel = new SlowChannel(500);
+        Compiler compiler = new Compiler(file.toString(), Backend.TREE, null, Output.of(channel, 64));
+
+        assertTimeoutPreemptively(TIMEOUT, compiler::compileStreaming);
+        assertEquals(expected.toString(), channel.text());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Backend.class)
+    void runsLongDeclarationChains(Backend backend) throws IOException {
+        int count = 20_000;
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            source.append("Let v").append(i).append(": Num = ").append(i).append(" + 1;\n");
+        }
+        source.append("Print -> v").append(count - 1).append(";\n");
+        Path file = write(source);
+        SlowChannel channel = new SlowChannel(0);
+        Compiler compiler = new Compiler(file.toString(), backend, null, Output.of(channel));
+
+        assertTimeoutPreemptively(TIMEOUT, compiler::compileStreaming);
+        assertEquals(count + System.lineSeparator(), channel.text());
+    }
+
+    private Path write(CharSequence source) throws IOException {
+        Path file = directory.resolve("program.kro");
+        Files.writeString(file, source);
+        return file;
+    }
+
+    /**
+     * Channel holding up its first write, so the parser runs far ahead of the interpreter
+     */
+    private static final class SlowChannel implements WritableByteChannel {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private long firstWriteDelay;
+
+        private SlowChannel(long firstWriteDelay) {
+            this.firstWriteDelay = firstWriteDelay;
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            if (firstWriteDelay > 0) {
+                try {
+                    Thread.sleep(firstWriteDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                firstWriteDelay = 0;
+            }
+            int count = source.remaining();
+            bytes.write(source.array(), source.arrayOffset() + source.position(), count);
+            source.position(source.limit());
+            return count;
+        }
+
+        private String text() {
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.krolang.compiler.core;
+
+import com.krolang.compiler.core.ast.Output;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs every program under {@code conformance/} on every {@link Backend}, batch and streaming.
+ * A program {@code name.kro} prints {@code name.out} and then fails with {@code name.err} if that
+ * file exists, the source path in the message written as the file name. A streaming run prints
+ * {@code name.stream.out} instead when it exists: it executes the statements before an error,
+ * where a batch run checks the whole program first.
+ *
+ * @author autonu.kro
+ */
+class ConformanceTest {
+
+    @ParameterizedTest(name = "{0} on {1}, streaming {2}")
+    @MethodSource("runs")
+    void conforms(String program, Backend backend, boolean streaming) throws IOException {
+        Path source = directory().resolve(program + ".kro");
+        StringBuilder printed = new StringBuilder();
+        Compiler compiler = new Compiler(source.toString(), backend, null, Output.of(printed));
+        String error = "";
+        try {
+            if (streaming) {
+                compiler.compileStreaming();
+            } else {
+                compiler.compile();
+            }
+        } catch (RuntimeException e) {
+            error = e.getClass().getSimpleName() + ": " + Objects.toString(e.getMessage()).replace(source.toAbsolutePath().toString(), source.getFileName().toString());
+        }
+
+        Path streamOut = directory().resolve(program + ".stream.out");
+        Path expectedOut = streaming && Files.exists(streamOut) ? streamOut : directory().resolve(program + ".out");
+        Path expectedErr = directory().resolve(program + ".err");
+        assertEquals(Files.readString(expectedOut), lines(printed.toString()));
+        assertEquals(Files.exists(expectedErr) ? Files.readString(expectedErr) : "", lines(error));
+    }
+
+    static Stream<Arguments> runs() throws IOException {
+        List<String> programs;
+        try (Stream<Path> files = Files.list(directory())) {
+            programs = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(".kro"))
+                    .map(name -> name.substring(0, name.length() - ".kro".length()))
+                    .sorted()
+                    .toList();
+        }
+        return programs.stream().flatMap(program -> Stream.of(Backend.values())
+                .flatMap(backend -> Stream.of(Arguments.of(program, backend, false), Arguments.of(program, backend, true))));
+    }
+
+    private static Path directory() {
+        try {
+            return Path.of(Objects.requireNonNull(ConformanceTest.class.getResource("/conformance")).toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String lines(String text) {
+        return text.replace(System.lineSeparator(), "\n");
+    }
+}
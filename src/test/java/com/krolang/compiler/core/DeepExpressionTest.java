@@ -0,0 +1,82 @@
+package com.krolang.compiler.core;
+
+import com.krolang.compiler.core.ast.Output;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author autonu.kro
+ */
+class DeepExpressionTest {
+
+    private static final int TERMS = 1_000_000;
+
+    @TempDir
+    Path directory;
+
+    static Stream<Arguments> engines() {
+        return Arrays.stream(Backend.values()).flatMap(backend -> Stream.of(Arguments.of(backend, false), Arguments.of(backend, true)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    void runsAMillionTermExpression(Backend backend, boolean streaming) throws IOException {
+        assertEquals("-500000", run(source(), backend, streaming, null));
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    void runsGroupingsNestedAMillionDeep(Backend backend, boolean streaming) throws IOException {
+        // x - (x - (... - (x))), every level flips between 0 and 1
+        String source = "Let x: Num = 1;\nPrint -> " + "x - (".repeat(TERMS) + "x" + ")".repeat(TERMS) + ";\n";
+        assertEquals("1", run(source, backend, streaming, null));
+    }
+
+    @Test
+    void runsAMillionTermExpressionFromTheCache() throws IOException {
+        Path cacheDirectory = directory.resolve("cache");
+        ProgramCache cache = new ProgramCache(cacheDirectory, ProgramCache.DEFAULT_MAX_BYTES);
+        assertEquals("-500000", run(source(), Backend.TREE, false, cache));
+        try (Stream<Path> cached = Files.list(cacheDirectory)) {
+            assertEquals(1, cached.count());
+        }
+        assertEquals("-500000", run(source(), Backend.VM, false, cache));
+    }
+
+    /**
+     * Variables keep the optimizer from folding it, every pass and engine walks all of it
+     */
+    private static CharSequence source() {
+        StringBuilder source = new StringBuilder("Let x: Num = 1;\nPrint -> x");
+        for (int i = 1; i < TERMS; i++) {
+            source.append(i % 2 == 0 ? " + x" : " - x * 2");
+        }
+        return source.append(";\n");
+    }
+
+    private String run(CharSequence source, Backend backend, boolean streaming, ProgramCache cache) throws IOException {
+        Path file = Files.writeString(directory.resolve("deep.kro"), source);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Compiler compiler = new Compiler(file.toString(), backend, cache, Output.of(Channels.newChannel(bytes)));
+        if (streaming) {
+            compiler.compileStreaming();
+        } else {
+            compiler.compile();
+        }
+        return bytes.toString(StandardCharsets.UTF_8).strip();
+    }
+}
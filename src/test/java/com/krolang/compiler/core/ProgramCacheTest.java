@@ -0,0 +1,184 @@
+package com.krolang.compiler.core;
+
+import com.krolang.compiler.core.ast.AstCodec;
+import com.krolang.compiler.core.ast.Output;
+import com.krolang.compiler.core.ast.Parser;
+import com.krolang.compiler.core.ast.Resolver;
+import com.krolang.compiler.core.ast.Statement;
+import com.krolang.compiler.core.lox.Lexer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author autonu.kro
+ */
+class ProgramCacheTest {
+
+    private static final String PROGRAM = "Let greeting: Str = 'kro';\n{ Print -> greeting + 'lang'; }\nPrint -> 1 + 2 * -3;\n";
+    private static final String OUTPUT = "krolang" + System.lineSeparator() + "-5" + System.lineSeparator();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keyFollowsEveryByteOfALargeFile() throws IOException {
+        ProgramCache cache = new ProgramCache(directory.resolve("cache"), ProgramCache.DEFAULT_MAX_BYTES);
+        // Over three hashing windows, the edits fall in the last one
+        String line = "Let value: Num = 1234567890;\n";
+        String source = line.repeat((3 << 20) / line.length() + 1);
+        Path file = Files.writeString(directory.resolve("large.kro"), source);
+        String key = cache.key(file);
+        assertEquals(key, cache.key(file));
+
+        Files.writeString(file, source.substring(0, source.length() - 3) + "9;\n");
+        assertNotEquals(key, cache.key(file));
+        Files.writeString(file, source + "\n");
+        assertNotEquals(key, cache.key(file));
+        Files.writeString(file, source);
+        assertEquals(key, cache.key(file));
+    }
+
+    @Test
+    void printsTheSameFromTheCacheAndNothingElse() throws IOException {
+        ProgramCache cache = new ProgramCache(directory.resolve("cache"), ProgramCache.DEFAULT_MAX_BYTES);
+        Path file = Files.writeString(directory.resolve("blocks.kro"), "{\n    Print -> 1;\n    { Print -> 2; }\n}\nPrint -> 3;\n");
+        PrintStream standardOut = System.out;
+        ByteArrayOutputStream stray = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(stray, true, StandardCharsets.UTF_8));
+        try {
+            for (int run = 0; run < 2; run++) {
+                StringBuilder printed = new StringBuilder();
+                new Compiler(file.toString(), Backend.TREE, cache, Output.of(printed)).compile();
+                assertEquals("1" + System.lineSeparator() + "2" + System.lineSeparator() + "3" + System.lineSeparator(), printed.toString());
+            }
+        } finally {
+            System.setOut(standardOut);
+        }
+        assertEquals("", stray.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void keyDependsOnThePath() throws IOException {
+        ProgramCache cache = new ProgramCache(directory.resolve("cache"), ProgramCache.DEFAULT_MAX_BYTES);
+        Path first = Files.writeString(directory.resolve("first.kro"), "Print -> 1;\n");
+        Path second = Files.writeString(directory.resolve("second.kro"), "Print -> 1;\n");
+        assertNotEquals(cache.key(first), cache.key(second));
+        Path empty = Files.writeString(directory.resolve("empty.kro"), "");
+        assertEquals(64, cache.key(empty).length());
+    }
+
+    @Test
+    void loadsWhatItStored() throws IOException {
+        ProgramCache cache = new ProgramCache(directory.resolve("cache"), ProgramCache.DEFAULT_MAX_BYTES);
+        Path file = Files.writeString(directory.resolve("program.kro"), PROGRAM);
+        String key = cache.key(file);
+        assertEquals(Optional.empty(), cache.load(key));
+        cache.store(key, program());
+        assertEquals(Optional.of(program()), cache.load(key));
+        assertEquals(Optional.empty(), cache.load(key("b")));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntriesOverItsSize() throws IOException {
+        ProgramCache probe = new ProgramCache(directory.resolve("probe"), ProgramCache.DEFAULT_MAX_BYTES);
+        probe.store(key("a"), program());
+        long entrySize = Files.size(entry(directory.resolve("probe"), key("a")));
+
+        Path cacheDirectory = directory.resolve("cache");
+        ProgramCache cache = new ProgramCache(cacheDirectory, 2 * entrySize);
+        long now = System.currentTimeMillis();
+        cache.store(key("a"), program());
+        Files.setLastModifiedTime(entry(cacheDirectory, key("a")), FileTime.fromMillis(now - TimeUnit.HOURS.toMillis(3)));
+        cache.store(key("b"), program());
+        Files.setLastModifiedTime(entry(cacheDirectory, key("b")), FileTime.fromMillis(now - TimeUnit.HOURS.toMillis(2)));
+        // Loading marks the older entry as used last
+        assertTrue(cache.load(key("a")).isPresent());
+        cache.store(key("c"), program());
+
+        assertTrue(Files.exists(entry(cacheDirectory, key("a"))));
+        assertFalse(Files.exists(entry(cacheDirectory, key("b"))));
+        assertTrue(Files.exists(entry(cacheDirectory, key("c"))));
+    }
+
+    @Test
+    void deletesACorruptOrTruncatedEntryAndCompilesAgain() throws IOException {
+        Path cacheDirectory = directory.resolve("cache");
+        ProgramCache cache = new ProgramCache(cacheDirectory, ProgramCache.DEFAULT_MAX_BYTES);
+        Path file = Files.writeString(directory.resolve("program.kro"), PROGRAM);
+        String key = cache.key(file);
+        assertEquals(OUTPUT, run(file, cache));
+        byte[] stored = Files.readAllBytes(entry(cacheDirectory, key));
+
+        byte[] corrupt = stored.clone();
+        corrupt[corrupt.length / 2] = (byte) 0xff;
+        corrupt[corrupt.length / 2 + 1] = (byte) 0xff;
+        List<byte[]> damaged = List.of(corrupt, Arrays.copyOf(stored, stored.length - 3), Arrays.copyOf(stored, 40), new byte[0]);
+        for (byte[] entry : damaged) {
+            Files.write(entry(cacheDirectory, key), entry);
+            assertEquals(Optional.empty(), cache.load(key));
+            assertFalse(Files.exists(entry(cacheDirectory, key)));
+
+            Files.write(entry(cacheDirectory, key), entry);
+            assertEquals(OUTPUT, run(file, cache));
+            assertArrayEquals(stored, Files.readAllBytes(entry(cacheDirectory, key)));
+        }
+    }
+
+    @Test
+    void dropsAnEntryOfAnotherCodecVersion() throws IOException {
+        Path cacheDirectory = directory.resolve("cache");
+        ProgramCache cache = new ProgramCache(cacheDirectory, ProgramCache.DEFAULT_MAX_BYTES);
+        cache.store(key("a"), program());
+        byte[] stored = Files.readAllBytes(entry(cacheDirectory, key("a")));
+        // The codec version follows the key, the checksum and the magic number
+        int version = 64 + 2 * Integer.BYTES;
+        assertEquals(AstCodec.VERSION, stored[version]);
+        stored[version] = (byte) (AstCodec.VERSION + 1);
+        // A checksum that holds, only the version tells the entry apart
+        CRC32C crc = new CRC32C();
+        crc.update(stored, version - Integer.BYTES, stored.length - version + Integer.BYTES);
+        ByteBuffer.wrap(stored, 64, Integer.BYTES).putInt((int) crc.getValue());
+        Files.write(entry(cacheDirectory, key("a")), stored);
+
+        assertEquals(Optional.empty(), cache.load(key("a")));
+        assertFalse(Files.exists(entry(cacheDirectory, key("a"))));
+    }
+
+    private static List<Statement> program() {
+        return new Resolver().resolve(new Parser(new Lexer(null, "program.kro").scan(PROGRAM)).parse());
+    }
+
+    private static String run(Path file, ProgramCache cache) throws IOException {
+        StringBuilder printed = new StringBuilder();
+        new Compiler(file.toString(), Backend.TREE, cache, Output.of(printed)).compile();
+        return printed.toString();
+    }
+
+    private static String key(String digit) {
+        return digit.repeat(64);
+    }
+
+    private static Path entry(Path cacheDirectory, String key) {
+        return cacheDirectory.resolve(key + ".kroc");
+    }
+}
@@ -0,0 +1,94 @@
+package com.krolang.compiler.core;
+
+import com.krolang.compiler.core.ast.Output;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author autonu.kro
+ */
+class SessionTest {
+
+    private static final int SESSIONS = 64;
+    private static final int EVALUATIONS = 200;
+
+    @Test
+    void sessionsEvaluatingAtOnceKeepTheirOwnVariables() throws Exception {
+        Engine engine = new Engine();
+        CyclicBarrier start = new CyclicBarrier(SESSIONS);
+        List<Future<?>> runs = new ArrayList<>();
+        try (ExecutorService threads = Executors.newFixedThreadPool(SESSIONS)) {
+            for (int i = 0; i < SESSIONS; i++) {
+                int id = i;
+                runs.add(threads.submit(() -> {
+                    StringBuilder printed = new StringBuilder();
+                    Session session = engine.openSession(Output.of(printed));
+                    start.await(10, TimeUnit.SECONDS);
+                    // Every session declares the same names, with values of its own
+                    session.eval("Let id: Num = " + id + ";\nLet total: Num = 0;\nLet name: Str = 's" + id + "';");
+                    long total = 0;
+                    StringBuilder expected = new StringBuilder();
+                    for (int n = 1; n <= EVALUATIONS; n++) {
+                        printed.setLength(0);
+                        session.eval("total = total + id + " + n + ";\nname = name + '.';\nPrint -> total;");
+                        total = total + id + n;
+                        assertEquals(total + System.lineSeparator(), printed.toString());
+                        expected.append('.');
+                    }
+                    printed.setLength(0);
+                    session.eval("Print -> name;\nPrint -> id;");
+                    assertEquals("s" + id + expected + System.lineSeparator() + id + System.lineSeparator(), printed.toString());
+                    return null;
+                }));
+            }
+            for (Future<?> run : runs) {
+                run.get(60, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    @Test
+    void evaluationsOfOneSessionAreSerialised() throws Exception {
+        StringBuilder printed = new StringBuilder();
+        Session session = new Engine().openSession(Output.of(printed));
+        session.eval("Let count: Num = 0;");
+        int threadCount = 16;
+        CyclicBarrier start = new CyclicBarrier(threadCount);
+        List<Future<?>> runs = new ArrayList<>();
+        try (ExecutorService threads = Executors.newFixedThreadPool(threadCount)) {
+            for (int i = 0; i < threadCount; i++) {
+                runs.add(threads.submit(() -> {
+                    start.await(10, TimeUnit.SECONDS);
+                    for (int n = 0; n < EVALUATIONS; n++) {
+                        session.eval("count = count + 1;");
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> run : runs) {
+                run.get(60, TimeUnit.SECONDS);
+            }
+        }
+        session.eval("Print -> count;");
+        assertEquals(threadCount * EVALUATIONS + System.lineSeparator(), printed.toString());
+    }
+
+    @Test
+    void sessionsNeverSeeEachOthersVariables() {
+        Engine engine = new Engine();
+        Session first = engine.openSession(Output.of(new StringBuilder()));
+        Session second = engine.openSession(Output.of(new StringBuilder()));
+        first.eval("Let only: Num = 1;");
+        assertThrows(CompilationError.class, () -> second.eval("Print -> only;"));
+    }
+}
@@ -0,0 +1,121 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.SyntaxError;
+import com.krolang.compiler.core.lox.Lexer;
+import com.krolang.compiler.core.lox.TokenBuffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The arena parser and the arena interpreter against the {@link Parser} and the record
+ * {@link Interpreter}, over the {@code conformance/} programs.
+ *
+ * @author autonu.kro
+ */
+class AstArenaTest {
+
+    @ParameterizedTest
+    @MethodSource("programs")
+    void parsesTheSameStatementsAsTheParser(Path program) throws IOException {
+        TokenBuffer tokens = Lexer.scan(program);
+        assertEquals(parsed(() -> parse(tokens)), parsed(() -> arenaParse(tokens)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("programs")
+    void runsLikeTheRecordInterpreter(Path program) throws IOException {
+        List<Statement> statements;
+        try {
+            statements = new Parser(Lexer.scan(program)).parse();
+        } catch (SyntaxError e) {
+            return;
+        }
+        StringBuilder expected = new StringBuilder();
+        String expectedError = run(() -> new Interpreter(new Resolver().resolve(statements), new Environment(), Output.of(expected)).interpret());
+        StringBuilder actual = new StringBuilder();
+        AstArena arena = new Resolver().resolve(AstArena.parse(Lexer.scan(program)));
+        String actualError = run(() -> new Interpreter(arena, new Environment(), Output.of(actual)).interpret());
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expectedError, actualError);
+    }
+
+    @Test
+    void reportsTheSameSyntaxErrorsAsTheParser() {
+        List<String> sources = List.of(
+                "Print -> ;",
+                "Let x: Num = 1 +;",
+                "Let x Num = 1;",
+                "(x) = 1;",
+                "a + b = 1;",
+                "Print -> (1 + 2;",
+                "{ Print -> 1;",
+                "Print -> 1; }",
+                "Print -> 1",
+                "Let = 2;");
+        for (String source : sources) {
+            String expected = assertThrows(SyntaxError.class, () -> parse(scan(source)), source).getMessage();
+            assertEquals(expected, parsed(() -> arenaParse(scan(source))), source);
+        }
+    }
+
+    @Test
+    void resolvesTheSameSlotsAsTheResolver() {
+        String source = "Let a: Num = 1; { Let b: Num = a + 2; a = b; { Print -> a + b; } } Let c: Num = a;";
+        assertEquals(new Resolver().resolve(parse(scan(source))), new Resolver().resolve(AstArena.parse(scan(source))).toStatements());
+    }
+
+    static Stream<Path> programs() throws IOException, URISyntaxException {
+        Path directory = Path.of(Objects.requireNonNull(AstArenaTest.class.getResource("/conformance")).toURI());
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".kro")).sorted().toList().stream();
+        }
+    }
+
+    private static List<Statement> parse(TokenBuffer tokens) {
+        return new Parser(tokens).parse();
+    }
+
+    private static List<Statement> arenaParse(TokenBuffer tokens) {
+        return AstArena.parse(tokens).toStatements();
+    }
+
+    /**
+     * @return the statements parsed, or the message of the syntax error
+     */
+    private static Object parsed(Supplier<List<Statement>> parse) {
+        try {
+            return parse.get();
+        } catch (SyntaxError e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * @return the error the run ended with, empty when it did not fail
+     */
+    private static String run(Runnable run) {
+        try {
+            run.run();
+            return "";
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    private static TokenBuffer scan(String source) {
+        return new Lexer(null, "test").scan(source);
+    }
+}
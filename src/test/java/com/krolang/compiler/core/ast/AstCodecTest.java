@@ -0,0 +1,124 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.CompilationError;
+import com.krolang.compiler.core.SyntaxError;
+import com.krolang.compiler.core.lox.Lexer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author autonu.kro
+ */
+class AstCodecTest {
+
+    private static final String PROGRAM = """
+            Let greeting: Str = 'kro';
+            Let total: Num = 1 + 2 * 3;
+            total = total * -total;
+            { Print -> greeting + 'lang'; Let nothing: Num; Print -> (total > 2) == True; }
+            Print -> (1 < 2) != False;
+            """;
+
+    @ParameterizedTest
+    @MethodSource("programs")
+    void decodesWhatItEncoded(Path program) throws IOException {
+        List<Statement> statements;
+        try {
+            statements = new Resolver().resolve(new Parser(Lexer.scan(program)).parse());
+        } catch (SyntaxError e) {
+            return;
+        }
+        assertEquals(statements, roundTrip(statements));
+        try {
+            List<Statement> optimized = new Optimizer().optimize(new TypeChecker().check(statements));
+            assertEquals(optimized, roundTrip(optimized));
+        } catch (CompilationError e) {
+            // Only the resolved statements of a program failing its type check
+        }
+    }
+
+    @Test
+    void keepsValuesSlotsAndOperandTypes() {
+        List<Statement> statements = new Optimizer().optimize(new TypeChecker().check(new Resolver().resolve(parse(PROGRAM))));
+        List<Statement> decoded = roundTrip(statements);
+        assertEquals(statements, decoded);
+
+        Statement.VariableDeclaration total = assertInstanceOf(Statement.VariableDeclaration.class, decoded.get(1));
+        assertEquals(1, total.slot());
+        assertEquals(7.0, assertInstanceOf(Expression.Value.class, total.expression()).value());
+        Statement.CodeBlock block = assertInstanceOf(Statement.CodeBlock.class, decoded.get(3));
+        Statement.PrintStatement print = assertInstanceOf(Statement.PrintStatement.class, block.statements().getFirst());
+        assertEquals(Type.STR, assertInstanceOf(Expression.Binary.class, print.expression()).operands());
+        assertEquals(2, assertInstanceOf(Statement.VariableDeclaration.class, block.statements().get(1)).slot());
+    }
+
+    @Test
+    void decodesFromThePositionOfTheBuffer() {
+        List<Statement> statements = new Resolver().resolve(parse(PROGRAM));
+        byte[] encoded = AstCodec.encode(statements);
+        ByteBuffer buffer = ByteBuffer.allocate(encoded.length + 3).put(new byte[3]).put(encoded).position(3);
+        assertEquals(statements, AstCodec.decode(buffer));
+    }
+
+    @Test
+    void rejectsABadMagicNumber() {
+        byte[] encoded = AstCodec.encode(parse(PROGRAM));
+        encoded[0] ^= 1;
+        assertEquals("Not an encoded program", rejected(encoded).getMessage());
+    }
+
+    @Test
+    void rejectsAnotherVersion() {
+        byte[] encoded = AstCodec.encode(parse(PROGRAM));
+        encoded[Integer.BYTES] = (byte) (AstCodec.VERSION + 1);
+        assertEquals("Unsupported program encoding version: " + (AstCodec.VERSION + 1), rejected(encoded).getMessage());
+    }
+
+    @Test
+    void rejectsEveryTruncation() {
+        byte[] encoded = AstCodec.encode(new Resolver().resolve(parse(PROGRAM)));
+        for (int length = 0; length < encoded.length; length++) {
+            rejected(Arrays.copyOf(encoded, length));
+        }
+    }
+
+    @Test
+    void rejectsTrailingBytes() {
+        byte[] encoded = AstCodec.encode(parse(PROGRAM));
+        assertEquals("Trailing bytes after the encoded program", rejected(Arrays.copyOf(encoded, encoded.length + 1)).getMessage());
+    }
+
+    static Stream<Path> programs() throws IOException, URISyntaxException {
+        Path directory = Path.of(Objects.requireNonNull(AstCodecTest.class.getResource("/conformance")).toURI());
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".kro")).sorted().toList().stream();
+        }
+    }
+
+    private static List<Statement> roundTrip(List<Statement> statements) {
+        return AstCodec.decode(ByteBuffer.wrap(AstCodec.encode(statements)));
+    }
+
+    private static IllegalArgumentException rejected(byte[] encoded) {
+        return assertThrows(IllegalArgumentException.class, () -> AstCodec.decode(ByteBuffer.wrap(encoded)), "length " + encoded.length);
+    }
+
+    private static List<Statement> parse(String source) {
+        return new Parser(new Lexer(null, "codec.kro").scan(source)).parse();
+    }
+}
@@ -0,0 +1,122 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.SyntaxError;
+import com.krolang.compiler.core.lox.Lexer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author autonu.kro
+ */
+class IncrementalParserTest {
+
+    private static final String PATH = "edited.kro";
+    private static final String[] LINES = {
+            "Let x: Num = 1 + 2;\n", "Print -> x * 3;\n", "y = 4;\n", "{\n    Print -> -y;\n}\n", "\n",
+            "Let s: Str = 'a' + 'b';\n", "// note\n", "/* a\nb */\n", "Let n: Bool;\n", "Print -> !x == 2;\n"
+    };
+    private static final String[] FRAGMENTS = {"/*", "*/", "{\n", "}\n", "-", ";", "'", "7 +"};
+
+    @Test
+    void equalsAFullParseAfterEveryEdit() {
+        Random random = new Random(42);
+        int checked = 0;
+        for (int round = 0; round < 50; round++) {
+            StringBuilder source = new StringBuilder();
+            for (int i = 0; i < 40; i++) {
+                source.append("Let v").append(i).append(": Num = ").append(i).append(" + 1;\n");
+                if (i % 7 == 3) {
+                    source.append("{\n    Print -> v").append(i).append(";\n}\n");
+                }
+            }
+            IncrementalParser parser = new IncrementalParser(PATH);
+            assertEquals(fullParse(source.toString()), parser.parse(source.toString()));
+            for (int edit = 0; edit < 40; edit++) {
+                int offset;
+                int removed;
+                String inserted;
+                switch (random.nextInt(4)) {
+                    case 0 -> {
+                        // Change a digit, the edit keeps the program valid
+                        offset = digitAt(source, random.nextInt(source.length()));
+                        removed = offset < source.length() ? 1 : 0;
+                        inserted = String.valueOf(random.nextInt(10));
+                    }
+                    case 1 -> {
+                        offset = lineStart(source, random.nextInt(source.length() + 1));
+                        removed = 0;
+                        inserted = LINES[random.nextInt(LINES.length)];
+                    }
+                    case 2 -> {
+                        offset = lineStart(source, random.nextInt(source.length() + 1));
+                        int end = source.indexOf("\n", offset);
+                        removed = end < 0 ? source.length() - offset : end + 1 - offset;
+                        inserted = "";
+                    }
+                    default -> {
+                        offset = random.nextInt(source.length() + 1);
+                        removed = random.nextInt(Math.min(4, source.length() - offset) + 1);
+                        inserted = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+                    }
+                }
+                String replaced = source.substring(offset, offset + removed);
+                source.replace(offset, offset + removed, inserted);
+                String text = source.toString();
+                List<Statement> expected;
+                try {
+                    expected = fullParse(text);
+                } catch (SyntaxError e) {
+                    int from = offset;
+                    int length = removed;
+                    SyntaxError error = assertThrows(SyntaxError.class, () -> parser.edit(from, length, inserted));
+                    assertEquals(e.getMessage(), error.getMessage());
+                    // Undo it, the parser starts over from the whole text
+                    source.replace(offset, offset + inserted.length(), replaced);
+                    assertEquals(fullParse(source.toString()), parser.edit(offset, inserted.length(), replaced));
+                    continue;
+                }
+                assertEquals(expected, parser.edit(offset, removed, inserted), text);
+                assertEquals(text, parser.text());
+                checked++;
+            }
+        }
+        assertTrue(checked > 1_000, "Too few valid edits: " + checked);
+    }
+
+    @Test
+    void reusesTheStatementsAnEditDoesNotTouch() {
+        IncrementalParser parser = new IncrementalParser(PATH);
+        List<Statement> before = List.copyOf(parser.parse("Let a: Num = 1;\nLet b: Num = 2;\nLet c: Num = 3;\n"));
+        List<Statement> after = parser.edit("Let a: Num = 1;\nLet b: Num = ".length(), 1, "5");
+        assertSame(before.get(0), after.get(0));
+        assertSame(before.get(2), after.get(2));
+        assertEquals(fullParse(parser.text()), after);
+    }
+
+    private static int digitAt(CharSequence source, int from) {
+        int index = from;
+        while (index < source.length() && !Character.isDigit(source.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int lineStart(CharSequence source, int from) {
+        int index = from;
+        while (index > 0 && source.charAt(index - 1) != '\n') {
+            index--;
+        }
+        return index;
+    }
+
+    private static List<Statement> fullParse(String source) {
+        return new Parser(new Lexer(List.of(source.split("\n", -1)), PATH).scan()).parse();
+    }
+}
@@ -0,0 +1,80 @@
+package com.krolang.compiler.core.ast;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author autonu.kro
+ */
+class NumberTextTest {
+
+    private static final int SAMPLES = 1_000_000;
+
+    @Test
+    void doublesAreIdenticalToDoubleToString() {
+        double[] special = {
+                0.0, -0.0, 1.0, -1.0, 0.1, 0.5, 1e-3, 1e-4, 1e7, 1e-7, 9999999.0, 10000000.0,
+                Double.MIN_VALUE, -Double.MIN_VALUE, Double.MIN_NORMAL, Double.MAX_VALUE, Math.PI, Math.E,
+                Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 2e23, 1.0E23, 5e-324, 9007199254740993.0
+        };
+        for (double value : special) {
+            assertDouble(value);
+        }
+        SplittableRandom random = new SplittableRandom(19);
+        for (int i = 0; i < SAMPLES; i++) {
+            assertDouble(Double.longBitsToDouble(random.nextLong()));
+            assertDouble(random.nextInt(-1_000_000, 1_000_000) / 1000.0);
+        }
+    }
+
+    @Test
+    void floatsAreIdenticalToFloatToString() {
+        float[] special = {
+                0f, -0f, 1f, 0.1f, 1e7f, 1e-3f, Float.MIN_VALUE, Float.MIN_NORMAL, Float.MAX_VALUE,
+                Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, 2.0E-45f, 3.4028235E38f
+        };
+        for (float value : special) {
+            assertFloat(value);
+        }
+        SplittableRandom random = new SplittableRandom(23);
+        for (int i = 0; i < SAMPLES; i++) {
+            assertFloat(Float.intBitsToFloat(random.nextInt()));
+        }
+    }
+
+    @Test
+    void longsAreIdenticalToLongToString() {
+        long[] special = {0, 1, -1, 9, 10, 99, 100, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1, 1_000_000_000_000L};
+        for (long value : special) {
+            assertLong(value);
+        }
+        SplittableRandom random = new SplittableRandom(29);
+        for (int i = 0; i < SAMPLES; i++) {
+            assertLong(random.nextLong());
+            assertLong(random.nextLong() >> random.nextInt(64));
+        }
+    }
+
+    private static void assertDouble(double value) {
+        byte[] out = new byte[NumberText.MAX_LENGTH];
+        assertEquals(Double.toString(value), text(out, NumberText.write(value, out, 0)), () -> "bits " + Long.toHexString(Double.doubleToRawLongBits(value)));
+    }
+
+    private static void assertFloat(float value) {
+        byte[] out = new byte[NumberText.MAX_LENGTH];
+        assertEquals(Float.toString(value), text(out, NumberText.write(value, out, 0)), () -> "bits " + Integer.toHexString(Float.floatToRawIntBits(value)));
+    }
+
+    private static void assertLong(long value) {
+        byte[] out = new byte[NumberText.MAX_LENGTH];
+        assertEquals(Long.toString(value), text(out, NumberText.write(value, out, 0)));
+    }
+
+    private static String text(byte[] out, int end) {
+        return new String(out, 0, end, StandardCharsets.US_ASCII);
+    }
+}
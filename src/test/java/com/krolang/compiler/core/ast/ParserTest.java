@@ -0,0 +1,112 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.SyntaxError;
+import com.krolang.compiler.core.lox.Lexer;
+import com.krolang.compiler.core.lox.TokenKind;
+import com.krolang.compiler.core.lox.TokenBuffer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author autonu.kro
+ */
+class ParserTest {
+
+    /**
+     * Enough statements for a dozen chunks of {@code Parser.CHUNK_TOKENS}
+     */
+    private static final int STATEMENTS = 30_000;
+    private static final int NESTING = 1_000_000;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void parallelParseEqualsASequentialParse() {
+        TokenBuffer tokens = scan(program());
+        assertEquals(new Parser(tokens).parse(), Parser.parse(tokens, pool));
+    }
+
+    @Test
+    void firstErrorInTheSourceWins() {
+        int[][] errors = {{27_000, 14_000, 2_000}, {2_000, 27_000}, {14_000, 27_000}, {29_999}};
+        for (int[] lines : errors) {
+            List<String> program = program();
+            for (int line : lines) {
+                program.set(line, "Let broken" + line + ": Num = " + line + " +;");
+            }
+            TokenBuffer tokens = scan(program);
+            SyntaxError expected = assertThrows(SyntaxError.class, () -> new Parser(tokens).parse());
+            for (int run = 0; run < 5; run++) {
+                SyntaxError actual = assertThrows(SyntaxError.class, () -> Parser.parse(tokens, pool));
+                assertEquals(expected.getMessage(), actual.getMessage());
+            }
+        }
+    }
+
+    @Test
+    void parsesGroupingsNestedAMillionDeep() {
+        String source = "Print -> " + "(".repeat(NESTING) + "x" + ")".repeat(NESTING) + " + 1;";
+        List<Statement> statements = new Parser(scan(List.of(source))).parse();
+        assertEquals(1, statements.size());
+        Expression.Binary sum = assertInstanceOf(Expression.Binary.class, ((Statement.PrintStatement) statements.getFirst()).expression());
+        assertEquals(TokenKind.PLUS, sum.operator().tokenKind());
+        assertEquals("1", assertInstanceOf(Expression.Literal.class, sum.rightExpr()).literal().content().orElseThrow());
+        Expression expression = sum.leftExpr();
+        for (int depth = 0; depth < NESTING; depth++) {
+            expression = assertInstanceOf(Expression.Grouping.class, expression).expression();
+        }
+        Expression.Variable variable = assertInstanceOf(Expression.Variable.class, expression);
+        assertEquals("x", variable.identifier().content().orElseThrow());
+    }
+
+    @Test
+    void parsesGroupingsFollowedByAnOperatorOrTheEnd() {
+        List<Statement> statements = new Parser(scan(List.of("Print -> ((x)) + 1;", "Print -> 2 * (x + 1);", "x = (y);"))).parse();
+        Expression.Binary nested = (Expression.Binary) ((Statement.PrintStatement) statements.get(0)).expression();
+        assertInstanceOf(Expression.Grouping.class, ((Expression.Grouping) nested.leftExpr()).expression());
+        Expression.Binary product = (Expression.Binary) ((Statement.PrintStatement) statements.get(1)).expression();
+        assertInstanceOf(Expression.Binary.class, ((Expression.Grouping) product.rightExpr()).expression());
+        Expression.Assignment assignment = (Expression.Assignment) ((Statement.ExpressionStatement) statements.get(2)).expression();
+        assertInstanceOf(Expression.Grouping.class, assignment.expression());
+    }
+
+    @Test
+    void assignsOnlyAVariable() {
+        for (String source : List.of("(x) = 1;", "a + b = 1;", "-x = 1;", "1 = 2;")) {
+            SyntaxError error = assertThrows(SyntaxError.class, () -> new Parser(scan(List.of(source))).parse());
+            assertTrue(error.getMessage().contains("near '='"), error.getMessage());
+        }
+    }
+
+    private static List<String> program() {
+        final List<String> lines = new ArrayList<>(STATEMENTS);
+        for (int i = 0; i < STATEMENTS; i++) {
+            lines.add(i % 100 == 50 ? "{ Let inner: Num = " + i + "; Print -> inner; }" : "Let v" + i + ": Num = " + i + " * 2;");
+        }
+        return lines;
+    }
+
+    private static TokenBuffer scan(List<String> lines) {
+        return new Lexer(lines, "chunks.kro").scan();
+    }
+}
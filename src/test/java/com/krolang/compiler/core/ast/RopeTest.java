@@ -0,0 +1,106 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenKind;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author autonu.kro
+ */
+class RopeTest {
+
+    private static final int PIECES = 500_000;
+    private static final String PIECE = "abcdefghij";
+
+    @Test
+    void flattensADeepLeftLeaningRope() {
+        CharSequence rope = "";
+        for (int i = 0; i < PIECES; i++) {
+            rope = Rope.concat(rope, PIECE);
+        }
+        assertInstanceOf(Rope.class, rope);
+        assertEquals(PIECE.repeat(PIECES), rope.toString());
+        assertEquals(PIECES * PIECE.length(), rope.length());
+    }
+
+    @Test
+    void flattensADeepRightLeaningRope() {
+        CharSequence rope = "";
+        for (int i = 0; i < PIECES; i++) {
+            rope = Rope.concat(Integer.toString(i % 10), rope);
+        }
+        StringBuilder expected = new StringBuilder();
+        for (int i = PIECES - 1; i >= 0; i--) {
+            expected.append(i % 10);
+        }
+        assertEquals(expected.toString(), rope.toString());
+    }
+
+    @Test
+    void keepsResultsUpToTheFlatLengthAsStrings() {
+        String half = "x".repeat(Rope.FLAT_LENGTH / 2);
+        assertInstanceOf(String.class, Rope.concat(half, half));
+        assertInstanceOf(Rope.class, Rope.concat(half, half + "y"));
+        assertInstanceOf(String.class, Rope.concat("x".repeat(Rope.FLAT_LENGTH - 1), "y"));
+        assertInstanceOf(Rope.class, Rope.concat("x".repeat(Rope.FLAT_LENGTH), "y"));
+        String longer = "x".repeat(Rope.FLAT_LENGTH + 1);
+        assertSame(longer, Rope.concat(longer, ""));
+        assertSame(longer, Rope.concat("", longer));
+    }
+
+    @Test
+    void readsAndReusesItsPieces() {
+        CharSequence left = Rope.concat("a".repeat(Rope.FLAT_LENGTH), "b");
+        CharSequence twice = Rope.concat(left, left);
+        String expected = "a".repeat(Rope.FLAT_LENGTH) + "b" + "a".repeat(Rope.FLAT_LENGTH) + "b";
+        assertEquals(expected, twice.toString());
+        assertSame(twice.toString(), twice.toString());
+        // A piece read once is copied from its text
+        assertEquals(expected + expected, Rope.concat(twice, twice).toString());
+        assertEquals('b', twice.charAt(Rope.FLAT_LENGTH));
+        assertEquals("ba", twice.subSequence(Rope.FLAT_LENGTH, Rope.FLAT_LENGTH + 2));
+    }
+
+    @Test
+    void equalsAndComparesWithAString() {
+        CharSequence rope = Rope.concat("k".repeat(Rope.FLAT_LENGTH), "ro");
+        String text = "k".repeat(Rope.FLAT_LENGTH) + "ro";
+        assertInstanceOf(Rope.class, rope);
+        assertEquals(true, Operations.binaryOf(TokenKind.EQ, rope, text));
+        assertEquals(true, Operations.binaryOf(TokenKind.EQ, text, rope));
+        assertEquals(false, Operations.binaryOf(TokenKind.NOT_EQ, rope, text));
+        assertEquals(false, Operations.binaryOf(TokenKind.EQ, rope, text + "!"));
+        assertEquals(true, Operations.binaryOf(TokenKind.LT, rope, text + "!"));
+        assertEquals(true, Operations.binaryOf(TokenKind.GT, rope, "k"));
+        assertEquals(true, Operations.binaryOf(TokenKind.LT_EQ, rope, text));
+        assertEquals(true, Operations.binaryOf(TokenKind.GT_EQ, text, rope));
+        assertEquals(0, CharSequence.compare(rope, text));
+    }
+
+    @Test
+    void interpreterConcatenatesStrOperandsOnlyForPlus() {
+        StringBuilder printed = new StringBuilder();
+        Output output = Output.of(printed);
+        Interpreter interpreter = new Interpreter(List.of(), new Environment(), output);
+        interpreter.execute(new Statement.PrintStatement(str(TokenKind.PLUS)));
+        interpreter.execute(new Statement.PrintStatement(str(TokenKind.EQ)));
+        for (TokenKind operator : List.of(TokenKind.MINUS, TokenKind.MULTIPLICATION, TokenKind.DIVISION)) {
+            assertThrows(IllegalArgumentException.class, () -> interpreter.execute(new Statement.PrintStatement(str(operator))));
+        }
+        output.flush();
+        assertEquals("krolang" + System.lineSeparator() + "False" + System.lineSeparator(), printed.toString());
+    }
+
+    private static Expression str(TokenKind operator) {
+        Token token = new Token(operator, Optional.empty(), "test", 1);
+        return new Expression.Binary(new Expression.Value("kro", token), token, new Expression.Value("lang", token), Type.STR);
+    }
+}
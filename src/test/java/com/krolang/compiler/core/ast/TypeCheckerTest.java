@@ -0,0 +1,41 @@
+package com.krolang.compiler.core.ast;
+
+import com.krolang.compiler.core.CompilationError;
+import com.krolang.compiler.core.lox.Lexer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author autonu.kro
+ */
+class TypeCheckerTest {
+
+    private final Resolver resolver = new Resolver();
+    private final TypeChecker typeChecker = new TypeChecker();
+
+    @Test
+    void forgetKeepsTheDeclaredTypes() {
+        check("Let x: Num = 1;");
+        typeChecker.forget();
+        assertThrows(CompilationError.class, () -> check("x = 'text';"));
+        assertDoesNotThrow(() -> check("x = 2;"));
+    }
+
+    @Test
+    void forgetDropsTheHeldTypes() {
+        check("Let s: Str = 'a';");
+        check("Let n: Num = 1;");
+        assertThrows(CompilationError.class, () -> check("Print -> s - n;"));
+        typeChecker.forget();
+        // The held types are unknown, the operation is checked when it runs
+        assertDoesNotThrow(() -> check("Print -> s - n;"));
+    }
+
+    private void check(String source) {
+        typeChecker.check(resolver.resolve(new Parser(new Lexer(List.of(source), "typed.kro").scan()).parse()));
+    }
+}
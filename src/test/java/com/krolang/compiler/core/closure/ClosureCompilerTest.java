@@ -0,0 +1,118 @@
+package com.krolang.compiler.core.closure;
+
+import com.krolang.compiler.core.CompilationError;
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Expression;
+import com.krolang.compiler.core.ast.Output;
+import com.krolang.compiler.core.ast.Statement;
+import com.krolang.compiler.core.ast.Type;
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenKind;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author autonu.kro
+ */
+class ClosureCompilerTest {
+
+    private static final List<Double> NUMBERS = List.of(3.0, -2.5, 0.0, -0.0, 0.1);
+    private static final List<TokenKind> ARITHMETIC = List.of(TokenKind.PLUS, TokenKind.MINUS, TokenKind.MULTIPLICATION, TokenKind.DIVISION);
+    private static final List<TokenKind> COMPARISONS = List.of(TokenKind.EQ, TokenKind.NOT_EQ, TokenKind.LT, TokenKind.GT, TokenKind.LT_EQ, TokenKind.GT_EQ);
+
+    private final Environment environment = new Environment();
+    private final StringBuilder printed = new StringBuilder();
+    private final Output output = Output.of(printed);
+    private final ClosureCompiler compiler = new ClosureCompiler(environment, output);
+
+    @Test
+    void compilesNumOperandsToDoubleSuppliers() {
+        assertTrue(ClosureCompiler.isNumber(binary(TokenKind.PLUS, Type.NUM)));
+        assertTrue(ClosureCompiler.isNumber(new Expression.Unary(token(TokenKind.MINUS), new Expression.Grouping(binary(TokenKind.DIVISION, Type.NUM)))));
+        assertTrue(ClosureCompiler.isNumber(new Expression.Literal(new Token(TokenKind.NUM_LIT, Optional.of("2"), "test", 1))));
+        assertFalse(ClosureCompiler.isNumber(binary(TokenKind.PLUS, Type.ANY)));
+        assertFalse(ClosureCompiler.isNumber(binary(TokenKind.LT, Type.NUM)));
+        assertFalse(ClosureCompiler.isNumber(variable(0)));
+    }
+
+    @Test
+    void computesOnDoublesWhatTheGenericOperationsDo() {
+        for (TokenKind operator : ARITHMETIC) {
+            for (double left : NUMBERS) {
+                for (double right : NUMBERS) {
+                    define(left, right);
+                    Double generic = (Double) compiler.object(binary(operator, Type.ANY)).get();
+                    assertEquals(generic, compiler.number(binary(operator, Type.NUM)).getAsDouble(), left + " " + operator + " " + right);
+                    assertEquals(generic, compiler.object(binary(operator, Type.NUM)).get());
+                }
+            }
+        }
+        for (TokenKind operator : COMPARISONS) {
+            for (double left : NUMBERS) {
+                for (double right : NUMBERS) {
+                    define(left, right);
+                    assertEquals(compiler.object(binary(operator, Type.ANY)).get(), compiler.object(binary(operator, Type.NUM)).get(), left + " " + operator + " " + right);
+                }
+            }
+        }
+    }
+
+    @Test
+    void leavesUncheckedOperandsToTheGenericOperations() {
+        define("kro", "lang");
+        assertEquals("krolang", compiler.object(binary(TokenKind.PLUS, Type.ANY)).get().toString());
+        assertEquals(true, compiler.object(binary(TokenKind.LT, Type.ANY)).get());
+        assertThrows(IllegalArgumentException.class, () -> compiler.object(binary(TokenKind.MINUS, Type.ANY)).get());
+        define(1.0, "lang");
+        assertThrows(IllegalArgumentException.class, () -> compiler.object(binary(TokenKind.PLUS, Type.ANY)).get());
+        // The Num closures trust the type checker, they do not check the values
+        assertThrows(ClassCastException.class, () -> compiler.number(binary(TokenKind.PLUS, Type.NUM)).getAsDouble());
+    }
+
+    @Test
+    void declarationsAndAssignmentsWriteTheirSlot() {
+        define(2.0, 5.0);
+        Token identifier = new Token(TokenKind.IDENTIFIER, Optional.of("sum"), "test", 1);
+        compiler.compile(new Statement.VariableDeclaration(identifier, Type.NUM, binary(TokenKind.PLUS, Type.NUM), 3)).run();
+        assertEquals(7.0, environment.get(3, identifier));
+        assertThrows(CompilationError.class, () -> environment.get(2, identifier));
+
+        Expression assignment = new Expression.Assignment(identifier, binary(TokenKind.MULTIPLICATION, Type.NUM), 2);
+        compiler.compile(new Statement.PrintStatement(assignment)).run();
+        assertEquals(10.0, environment.get(2, identifier));
+        assertEquals(7.0, environment.get(3, identifier));
+        assertEquals(2.0, environment.get(0, identifier));
+        output.flush();
+        assertEquals("10" + System.lineSeparator(), printed.toString());
+
+        compiler.compile(new Statement.ExpressionStatement(new Expression.Assignment(identifier, variable(1), 0))).run();
+        assertEquals(5.0, environment.get(0, identifier));
+    }
+
+    private void define(Object left, Object right) {
+        environment.define(0, left);
+        environment.define(1, right);
+    }
+
+    /**
+     * The variables of slots 0 and 1 under an operator, with the operand type the checker found
+     */
+    private static Expression binary(TokenKind operator, Type operands) {
+        return new Expression.Binary(variable(0), token(operator), variable(1), operands);
+    }
+
+    private static Expression variable(int slot) {
+        return new Expression.Variable(new Token(TokenKind.IDENTIFIER, Optional.of("v" + slot), "test", 1), slot);
+    }
+
+    private static Token token(TokenKind kind) {
+        return new Token(kind, Optional.empty(), "test", 1);
+    }
+}
@@ -0,0 +1,92 @@
+package com.krolang.compiler.core.lox;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Lines and tokens read across the windows of {@link SourceReader}, against the same text read
+ * whole.
+ *
+ * @author autonu.kro
+ */
+class SourceReaderTest {
+
+    private static final int WINDOW = SourceReader.WINDOW_SIZE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void scansATokenSplitByTheWindowBoundary() throws IOException {
+        String program = "Let boundary: Num = 1234567890;\nPrint -> boundary + 1;\n";
+        for (int shift = 1; shift <= 12; shift++) {
+            // The first line ends in spaces so each token of the next one falls on the boundary
+            String source = "Print -> 0;" + " ".repeat(WINDOW - 11 - shift) + "\n" + program;
+            Path file = write(source);
+            assertEquals(Files.readAllLines(file), lines(file, WINDOW));
+            assertEquals(new Lexer(Files.readAllLines(file), file.toAbsolutePath().toString()).scan().asList(), Lexer.scan(file).asList());
+        }
+    }
+
+    @Test
+    void endsALineOnceWhereCarriageReturnAndLineFeedAreSplit() throws IOException {
+        String source = "Print -> 1;" + " ".repeat(WINDOW - 12) + "\r\nPrint -> 2;\r\n\r\nPrint -> 3;";
+        assertEquals(WINDOW - 1, source.indexOf('\r'));
+        Path file = write(source);
+        assertEquals(List.of("Print -> 1;" + " ".repeat(WINDOW - 12), "Print -> 2;", "", "Print -> 3;"), lines(file, WINDOW));
+        List<Token> tokens = Lexer.scan(file).asList();
+        assertEquals(2, tokens.get(4).line());
+        assertEquals(4, tokens.get(8).line());
+    }
+
+    @Test
+    void decodesACharacterSplitByTheWindowBoundary() throws IOException {
+        for (String character : List.of("é", "€", "𝄞")) {
+            int bytes = character.getBytes(StandardCharsets.UTF_8).length;
+            for (int inside = 1; inside < bytes; inside++) {
+                // The character starts `inside` bytes before the end of the first window
+                String source = "Print -> 0;" + " ".repeat(WINDOW - 22 - inside) + "\nPrint -> '" + character + "kro';\n";
+                Path file = write(source);
+                assertEquals(WINDOW - inside, Files.readString(file).substring(0, source.indexOf(character)).getBytes(StandardCharsets.UTF_8).length);
+                assertEquals(Files.readAllLines(file), lines(file, WINDOW));
+                assertEquals(new Lexer(Files.readAllLines(file), file.toAbsolutePath().toString()).scan().asList(), Lexer.scan(file).asList());
+            }
+        }
+    }
+
+    @Test
+    void readsTheSameLinesThroughAnyWindow() throws IOException {
+        Path file = write("Let s: Str = 'é€𝄞';\r\n\rPrint -> s;\n\n# comment\r\n{ Print -> s + '€'; }");
+        for (int window = 4; window <= 32; window++) {
+            assertEquals(Files.readAllLines(file), lines(file, window), "window " + window);
+        }
+    }
+
+    @Test
+    void readsAnEmptyFile() throws IOException {
+        Path file = write("");
+        assertEquals(List.of(), lines(file, WINDOW));
+        List<Token> tokens = Lexer.scan(file).asList();
+        assertEquals(1, tokens.size());
+        assertEquals(TokenKind.EOF, tokens.getFirst().tokenKind());
+    }
+
+    private Path write(String source) throws IOException {
+        return Files.writeString(directory.resolve("source.kro"), source);
+    }
+
+    private static List<String> lines(Path file, int window) throws IOException {
+        List<String> lines = new ArrayList<>();
+        SourceReader.lines(file, window, line -> lines.add(line.toString()));
+        return lines;
+    }
+}
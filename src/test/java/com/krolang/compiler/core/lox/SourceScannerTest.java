@@ -0,0 +1,80 @@
+package com.krolang.compiler.core.lox;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Token streams of the {@link SourceScanner}, each token written as its kind, its content if it
+ * has one and its line.
+ *
+ * @author autonu.kro
+ */
+class SourceScannerTest {
+
+    @Test
+    void scansStringsWithTheirEscapes() {
+        assertEquals(List.of("PRINT@1", "RIGHT_ARROW@1", "STR_LIT 'it\\'s'@1", "PLUS@1", "STR_LIT 'a\\\\b'@1", "SEMI@1", "EOF@2"),
+                tokens("Print -> 'it\\'s' + 'a\\\\b';"));
+        assertEquals(List.of("STR_LIT ''@1", "STR_LIT '-> 1; // no comment'@1", "EOF@2"),
+                tokens("'''-> 1; // no comment'"));
+    }
+
+    @Test
+    void skipsTheQuoteOfAnUnterminatedOrWronglyEscapedString() {
+        assertEquals(List.of("IDENTIFIER abc@1", "EOF@2"), tokens("'abc"));
+        assertEquals(List.of("IDENTIFIER abc@1", "EOF@2"), tokens("'abc\\"));
+        // The escape of n is invalid, the literal ends up as the words around it
+        assertEquals(List.of("IDENTIFIER a@1", "IDENTIFIER nb@1", "EOF@2"), tokens("'a\\nb'"));
+    }
+
+    @Test
+    void skipsCommentLinesWithoutCountingThem() {
+        List<String> tokens = tokens(
+                "// a comment",
+                "Let a: Num = 1;",
+                "   /* one line */",
+                "/*",
+                "Print -> a;",
+                "*/",
+                "Print -> a; // trailing words");
+        // Only whole lines are comments, the slashes of a trailing one are skipped and its words scanned
+        assertEquals(List.of("LET@1", "IDENTIFIER a@1", "COL@1", "NUM@1", "ASSIGN@1", "NUM_LIT 1@1", "SEMI@1",
+                "PRINT@2", "RIGHT_ARROW@2", "IDENTIFIER a@2", "SEMI@2", "IDENTIFIER trailing@2", "IDENTIFIER words@2", "EOF@3"), tokens);
+    }
+
+    @Test
+    void skipsLoneCharactersThatStartNoToken() {
+        assertEquals(List.of("IDENTIFIER a@1", "IDENTIFIER b@1", "IDENTIFIER c@1", "IDENTIFIER d@1", "IDENTIFIER e@1", "IDENTIFIER f@1", "EOF@2"),
+                tokens("a ! b & c | d \\ e / f"));
+        assertEquals(List.of("NOT_EQ@1", "AND@1", "OR@1", "EOF@2"), tokens("!=&&||"));
+        assertEquals(List.of("IDENTIFIER caf@1", "NUM_LIT 1@1", "EOF@2"), tokens("café 1."));
+    }
+
+    @Test
+    void scansTwoCharacterOperatorsOnlyWhereTheLanguageHasThem() {
+        assertEquals(List.of("LT@1", "ASSIGN@1", "GT@1", "ASSIGN@1", "EOF@2"), tokens("<= >="));
+        assertEquals(List.of("LEFT_ARROW@1", "RIGHT_ARROW@1", "EQ@1", "ASSIGN@1", "MINUS@1", "LT@1", "EOF@2"), tokens("<-->=== - <"));
+    }
+
+    @Test
+    void scansNumbersAndWords() {
+        assertEquals(List.of("NUM_LIT 1.5@1", "NUM_LIT 12@1", "IDENTIFIER abc@1", "IDENTIFIER x2@1", "TRUE@1", "NIL@1", "EOF@2"),
+                tokens("1.5 12abc x2 True Nil"));
+    }
+
+    @Test
+    void countsEveryLineButCommentLines() {
+        assertEquals(List.of("IDENTIFIER a@1", "IDENTIFIER b@3", "IDENTIFIER c@4", "EOF@5"), tokens("a", "", "b", "// skipped", "c"));
+        assertEquals(List.of("EOF@1"), tokens());
+        assertEquals(List.of("EOF@1"), tokens("/*", "a", "*/"));
+    }
+
+    private static List<String> tokens(String... lines) {
+        return new Lexer(List.of(lines), "test").scan().asList().stream()
+                .map(token -> token.tokenKind() + token.content().map(content -> " " + content).orElse("") + "@" + token.line())
+                .toList();
+    }
+}
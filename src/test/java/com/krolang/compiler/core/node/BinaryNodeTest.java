@@ -0,0 +1,121 @@
+package com.krolang.compiler.core.node;
+
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Type;
+import com.krolang.compiler.core.lox.Token;
+import com.krolang.compiler.core.lox.TokenKind;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * One binary node run on the values of two variables, which change type between runs.
+ *
+ * @author autonu.kro
+ */
+class BinaryNodeTest {
+
+    private final Environment environment = new Environment();
+
+    @Test
+    void specialisesOnNumsThenFallsBackForStrs() {
+        Parent parent = new Parent(binary(TokenKind.PLUS, Type.ANY));
+        assertInstanceOf(BinaryNode.Uninitialized.class, parent.child);
+
+        assertEquals(3.0, run(parent, 1.0, 2.0));
+        assertInstanceOf(BinaryNode.NumArithmetic.class, parent.child);
+        assertEquals(7.0, run(parent, 3.0, 4.0));
+        assertInstanceOf(BinaryNode.NumArithmetic.class, parent.child);
+
+        assertEquals("krolang", run(parent, "kro", "lang").toString());
+        assertInstanceOf(BinaryNode.Generic.class, parent.child);
+        assertEquals(3.0, run(parent, 1.0, 2.0));
+        assertInstanceOf(BinaryNode.Generic.class, parent.child);
+    }
+
+    @Test
+    void specialisesOnStrsThenFallsBackForNums() {
+        Parent parent = new Parent(binary(TokenKind.PLUS, Type.ANY));
+        assertEquals("krolang", run(parent, "kro", "lang").toString());
+        assertInstanceOf(BinaryNode.StrConcatenation.class, parent.child);
+
+        assertEquals(3.0, run(parent, 1.0, 2.0));
+        assertInstanceOf(BinaryNode.Generic.class, parent.child);
+        assertEquals("krolang", run(parent, "kro", "lang").toString());
+    }
+
+    @Test
+    void fallsBackWhenOnlyTheRightOperandChanges() {
+        Parent parent = new Parent(binary(TokenKind.MULTIPLICATION, Type.ANY));
+        assertEquals(6.0, run(parent, 2.0, 3.0));
+        assertInstanceOf(BinaryNode.NumArithmetic.class, parent.child);
+
+        assertThrows(IllegalArgumentException.class, () -> run(parent, 2.0, "lang"));
+        assertInstanceOf(BinaryNode.Generic.class, parent.child);
+        assertEquals(6.0, run(parent, 2.0, 3.0));
+    }
+
+    @Test
+    void specialisesComparisonsOnNums() {
+        Parent parent = new Parent(binary(TokenKind.LT, Type.ANY));
+        assertEquals(true, run(parent, 1.0, 2.0));
+        assertInstanceOf(BinaryNode.NumComparison.class, parent.child);
+        assertEquals(false, run(parent, 2.0, 1.0));
+
+        assertEquals(true, run(parent, "a", "b"));
+        assertInstanceOf(BinaryNode.Generic.class, parent.child);
+        assertEquals(false, run(parent, 2.0, 1.0));
+    }
+
+    @Test
+    void startsSpecialisedOnTheCheckedTypeAndStillFallsBack() {
+        Parent parent = new Parent(binary(TokenKind.MINUS, Type.NUM));
+        assertInstanceOf(BinaryNode.NumArithmetic.class, parent.child);
+        assertEquals(-1.0, run(parent, 1.0, 2.0));
+
+        Parent strings = new Parent(binary(TokenKind.PLUS, Type.STR));
+        assertInstanceOf(BinaryNode.StrConcatenation.class, strings.child);
+        assertEquals(3.0, run(strings, 1.0, 2.0));
+        assertInstanceOf(BinaryNode.Generic.class, strings.child);
+    }
+
+    private Object run(Parent parent, Object left, Object right) {
+        environment.define(0, left);
+        environment.define(1, right);
+        return parent.execute(environment);
+    }
+
+    private static BinaryNode binary(TokenKind operator, Type operands) {
+        return BinaryNode.of(operator, operands, read(0, "left"), read(1, "right"));
+    }
+
+    private static ExpressionNode read(int slot, String name) {
+        return new ExpressionNode.Read(slot, new Token(TokenKind.IDENTIFIER, Optional.of(name), "test", 1));
+    }
+
+    /**
+     * Holds the node under test, which replaces itself in its parent
+     */
+    private static final class Parent extends ExpressionNode {
+
+        private ExpressionNode child;
+
+        Parent(ExpressionNode child) {
+            this.child = adopt(child);
+        }
+
+        @Override
+        Object execute(Environment environment) {
+            return child.execute(environment);
+        }
+
+        @Override
+        protected void replaceChild(Node child, Node replacement) {
+            this.child = swap(this.child, child, replacement);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.krolang.compiler.core.vm;
+
+import com.krolang.compiler.core.ast.Environment;
+import com.krolang.compiler.core.ast.Interpreter;
+import com.krolang.compiler.core.ast.Optimizer;
+import com.krolang.compiler.core.ast.Output;
+import com.krolang.compiler.core.ast.Parser;
+import com.krolang.compiler.core.ast.Resolver;
+import com.krolang.compiler.core.ast.Statement;
+import com.krolang.compiler.core.ast.TypeChecker;
+import com.krolang.compiler.core.lox.Lexer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author autonu.kro
+ */
+class VirtualMachineTest {
+
+    @Test
+    void fusesNumArithmeticAndPrintsLikeTheInterpreter() {
+        List<Statement> statements = program("""
+                Let a: Num = 6;
+                Let b: Num = a * 2 - a * 4 + 1;
+                Let c: Num = (b - a) * b + 3;
+                Print -> c - b * a;
+                Print -> -c + a;
+                """);
+        Chunk chunk = new BytecodeCompiler().compile(statements);
+        int[] opCodes = opCodes(chunk);
+        for (int opCode : new int[]{OpCode.DEFINE_NUM, OpCode.MULTIPLY_NUM_CONST, OpCode.ADD_NUM_CONST,
+                OpCode.SUBTRACT_NUM_LOAD, OpCode.MULTIPLY_NUM_LOAD, OpCode.ADD_NUM_LOAD}) {
+            assertTrue(Arrays.stream(opCodes).anyMatch(code -> code == opCode), "No opcode " + opCode);
+        }
+        assertEquals(interpret(statements), run(chunk));
+    }
+
+    @Test
+    void internsConstants() {
+        Chunk chunk = new BytecodeCompiler().compile(program("Print -> 'kro';\nPrint -> 'kro';\nPrint -> 'lang';\n"));
+        assertEquals(List.of("kro", "lang"), List.of(chunk.constants()));
+        assertEquals("kro\nkro\nlang\n", run(chunk).replace(System.lineSeparator(), "\n"));
+    }
+
+    @Test
+    void dropsStatementsComputingAKnownValue() {
+        Chunk chunk = new BytecodeCompiler().compile(program("11 == 10;\n'a' + 'b';\n"));
+        assertArrayEquals(new int[]{OpCode.HALT}, chunk.code());
+    }
+
+    /**
+     * Opcodes of the chunk, skipping their operands
+     */
+    private static int[] opCodes(Chunk chunk) {
+        int[] code = chunk.code();
+        int[] opCodes = new int[code.length];
+        int count = 0;
+        for (int pc = 0; pc < code.length; ) {
+            int opCode = code[pc];
+            opCodes[count++] = opCode;
+            pc = pc + 1 + switch (opCode) {
+                case OpCode.CONST, OpCode.NUM, OpCode.STORE, OpCode.DEFINE, OpCode.COMPARE_NUM, OpCode.ADD_NUM_CONST,
+                     OpCode.SUBTRACT_NUM_CONST, OpCode.MULTIPLY_NUM_CONST, OpCode.DIVIDE_NUM_CONST -> 1;
+                case OpCode.LOAD, OpCode.ADD_NUM_LOAD, OpCode.SUBTRACT_NUM_LOAD, OpCode.MULTIPLY_NUM_LOAD,
+                     OpCode.DIVIDE_NUM_LOAD, OpCode.DEFINE_NUM -> 2;
+                default -> 0;
+            };
+        }
+        return Arrays.copyOf(opCodes, count);
+    }
+
+    private static String run(Chunk chunk) {
+        StringBuilder printed = new StringBuilder();
+        Output output = Output.of(printed);
+        new VirtualMachine(output).run(chunk);
+        output.flush();
+        return printed.toString();
+    }
+
+    private static String interpret(List<Statement> statements) {
+        StringBuilder printed = new StringBuilder();
+        Output output = Output.of(printed);
+        new Interpreter(statements, new Environment(), output).interpret();
+        output.flush();
+        return printed.toString();
+    }
+
+    private static List<Statement> program(String source) {
+        List<Statement> parsed = new Parser(new Lexer(null, "vm.kro").scan(source)).parse();
+        return new Optimizer().optimize(new TypeChecker().check(new Resolver().resolve(parsed)));
+    }
+}